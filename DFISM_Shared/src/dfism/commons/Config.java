@@ -56,6 +56,95 @@ public class Config {
 	 */
 	public static String difin_parameters_file = "./difin_parameters";
 	
+	/**
+	 * Single-scan mode = true: slaves read their datasets only once, an int-encoded copy of the transactions
+	 * is kept from the first pass for building the PPC tree.
+	 */
+	public static boolean is_single_scan = false;
+	
+	/**
+	 * Memory budget in MB for the copy of transactions in the single-scan mode, the remaining transactions
+	 * are spilled to a temporary file
+	 */
+	public static int single_scan_memory_budget = 1024;
+	
+	/**
+	 * Binary cache = true: slaves convert their text datasets to the binary transaction format once,
+	 * and later runs read the cached binary files instead of the text files.
+	 */
+	public static boolean is_binary_cache = false;
+	
+	/**
+	 * Directory of the cached binary datasets
+	 */
+	public static String binary_cache_directory = "./binary_cache/";
+	
+	/**
+	 * Parallel PPC tree building = true: slaves build partial PPC trees in parallel and merge them,
+	 * this takes extra memory for the partial trees.
+	 */
+	public static boolean is_parallel_ppc_build = true;
+	
+	/**
+	 * Batch insertion = true: transactions are sorted in batches, so each transaction is inserted into the PPC tree
+	 * from the prefix it shares with the transaction before, and equal transactions are inserted once.
+	 */
+	public static boolean is_batch_insertion = true;
+	
+	/**
+	 * Block-skipping intersection = true: N-list intersections skip runs of nodes which can not match
+	 * block by block instead of node by node, the results are the same. It pays off when the node lists are long and
+	 * have long runs of nodes without a match; on datasets whose runs are short the plain merge walk is faster.
+	 */
+	public static boolean is_block_skipping_intersection = false;
+	
+	/**
+	 * Galloping intersection ratio: when an N-list is at least this many times longer than the other one,
+	 * the intersection searches the longer N-list by galloping instead of walking it. 0: never.
+	 */
+	public static int galloping_intersection_ratio = 32;
+	
+	/**
+	 * Compressed N-lists = true: the N-lists of frequent 2-itemsets and k-itemsets kept during the mining are
+	 * delta/varint encoded, they take less memory but their intersections are slower.
+	 */
+	public static boolean is_compressed_nodelist = false;
+	
+	/**
+	 * Mining engine of jobs which do not choose one: nlist (node lists) or diffset (diffsets, for dense datasets)
+	 */
+	public static String mining_engine = "nlist";
+	
+	/**
+	 * Bitmap density cutoff: a frequent 2-itemset i1|i2 whose support count is at least this part of the support count
+	 * of i1 is represented by a bitmap of the transactions of i1, and so are the itemsets of its subspace. 0: never.
+	 */
+	public static double bitmap_density_cutoff = 0;
+	
+	/**
+	 * Task cost log = true: the estimated cost and the running time of the mining task of each frequent 2-itemset
+	 * are printed, to check the estimates which order the tasks.
+	 */
+	public static boolean is_task_cost_log = false;
+	
+	/**
+	 * Memory-bounded mining = true: the N-lists of frequent k-itemsets are released as soon as their branch of the
+	 * mining is done, instead of being kept for calculating the support counts of infrequent itemsets.
+	 */
+	public static boolean is_memory_bounded_mining = false;
+	
+	/**
+	 * Frequent itemset sink of the slaves: tree (the local frequent itemsets are inserted into the local FPM tree as
+	 * they are discovered) or map (they are kept in hFrequentPatterns, then the local FPM tree is built from them)
+	 */
+	public static String frequent_itemset_sink = "tree";
+	
+	/**
+	 * Closed mining = true: only the closed frequent itemsets are written, the itemsets which have no superset with the
+	 * same support count. They are filtered from the global FPM tree with the global support counts, a job of one part.
+	 */
+	public static boolean is_closed_mining = false;
+	
 	public static enum PARAMETERS {
 		IS_DISTRIBUTED_FILE_SYSTEM, 
 		IS_AUTO_MODE,
@@ -65,7 +154,22 @@ public class Config {
 		INCREMENTAL_DIRECTORY, 
 		SLAVE_ADDRESS_DIRECTORY,
 		SLAVE_ADDRESS_FILE,
-		DIFIN_PARAMETERS_FILE
+		DIFIN_PARAMETERS_FILE,
+		IS_SINGLE_SCAN,
+		SINGLE_SCAN_MEMORY_BUDGET,
+		IS_BINARY_CACHE,
+		BINARY_CACHE_DIRECTORY,
+		IS_PARALLEL_PPC_BUILD,
+		IS_BATCH_INSERTION,
+		IS_BLOCK_SKIPPING_INTERSECTION,
+		GALLOPING_INTERSECTION_RATIO,
+		IS_COMPRESSED_NODELIST,
+		MINING_ENGINE,
+		BITMAP_DENSITY_CUTOFF,
+		IS_TASK_COST_LOG,
+		IS_MEMORY_BOUNDED_MINING,
+		FREQUENT_ITEMSET_SINK,
+		IS_CLOSED_MINING
 	};
 	
 	/**
@@ -135,6 +239,51 @@ public class Config {
 			case DIFIN_PARAMETERS_FILE:
 				Config.difin_parameters_file = value;
 				break;
+			case IS_SINGLE_SCAN:
+				Config.is_single_scan = Boolean.parseBoolean(value);
+				break;
+			case SINGLE_SCAN_MEMORY_BUDGET:
+				Config.single_scan_memory_budget = Integer.parseInt(value);
+				break;
+			case IS_BINARY_CACHE:
+				Config.is_binary_cache = Boolean.parseBoolean(value);
+				break;
+			case BINARY_CACHE_DIRECTORY:
+				Config.binary_cache_directory = value;
+				break;
+			case IS_PARALLEL_PPC_BUILD:
+				Config.is_parallel_ppc_build = Boolean.parseBoolean(value);
+				break;
+			case IS_BATCH_INSERTION:
+				Config.is_batch_insertion = Boolean.parseBoolean(value);
+				break;
+			case IS_BLOCK_SKIPPING_INTERSECTION:
+				Config.is_block_skipping_intersection = Boolean.parseBoolean(value);
+				break;
+			case GALLOPING_INTERSECTION_RATIO:
+				Config.galloping_intersection_ratio = Integer.parseInt(value);
+				break;
+			case IS_COMPRESSED_NODELIST:
+				Config.is_compressed_nodelist = Boolean.parseBoolean(value);
+				break;
+			case MINING_ENGINE:
+				Config.mining_engine = value;
+				break;
+			case BITMAP_DENSITY_CUTOFF:
+				Config.bitmap_density_cutoff = Double.parseDouble(value);
+				break;
+			case IS_TASK_COST_LOG:
+				Config.is_task_cost_log = Boolean.parseBoolean(value);
+				break;
+			case IS_MEMORY_BOUNDED_MINING:
+				Config.is_memory_bounded_mining = Boolean.parseBoolean(value);
+				break;
+			case FREQUENT_ITEMSET_SINK:
+				Config.frequent_itemset_sink = value;
+				break;
+			case IS_CLOSED_MINING:
+				Config.is_closed_mining = Boolean.parseBoolean(value);
+				break;
 			}
 		}catch(Exception e){
 			
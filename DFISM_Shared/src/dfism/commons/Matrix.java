@@ -3,6 +3,7 @@ package dfism.commons;
 import java.util.List;
 import java.util.Map;
 
+import dfism.commons.collections.ItemsetObjectMap;
 import dfism.fpo.FPSubset;
 
 public class Matrix {
@@ -100,14 +101,20 @@ public class Matrix {
 	 * After completing this function, frequent2Itemsets contains all frequent 2-itemsets.
 	 * </br>NOTE: The order of items in the 2-itemsets are based on the order of 'index_item'  
 	 * @param hFrequent2Itemsets
-	 * @param index_item
+	 * @param hFrequent2ItemsetCodes receives the same subspaces as hFrequent2Itemsets, keyed by the codes i, j
 	 * @param support_count
 	 */
-	public void filter_hFrequent2Itemsets(Map<String, FPSubset> hFrequent2Itemsets, int support_count){
+	public void filter_hFrequent2Itemsets(Map<String, FPSubset> hFrequent2Itemsets,
+										ItemsetObjectMap<FPSubset> hFrequent2ItemsetCodes, int support_count){
+		int[] codes = new int[2];
 		for(int i=0; i<dim; i++){
+			codes[0] = i;
 			for(int j=i+1; j<dim; j++){
 				if(matrix[i][j]>=support_count){
-					hFrequent2Itemsets.put(i+" "+j, new FPSubset(matrix[i][j]));
+					FPSubset fpSubset = new FPSubset(matrix[i][j]);
+					hFrequent2Itemsets.put(i+" "+j, fpSubset);
+					codes[1] = j;
+					hFrequent2ItemsetCodes.put(codes, fpSubset);
 				}
 			}
 		}
@@ -0,0 +1,25 @@
+package dfism.commons.collections;
+
+/**
+ * Shared functions of the open-addressing hash tables
+ */
+final class HashUtility {
+	private HashUtility(){}
+	
+	/**
+	 * Spread the bits of a hash code, so close keys do not fall into close slots
+	 */
+	static int mix(int hash){
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+	
+	/**
+	 * @return the power of 2 table capacity for the expected number of entries
+	 */
+	static int capacity(int expected_size, float load_factor){
+		int capacity = 16;
+		while(capacity*load_factor < expected_size) capacity <<= 1;
+		return capacity;
+	}
+}
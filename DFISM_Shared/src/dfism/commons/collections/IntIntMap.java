@@ -0,0 +1,183 @@
+package dfism.commons.collections;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from int keys to int values, without boxing.
+ * </br>Keys and values are stored side by side in one int array, slots are probed linearly.
+ * The key Integer.MIN_VALUE marks free slots, so it is stored outside the table.
+ * </br>get() returns 'no entry value' for keys which do not exist.
+ */
+public class IntIntMap {
+	private static final int FREE_KEY = Integer.MIN_VALUE;
+	private static final float load_factor = 0.5f;
+	
+	private int[] slots;		// key, value, key, value, ...
+	private int mask;			// mask of slot indexes, the slot i takes slots[2i] and slots[2i+1]
+	private int size = 0;
+	private final int no_entry_value;
+	
+	private boolean has_free_key = false;
+	private int free_key_value;
+	
+	public IntIntMap(){
+		this(16);
+	}
+	
+	/**
+	 * @param expected_size expected number of entries
+	 */
+	public IntIntMap(int expected_size){
+		this(expected_size, -1);
+	}
+	
+	/**
+	 * @param expected_size expected number of entries
+	 * @param no_entry_value value returned for keys which do not exist
+	 */
+	public IntIntMap(int expected_size, int no_entry_value){
+		int capacity = HashUtility.capacity(expected_size, load_factor);
+		this.slots = new int[capacity << 1];
+		Arrays.fill(this.slots, FREE_KEY);
+		this.mask = capacity-1;
+		this.no_entry_value = no_entry_value;
+	}
+	
+	public int size(){
+		return size;
+	}
+	
+	public boolean isEmpty(){
+		return size == 0;
+	}
+	
+	public int noEntryValue(){
+		return no_entry_value;
+	}
+	
+	/**
+	 * @param key
+	 * @return the value of the key, 'no entry value' if the key does not exist
+	 */
+	public int get(int key){
+		if(key == FREE_KEY) return has_free_key ? free_key_value : no_entry_value;
+		
+		int[] slots = this.slots;
+		int index = (HashUtility.mix(key) & mask) << 1, k;
+		while((k = slots[index]) != FREE_KEY){
+			if(k == key) return slots[index+1];
+			index = (index+2) & (slots.length-1);
+		}
+		return no_entry_value;
+	}
+	
+	public boolean containsKey(int key){
+		if(key == FREE_KEY) return has_free_key;
+		
+		int[] slots = this.slots;
+		int index = (HashUtility.mix(key) & mask) << 1, k;
+		while((k = slots[index]) != FREE_KEY){
+			if(k == key) return true;
+			index = (index+2) & (slots.length-1);
+		}
+		return false;
+	}
+	
+	/**
+	 * @param key
+	 * @param value
+	 * @return the previous value of the key, 'no entry value' if the key did not exist
+	 */
+	public int put(int key, int value){
+		if(key == FREE_KEY){
+			int previous = has_free_key ? free_key_value : no_entry_value;
+			if(!has_free_key) size++;
+			has_free_key = true;
+			free_key_value = value;
+			return previous;
+		}
+		
+		int index = this.findSlot(key);
+		if(slots[index] == key){
+			int previous = slots[index+1];
+			slots[index+1] = value;
+			return previous;
+		}
+		this.insertAt(index, key, value);
+		return no_entry_value;
+	}
+	
+	/**
+	 * Add an amount to the value of the key. If the key does not exist, it is put with the amount as its value.
+	 * @param key
+	 * @param amount
+	 * @return the new value of the key
+	 */
+	public int addTo(int key, int amount){
+		if(key == FREE_KEY){
+			if(!has_free_key){
+				size++;
+				has_free_key = true;
+				free_key_value = 0;
+			}
+			return free_key_value += amount;
+		}
+		
+		int index = this.findSlot(key);
+		if(slots[index] == key) return slots[index+1] += amount;
+		this.insertAt(index, key, amount);
+		return amount;
+	}
+	
+	/**
+	 * @return all keys, in no particular order
+	 */
+	public int[] keys(){
+		int[] keys = new int[size];
+		int count = 0;
+		if(has_free_key) keys[count++] = FREE_KEY;
+		for(int i=0; i<slots.length; i+=2){
+			if(slots[i] != FREE_KEY) keys[count++] = slots[i];
+		}
+		return keys;
+	}
+	
+	public void clear(){
+		Arrays.fill(slots, FREE_KEY);
+		size = 0;
+		has_free_key = false;
+	}
+	
+	/**
+	 * @return the index of the slot having the key, or of the free slot where the key should be inserted
+	 */
+	private int findSlot(int key){
+		int[] slots = this.slots;
+		int index = (HashUtility.mix(key) & mask) << 1, k;
+		while((k = slots[index]) != FREE_KEY && k != key) index = (index+2) & (slots.length-1);
+		return index;
+	}
+	
+	private void insertAt(int index, int key, int value){
+		slots[index] = key;
+		slots[index+1] = value;
+		size++;
+		if(size > (mask+1)*load_factor) this.rehash((mask+1) << 1);
+	}
+	
+	private void rehash(int capacity){
+		int[] old_slots = this.slots;
+		int[] slots = new int[capacity << 1];
+		Arrays.fill(slots, FREE_KEY);
+		int mask = capacity-1, index, key;
+		for(int i=0; i<old_slots.length; i+=2){
+			if((key = old_slots[i]) == FREE_KEY) continue;
+			index = (HashUtility.mix(key) & mask) << 1;
+			while(slots[index] != FREE_KEY) index = (index+2) & (slots.length-1);
+			slots[index] = key;
+			slots[index+1] = old_slots[i+1];
+		}
+		this.slots = slots;
+		this.mask = mask;
+	}
+}
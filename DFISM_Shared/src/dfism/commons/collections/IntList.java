@@ -0,0 +1,60 @@
+package dfism.commons.collections;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of int values, without boxing.
+ */
+public class IntList {
+	private int[] elements;
+	private int size = 0;
+	
+	public IntList(){
+		this(16);
+	}
+	
+	public IntList(int capacity){
+		this.elements = new int[Math.max(1, capacity)];
+	}
+	
+	public int size(){
+		return size;
+	}
+	
+	public boolean isEmpty(){
+		return size == 0;
+	}
+	
+	public void add(int value){
+		if(size == elements.length) elements = Arrays.copyOf(elements, elements.length << 1);
+		elements[size++] = value;
+	}
+	
+	public int get(int index){
+		if(index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		return elements[index];
+	}
+	
+	public void set(int index, int value){
+		if(index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		elements[index] = value;
+	}
+	
+	/**
+	 * Remove all values, the capacity is kept
+	 */
+	public void clear(){
+		size = 0;
+	}
+	
+	/**
+	 * @return the internal array, only the first size() values are valid. It is replaced when the list grows.
+	 */
+	public int[] elements(){
+		return elements;
+	}
+	
+	public int[] toArray(){
+		return Arrays.copyOf(elements, size);
+	}
+}
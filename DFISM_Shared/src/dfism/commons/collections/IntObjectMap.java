@@ -0,0 +1,132 @@
+package dfism.commons.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An open-addressing hash map from int keys to objects, without boxing of keys.
+ * </br>A null value marks a free slot, so null values can not be stored.
+ * @param <V> type of values
+ */
+public class IntObjectMap<V> {
+	private static final float load_factor = 0.5f;
+	
+	private int[] keys;
+	private Object[] values;
+	private int mask;
+	private int size = 0;
+	
+	public IntObjectMap(){
+		this(16);
+	}
+	
+	/**
+	 * @param expected_size expected number of entries
+	 */
+	public IntObjectMap(int expected_size){
+		int capacity = HashUtility.capacity(expected_size, load_factor);
+		this.keys = new int[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity-1;
+	}
+	
+	public int size(){
+		return size;
+	}
+	
+	public boolean isEmpty(){
+		return size == 0;
+	}
+	
+	/**
+	 * @param key
+	 * @return the value of the key, null if the key does not exist
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key){
+		int slot = HashUtility.mix(key) & mask;
+		Object value;
+		while((value = values[slot]) != null){
+			if(keys[slot] == key) return (V) value;
+			slot = (slot+1) & mask;
+		}
+		return null;
+	}
+	
+	public boolean containsKey(int key){
+		return this.get(key) != null;
+	}
+	
+	/**
+	 * @param key
+	 * @param value must not be null
+	 * @return the previous value of the key, null if the key did not exist
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value){
+		if(value == null) throw new IllegalArgumentException("IntObjectMap does not store null values");
+		
+		int slot = HashUtility.mix(key) & mask;
+		Object previous;
+		while((previous = values[slot]) != null){
+			if(keys[slot] == key){
+				values[slot] = value;
+				return (V) previous;
+			}
+			slot = (slot+1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		if(size > keys.length*load_factor) this.rehash(keys.length << 1);
+		return null;
+	}
+	
+	/**
+	 * @return all keys, in no particular order
+	 */
+	public int[] keys(){
+		int[] result = new int[size];
+		int count = 0;
+		for(int slot=0; slot<values.length; slot++){
+			if(values[slot] != null) result[count++] = keys[slot];
+		}
+		return result;
+	}
+	
+	/**
+	 * @return all values, in the same order of keys()
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values(){
+		List<V> result = new ArrayList<V>(size);
+		for(int slot=0; slot<values.length; slot++){
+			if(values[slot] != null) result.add((V) values[slot]);
+		}
+		return result;
+	}
+	
+	public void clear(){
+		Arrays.fill(values, null);
+		size = 0;
+	}
+	
+	private void rehash(int capacity){
+		int[] old_keys = this.keys;
+		Object[] old_values = this.values;
+		int[] keys = new int[capacity];
+		Object[] values = new Object[capacity];
+		int mask = capacity-1, slot;
+		for(int i=0; i<old_values.length; i++){
+			if(old_values[i] == null) continue;
+			slot = HashUtility.mix(old_keys[i]) & mask;
+			while(values[slot] != null) slot = (slot+1) & mask;
+			keys[slot] = old_keys[i];
+			values[slot] = old_values[i];
+		}
+		this.keys = keys;
+		this.values = values;
+		this.mask = mask;
+	}
+}
@@ -0,0 +1,87 @@
+package dfism.commons.collections;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from itemsets (runs of item codes) to int values, without key objects and without boxing of values.
+ * </br>get() returns 'no entry value' for keys which do not exist. See ItemsetKeys.
+ */
+public class ItemsetIntMap extends ItemsetKeys {
+	private int[] values;
+	private final int no_entry_value;
+
+	public ItemsetIntMap(){
+		this(16);
+	}
+
+	/**
+	 * @param expected_size expected number of entries
+	 */
+	public ItemsetIntMap(int expected_size){
+		this(expected_size, -1);
+	}
+
+	/**
+	 * @param expected_size expected number of entries
+	 * @param no_entry_value value returned for keys which do not exist
+	 */
+	public ItemsetIntMap(int expected_size, int no_entry_value){
+		super(expected_size);
+		this.no_entry_value = no_entry_value;
+	}
+
+	public int noEntryValue(){
+		return no_entry_value;
+	}
+
+	/**
+	 * @param key codes of the itemset are key[from .. from+length)
+	 * @return the value of the key, 'no entry value' if the key does not exist
+	 */
+	public int get(int[] key, int from, int length){
+		int entry = this.find(key, from, length, hash(key, from, length));
+		return entry < 0 ? no_entry_value : values[entry];
+	}
+
+	public int get(int[] key){
+		return this.get(key, 0, key.length);
+	}
+
+	public boolean containsKey(int[] key, int from, int length){
+		return this.find(key, from, length, hash(key, from, length)) >= 0;
+	}
+
+	/**
+	 * @param key codes of the itemset are key[from .. from+length), they are copied
+	 * @param value
+	 * @return the previous value of the key, 'no entry value' if the key did not exist
+	 */
+	public int put(int[] key, int from, int length, int value){
+		int hash = hash(key, from, length);
+		int entry = this.find(key, from, length, hash);
+		if(entry >= 0){
+			int previous = values[entry];
+			values[entry] = value;
+			return previous;
+		}
+		entry = this.add(key, from, length, hash);	// may grow the values
+		values[entry] = value;
+		return no_entry_value;
+	}
+
+	public int put(int[] key, int value){
+		return this.put(key, 0, key.length, value);
+	}
+
+	/**
+	 * @param entry entry number, from 0 to size()-1
+	 * @return the value of the entry
+	 */
+	public int value(int entry){
+		return values[entry];
+	}
+
+	protected void growValues(int capacity){
+		values = values == null ? new int[capacity] : Arrays.copyOf(values, capacity);
+	}
+}
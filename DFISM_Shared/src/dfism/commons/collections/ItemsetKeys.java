@@ -0,0 +1,155 @@
+package dfism.commons.collections;
+
+import java.util.Arrays;
+
+/**
+ * The keys of the itemset maps: an itemset is a run of item codes, key[from .. from+length).
+ * </br>The codes of all keys are copied into one int array, so a key is not an object, and a lookup hashes and compares
+ * the codes where they are, without building a key.
+ * </br>Keys get the entry numbers 0, 1, 2, .. in the order they are put. The maps keep their values by entry number,
+ * so all entries can be read with a loop over the entry numbers.
+ */
+abstract class ItemsetKeys {
+	private static final float load_factor = 0.5f;
+
+	private int[] codes;	// codes of all keys, one after the other
+	private int[] offsets;	// the key of entry i is codes[offsets[i] .. offsets[i+1])
+	private int[] table;	// entry number + 1 of each slot, 0: free slot
+	private int[] hashes;	// hash of the key of each slot
+	private int mask;
+	private final int expected_size;
+	protected int size = 0;
+
+	/**
+	 * Nothing is allocated before the first key is put, many maps of subspaces stay empty.
+	 * @param expected_size expected number of entries
+	 */
+	protected ItemsetKeys(int expected_size){
+		this.expected_size = expected_size;
+	}
+
+	private void allocate(){
+		int capacity = HashUtility.capacity(expected_size, load_factor);
+		this.table = new int[capacity];
+		this.hashes = new int[capacity];
+		this.mask = capacity-1;
+		this.offsets = new int[Math.max(expected_size, 4)+1];
+		this.codes = new int[2*this.offsets.length];
+		this.growValues(this.offsets.length-1);
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public boolean isEmpty(){
+		return size == 0;
+	}
+
+	/**
+	 * @param entry entry number, from 0 to size()-1
+	 * @return the number of codes of the key
+	 */
+	public int keyLength(int entry){
+		return offsets[entry+1] - offsets[entry];
+	}
+
+	/**
+	 * Copy the codes of the key of an entry
+	 * @param entry entry number, from 0 to size()-1
+	 * @param key array receiving the codes from index 0
+	 * @return the number of codes
+	 */
+	public int getKey(int entry, int[] key){
+		int length = offsets[entry+1] - offsets[entry];
+		System.arraycopy(codes, offsets[entry], key, 0, length);
+		return length;
+	}
+
+	/**
+	 * @param entry entry number, from 0 to size()-1
+	 * @return the codes of the key of an entry
+	 */
+	public int[] getKey(int entry){
+		return Arrays.copyOfRange(codes, offsets[entry], offsets[entry+1]);
+	}
+
+	public void clear(){
+		if(table != null) Arrays.fill(table, 0);
+		size = 0;
+	}
+
+	/**
+	 * @return the entry number of the key, -1 if the key does not exist
+	 */
+	protected final int find(int[] key, int from, int length, int hash){
+		if(table == null) return -1;
+		int slot = hash & mask, entry;
+		while((entry = table[slot]) != 0){
+			if(hashes[slot] == hash && this.equals(entry-1, key, from, length)) return entry-1;
+			slot = (slot+1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Add a key which does not exist
+	 * @return the entry number of the key
+	 */
+	protected final int add(int[] key, int from, int length, int hash){
+		if(table == null) this.allocate();
+		int entry = size;
+		if(entry+1 == offsets.length){
+			offsets = Arrays.copyOf(offsets, offsets.length << 1);
+			this.growValues(offsets.length-1);
+		}
+		int offset = offsets[entry];
+		if(offset + length > codes.length) codes = Arrays.copyOf(codes, Math.max(codes.length << 1, offset + length));
+		System.arraycopy(key, from, codes, offset, length);
+		offsets[entry+1] = offset + length;
+
+		int slot = hash & mask;
+		while(table[slot] != 0) slot = (slot+1) & mask;
+		table[slot] = entry+1;
+		hashes[slot] = hash;
+		size++;
+		if(size > table.length*load_factor) this.rehash(table.length << 1);
+		return entry;
+	}
+
+	/**
+	 * Make room for the values of 'capacity' entries, the values are allocated by the first call
+	 */
+	protected abstract void growValues(int capacity);
+
+	static int hash(int[] key, int from, int length){
+		int hash = 1;
+		for(int i=from, end=from+length; i<end; i++) hash = 31*hash + key[i];
+		return HashUtility.mix(hash);
+	}
+
+	private boolean equals(int entry, int[] key, int from, int length){
+		int offset = offsets[entry];
+		if(offsets[entry+1] - offset != length) return false;
+		for(int i=0; i<length; i++){
+			if(codes[offset+i] != key[from+i]) return false;
+		}
+		return true;
+	}
+
+	private void rehash(int capacity){
+		int[] table = new int[capacity];
+		int[] hashes = new int[capacity];
+		int mask = capacity-1, slot;
+		for(int i=0; i<this.table.length; i++){
+			if(this.table[i] == 0) continue;
+			slot = this.hashes[i] & mask;
+			while(table[slot] != 0) slot = (slot+1) & mask;
+			table[slot] = this.table[i];
+			hashes[slot] = this.hashes[i];
+		}
+		this.table = table;
+		this.hashes = hashes;
+		this.mask = mask;
+	}
+}
@@ -0,0 +1,92 @@
+package dfism.commons.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash map from itemsets (runs of item codes) to objects, without key objects. See ItemsetKeys.
+ * </br>get() returns null for keys which do not exist, so null values can not be stored.
+ * @param <V> type of values
+ */
+public class ItemsetObjectMap<V> extends ItemsetKeys {
+	private Object[] values;
+
+	public ItemsetObjectMap(){
+		this(16);
+	}
+
+	/**
+	 * @param expected_size expected number of entries
+	 */
+	public ItemsetObjectMap(int expected_size){
+		super(expected_size);
+	}
+
+	/**
+	 * @param key codes of the itemset are key[from .. from+length)
+	 * @return the value of the key, null if the key does not exist
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int[] key, int from, int length){
+		int entry = this.find(key, from, length, hash(key, from, length));
+		return entry < 0 ? null : (V) values[entry];
+	}
+
+	public V get(int[] key){
+		return this.get(key, 0, key.length);
+	}
+
+	/**
+	 * @param key codes of the itemset are key[from .. from+length), they are copied
+	 * @param value must not be null
+	 * @return the previous value of the key, null if the key did not exist
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int[] key, int from, int length, V value){
+		if(value == null) throw new IllegalArgumentException("ItemsetObjectMap does not store null values");
+
+		int hash = hash(key, from, length);
+		int entry = this.find(key, from, length, hash);
+		if(entry >= 0){
+			Object previous = values[entry];
+			values[entry] = value;
+			return (V) previous;
+		}
+		entry = this.add(key, from, length, hash);	// may grow the values
+		values[entry] = value;
+		return null;
+	}
+
+	public V put(int[] key, V value){
+		return this.put(key, 0, key.length, value);
+	}
+
+	/**
+	 * @param entry entry number, from 0 to size()-1
+	 * @return the value of the entry
+	 */
+	@SuppressWarnings("unchecked")
+	public V value(int entry){
+		return (V) values[entry];
+	}
+
+	/**
+	 * @return all values, in the order of entry numbers
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values(){
+		List<V> result = new ArrayList<V>(size);
+		for(int i=0; i<size; i++) result.add((V) values[i]);
+		return result;
+	}
+
+	public void clear(){
+		super.clear();
+		if(values != null) Arrays.fill(values, null);
+	}
+
+	protected void growValues(int capacity){
+		values = values == null ? new Object[capacity] : Arrays.copyOf(values, capacity);
+	}
+}
@@ -0,0 +1,145 @@
+package dfism.commons.collections;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from Strings to int values, without boxing of values.
+ * </br>The hash code of each key is kept in the table, so most probes do not need String.equals().
+ * </br>get() returns 'no entry value' for keys which do not exist.
+ */
+public class StringIntMap {
+	private static final float load_factor = 0.5f;
+	
+	private String[] keys;
+	private int[] hashes;
+	private int[] values;
+	private int mask;
+	private int size = 0;
+	private final int no_entry_value;
+	
+	public StringIntMap(){
+		this(16);
+	}
+	
+	/**
+	 * @param expected_size expected number of entries
+	 */
+	public StringIntMap(int expected_size){
+		this(expected_size, -1);
+	}
+	
+	/**
+	 * @param expected_size expected number of entries
+	 * @param no_entry_value value returned for keys which do not exist
+	 */
+	public StringIntMap(int expected_size, int no_entry_value){
+		int capacity = HashUtility.capacity(expected_size, load_factor);
+		this.keys = new String[capacity];
+		this.hashes = new int[capacity];
+		this.values = new int[capacity];
+		this.mask = capacity-1;
+		this.no_entry_value = no_entry_value;
+	}
+	
+	public int size(){
+		return size;
+	}
+	
+	public boolean isEmpty(){
+		return size == 0;
+	}
+	
+	public int noEntryValue(){
+		return no_entry_value;
+	}
+	
+	/**
+	 * @param key
+	 * @return the value of the key, 'no entry value' if the key does not exist
+	 */
+	public int get(String key){
+		int hash = HashUtility.mix(key.hashCode());
+		int slot = hash & mask;
+		String k;
+		while((k = keys[slot]) != null){
+			if(hashes[slot] == hash && k.equals(key)) return values[slot];
+			slot = (slot+1) & mask;
+		}
+		return no_entry_value;
+	}
+	
+	public boolean containsKey(String key){
+		int hash = HashUtility.mix(key.hashCode());
+		int slot = hash & mask;
+		String k;
+		while((k = keys[slot]) != null){
+			if(hashes[slot] == hash && k.equals(key)) return true;
+			slot = (slot+1) & mask;
+		}
+		return false;
+	}
+	
+	/**
+	 * @param key must not be null
+	 * @param value
+	 * @return the previous value of the key, 'no entry value' if the key did not exist
+	 */
+	public int put(String key, int value){
+		int hash = HashUtility.mix(key.hashCode());
+		int slot = hash & mask;
+		String k;
+		while((k = keys[slot]) != null){
+			if(hashes[slot] == hash && k.equals(key)){
+				int previous = values[slot];
+				values[slot] = value;
+				return previous;
+			}
+			slot = (slot+1) & mask;
+		}
+		keys[slot] = key;
+		hashes[slot] = hash;
+		values[slot] = value;
+		size++;
+		if(size > keys.length*load_factor) this.rehash(keys.length << 1);
+		return no_entry_value;
+	}
+	
+	/**
+	 * @return all keys, in no particular order
+	 */
+	public String[] keys(){
+		String[] result = new String[size];
+		int count = 0;
+		for(String key : keys){
+			if(key != null) result[count++] = key;
+		}
+		return result;
+	}
+	
+	public void clear(){
+		Arrays.fill(keys, null);
+		size = 0;
+	}
+	
+	private void rehash(int capacity){
+		String[] old_keys = this.keys;
+		int[] old_hashes = this.hashes;
+		int[] old_values = this.values;
+		String[] keys = new String[capacity];
+		int[] hashes = new int[capacity];
+		int[] values = new int[capacity];
+		int mask = capacity-1, slot;
+		for(int i=0; i<old_keys.length; i++){
+			if(old_keys[i] == null) continue;
+			slot = old_hashes[i] & mask;
+			while(keys[slot] != null) slot = (slot+1) & mask;
+			keys[slot] = old_keys[i];
+			hashes[slot] = old_hashes[i];
+			values[slot] = old_values[i];
+		}
+		this.keys = keys;
+		this.hashes = hashes;
+		this.values = values;
+		this.mask = mask;
+	}
+}
@@ -0,0 +1,165 @@
+package dfism.fpo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import dfism.commons.collections.IntObjectMap;
+
+/**
+ * Closed frequent itemsets from candidates: a frequent itemset is closed if none of its supersets has the same support
+ * count.
+ * </br>The miner in closed mode gives one candidate for each itemset X it discovers: X with all its equivalent items,
+ * which is the closure of X except the items before the last item of X. Every closed itemset is one of the candidates,
+ * the other candidates are subsumed by one of them: a superset with the same support count.
+ * </br>close() filters the candidates: they are checked from the longest, against an index of the closed itemsets
+ * found so far, by support count then by item. A candidate is only tested against the closed itemsets of the same
+ * support count containing its rarest item in the index, and a 64-bit signature of the items rejects most of these
+ * subset tests without comparing codes.
+ * The closed itemsets are given to the target sink, and kept by the filter.
+ */
+public class ClosedItemsetFilter implements FrequentItemsetSink {
+	private static final Comparator<Itemset> LENGTH_ORDER = new Comparator<Itemset>(){
+		public int compare(Itemset itemset1, Itemset itemset2){
+			return itemset2.codes.length - itemset1.codes.length;	// decreasing
+		}
+	};
+	
+	private FrequentItemsetSink target;
+	private final List<List<Itemset>> thread_candidates = new ArrayList<List<Itemset>>();
+	private final ThreadLocal<List<Itemset>> candidates = new ThreadLocal<List<Itemset>>(){
+		protected List<Itemset> initialValue(){
+			List<Itemset> candidates = new ArrayList<Itemset>();
+			synchronized(thread_candidates){
+				thread_candidates.add(candidates);
+			}
+			return candidates;
+		}
+	};
+	private List<Itemset> closed_itemsets = null;
+	
+	private static class Itemset {
+		final int[] codes;
+		final int support;
+		final long signature;	// bit (code & 63) for each code
+		
+		Itemset(int[] codes, int support){
+			this.codes = codes;
+			this.support = support;
+			long signature = 0;
+			for(int code : codes) signature |= 1L << (code & 63);
+			this.signature = signature;
+		}
+		
+		/**
+		 * @return true if the codes of 'itemset' are a subset of the codes of this itemset
+		 */
+		boolean contains(Itemset itemset){
+			if((itemset.signature & ~this.signature) != 0) return false;
+			int[] sub = itemset.codes;
+			int i = 0, j = 0;
+			while(i < sub.length){
+				if(sub.length - i > codes.length - j) return false;
+				if(codes[j] == sub[i]) i++;
+				else if(codes[j] > sub[i]) return false;
+				j++;
+			}
+			return true;
+		}
+	}
+	
+	/**
+	 * @param target receives the closed itemsets from close(), null: they are only kept by the filter
+	 */
+	public ClosedItemsetFilter(FrequentItemsetSink target){
+		this.target = target;
+	}
+	
+	/**
+	 * Add a candidate, the codes are in increasing order
+	 */
+	public void add(int[] codes, int length, int support_count){
+		int[] copy = new int[length];
+		System.arraycopy(codes, 0, copy, 0, length);
+		this.candidates.get().add(new Itemset(copy, support_count));
+	}
+	
+	/**
+	 * Filter the candidates and give the closed itemsets to the target sink, call it after the mining is done.
+	 * The target sink is not closed.
+	 */
+	public void close(){
+		List<Itemset> candidates = new ArrayList<Itemset>();
+		synchronized(thread_candidates){
+			for(List<Itemset> list : thread_candidates) candidates.addAll(list);
+			thread_candidates.clear();
+		}
+		Collections.sort(candidates, LENGTH_ORDER);
+		
+		// Support count -> item code -> closed itemsets having the support count and containing the item.
+		// A superset of a candidate is longer, so it was checked before
+		IntObjectMap<IntObjectMap<List<Itemset>>> index = new IntObjectMap<IntObjectMap<List<Itemset>>>();
+		this.closed_itemsets = new ArrayList<Itemset>();
+		for(Itemset candidate : candidates){
+			IntObjectMap<List<Itemset>> same_support = index.get(candidate.support);
+			if(same_support == null){
+				same_support = new IntObjectMap<List<Itemset>>();
+				index.put(candidate.support, same_support);
+			}else if(this.isSubsumed(candidate, same_support)) continue;
+			for(int code : candidate.codes){
+				List<Itemset> item_itemsets = same_support.get(code);
+				if(item_itemsets == null){
+					item_itemsets = new ArrayList<Itemset>();
+					same_support.put(code, item_itemsets);
+				}
+				item_itemsets.add(candidate);
+			}
+			this.closed_itemsets.add(candidate);
+			if(this.target != null) this.target.add(candidate.codes, candidate.codes.length, candidate.support);
+		}
+	}
+	
+	/**
+	 * A superset of the candidate contains each of its items, so only the closed itemsets of the item having the
+	 * fewest of them are tested.
+	 * @param candidate
+	 * @param same_support item code -> closed itemsets having the support count of the candidate and the item
+	 * @return true if a closed itemset with the same support count contains the candidate
+	 */
+	private boolean isSubsumed(Itemset candidate, IntObjectMap<List<Itemset>> same_support){
+		List<Itemset> rarest = null;
+		for(int code : candidate.codes){
+			List<Itemset> item_itemsets = same_support.get(code);
+			if(item_itemsets == null) return false;
+			if(rarest == null || item_itemsets.size() < rarest.size()) rarest = item_itemsets;
+		}
+		for(Itemset closed : rarest){
+			if(closed.contains(candidate)) return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return number of closed itemsets, available after close()
+	 */
+	public int size(){
+		return closed_itemsets.size();
+	}
+	
+	/**
+	 * @param index from 0 to size()-1
+	 * @return codes of the closed itemset, in increasing order
+	 */
+	public int[] itemset(int index){
+		return closed_itemsets.get(index).codes;
+	}
+	
+	/**
+	 * @param index from 0 to size()-1
+	 * @return support count of the closed itemset
+	 */
+	public int support(int index){
+		return closed_itemsets.get(index).support;
+	}
+}
@@ -0,0 +1,52 @@
+package dfism.fpo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Only counts the frequent itemsets, by their lengths. Nothing of the itemsets is kept.
+ * </br>Each thread of the miner counts into its own array, the arrays are summed when the counts are read.
+ */
+public class CountingItemsetSink implements FrequentItemsetSink {
+	private static final int MAX_LENGTH = 64;	// itemsets which are longer are counted as this length
+	private final List<long[]> thread_counts = new ArrayList<long[]>();
+	private final ThreadLocal<long[]> counts = new ThreadLocal<long[]>(){
+		protected long[] initialValue(){
+			long[] counts = new long[MAX_LENGTH+1];	// length -> number of itemsets
+			synchronized(thread_counts){
+				thread_counts.add(counts);
+			}
+			return counts;
+		}
+	};
+	
+	public void add(int[] codes, int length, int support_count){
+		this.counts.get()[Math.min(length, MAX_LENGTH)]++;
+	}
+	
+	/**
+	 * Read after the mining is done
+	 * @param length
+	 * @return number of frequent itemsets of the length
+	 */
+	public long count(int length){
+		if(length > MAX_LENGTH) return 0;
+		long count = 0;
+		synchronized(thread_counts){
+			for(long[] counts : thread_counts) count += counts[length];
+		}
+		return count;
+	}
+	
+	/**
+	 * Read after the mining is done
+	 * @return number of frequent itemsets
+	 */
+	public long count(){
+		long count = 0;
+		for(int length=1; length<=MAX_LENGTH; length++) count += this.count(length);
+		return count;
+	}
+	
+	public void close(){}
+}
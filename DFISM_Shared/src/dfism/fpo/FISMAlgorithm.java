@@ -4,16 +4,20 @@ import java.util.List;
 import java.util.Map;
 
 import dfism.commons.Matrix;
+import dfism.commons.collections.IntIntMap;
+import dfism.commons.collections.ItemsetObjectMap;
+import dfism.commons.collections.StringIntMap;
 
 public abstract class FISMAlgorithm {
 	public Map<String, Integer> frequentPatterns;
 	public Map<String, FPSubset> hFrequentPatterns;
+	public ItemsetObjectMap<FPSubset> hFrequent2Itemsets;	// codes of the frequent 2-itemsets -> the subspaces in hFrequentPatterns
 	public Map<String, Integer> itemsMaptoFrequencies;
-	public Map<Integer, Integer> itemCodesMaptoFrequencies;
+	public IntIntMap itemCodesMaptoFrequencies;
 	
 	public Map<String, Integer> item_localIndex;
 	public List<String> localIndex_item;
-	public Map<String, Integer> item_globalIndex;
+	public StringIntMap item_globalIndex;
 	public List<String> globalIndex_item;
 	
 	protected Matrix matrix;
@@ -51,4 +55,16 @@ public abstract class FISMAlgorithm {
 	public int calculate_supportCount_kItemset(String[] itemset){
 		return 0;
 	}
+	
+	/**
+	 * Calculate support count of the infrequent k-itemset.
+	 * @param codes codes of the items of the itemset
+	 * @param length number of codes, the itemset is codes[0 .. length)
+	 * @return
+	 */
+	public int calculate_supportCount_kItemset(int[] codes, int length){
+		String[] itemset = new String[length];
+		for(int i=0; i<length; i++) itemset[i] = String.valueOf(codes[i]);
+		return this.calculate_supportCount_kItemset(itemset);
+	}
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ public class FPONode {
 	public int support = 0;
 	public FPONode parent = null;
 	public List<FPONode> children = null;
+	public boolean closed = true;	// false: a superset of the itemset of the node has the same support count
 	
 	public FPONode(){}
 	
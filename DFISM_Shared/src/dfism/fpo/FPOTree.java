@@ -4,6 +4,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -12,6 +13,10 @@ import java.util.Map.Entry;
 
 import dfism.commons.IntHolder;
 import dfism.commons.SlaveInfo;
+import dfism.commons.collections.IntIntMap;
+import dfism.commons.collections.IntList;
+import dfism.commons.collections.ItemsetObjectMap;
+import dfism.commons.collections.StringIntMap;
 import dfism.threads.CountNodesThread;
 import dfism.threads.FPOTreeBuildingThread;
 import dfism.threads.FPOTreeMergingThread;
@@ -73,6 +78,16 @@ public class FPOTree {
 		root = null;
 	}
 	
+	/**
+	 * Insert a frequent pattern with its support count, for FPOTreeItemsetSink. The miner inserts from several threads.
+	 * @param codes the codes of the items of the pattern, in increasing order
+	 * @param length the length of codes
+	 * @param support support count of the frequent pattern
+	 */
+	public synchronized void insertFrequentPattern(int[] codes, int length, int support){
+		insertFrequentPattern(codes, length, this.root).support = support;
+	}
+	
 	/**
 	 * Insert a frequent pattern into the FPO-Tree
 	 * @param codes the sorted code array of items in the frequent pattern
@@ -757,6 +772,79 @@ public class FPOTree {
 		}
 	}
 	
+	/**
+	 * Mark the nodes whose itemsets are not closed: a superset of the itemset has the same support count.
+	 * Then filter_write_frequentPatterns() writes only the closed itemsets.
+	 * </br>The tree must hold ALL frequent itemsets with their global support counts, i.e. the global FPO tree after
+	 * accumulate_supportCount() and prune(). The closed itemsets of the parts of a dataset are not enough: a closed
+	 * itemset of the whole dataset can be the intersection of closed itemsets of the parts, or infrequent in a part.
+	 * </br>An itemset C is not closed if and only if some C|y has the same support count. So for each node D and each
+	 * item y of D, the node of D without y is marked if its support count is the same as the one of D.
+	 * Nodes are not unmarked, call it once after the support counts are final.
+	 * @return running time
+	 */
+	public long mark_closed_itemsets(){
+		long start = System.currentTimeMillis();
+		
+		FPONode[] path = new FPONode[16];	// path[i]: the node of depth i on the path to the node being processed
+		path[0] = this.root;
+		for(FPONode node : this.root.children) this.mark_closed_recursive(node, 1, path);
+		
+		return System.currentTimeMillis() - start;
+	}
+	
+	/**
+	 * @param node
+	 * @param depth depth of the node, the root has depth 0
+	 * @param path path[0 .. depth) are the ancestors of the node
+	 */
+	private void mark_closed_recursive(FPONode node, int depth, FPONode[] path){
+		if(node.children == null) return;
+		if(depth+1 > path.length) path = Arrays.copyOf(path, path.length << 1);
+		path[depth] = node;
+		for(FPONode child : node.children) this.mark_closed_recursive(child, depth+1, path);
+		
+		// Each child D marks its subsets, which are in this subtree or in the subtrees of later siblings of its ancestors
+		for(FPONode child : node.children){
+			if(child.support == node.support) node.closed = false;	// D without its last item
+			this.mark_closed_subsets(child, depth+1, path);
+		}
+	}
+	
+	/**
+	 * Mark the subsets of the itemset of D which miss one item, except its last item, if they have the same support
+	 * count as D. The subset without the item at depth i is searched from path[i-1], the common prefix.
+	 * @param D
+	 * @param depth depth of D, path[1 .. depth) are the nodes of its other items
+	 */
+	private void mark_closed_subsets(FPONode D, int depth, FPONode[] path){
+		for(int i=1; i<depth; i++){
+			FPONode subNode = path[i-1];
+			// Items of D after the one at depth i: path[i+1 .. depth), then D
+			for(int j=i+1; j<=depth && subNode != null; j++){
+				subNode = findChild(subNode, j == depth ? D.code : path[j].code);
+			}
+			if(subNode != null && subNode.support == D.support) subNode.closed = false;
+		}
+	}
+	
+	/**
+	 * @return the child of 'node' with the code, null if it does not exist or 'node' is null
+	 */
+	public static FPONode findChild(FPONode node, int code){
+		if(node == null || node.children == null) return null;
+		int position = 0, size = node.children.size(), mid;
+		FPONode child;
+		while (position < size) {
+			mid = (position + size) / 2;
+			child = node.children.get(mid);
+			if (child.code == code) return child;
+			else if (child.code < code) position = mid + 1;
+			else size = mid;
+		}
+		return null;
+	}
+	
 	/**
 	 * In parallel way, generate and write by filtering all frequent patterns (based on 'support_threshold') in the FPO-Tree
 	 * </br> Update nodeCount
@@ -919,7 +1007,7 @@ public class FPOTree {
 	 * @param support_count
 	 * @return running time
 	 */
-	public long build_from_1IS(Map<String, Integer> itemsMapToFrequencies, Map<String, Integer> item_globalIndex, int support_count){
+	public long build_from_1IS(Map<String, Integer> itemsMapToFrequencies, StringIntMap item_globalIndex, int support_count){
 		long start = System.currentTimeMillis();
 		
 		int[] codes = new int[1];
@@ -940,26 +1028,24 @@ public class FPOTree {
 	 * @param item_globalIndex
 	 * @return running time
 	 */
-	public long build_from_kIS(Map<String, Integer> frequentPatterns, Map<String, Integer> item_globalIndex){
+	public long build_from_kIS(Map<String, Integer> frequentPatterns, StringIntMap item_globalIndex){
 		long start = System.currentTimeMillis();
 		
-		int[] codes = new int[50];
-		int index, pos, end;
+		IntList codes = new IntList(50);
+		int pos, end;
 		for(String pattern : frequentPatterns.keySet()){
 			pos = 0;
-			index = 0;
+			codes.clear();
 			// Parse item by item
             while ((end = pattern.indexOf(' ', pos)) >= 0) {
-                codes[index] = item_globalIndex.get(pattern.substring(pos, end));
+                codes.add(item_globalIndex.get(pattern.substring(pos, end)));
                 pos = end + 1;
-                index++;
             }
             // Get the last item
-            codes[index] = item_globalIndex.get(pattern.substring(pos));
+            codes.add(item_globalIndex.get(pattern.substring(pos)));
             // The codes in 'codes' has already been in ascending order because
             // the original order and the local order are the same for the items
-            index++;	// The value of 'index' is now the count of codes
-			insertFrequentPattern(codes, index);
+			insertFrequentPattern(codes.elements(), codes.size());
 		}
 		
 		return System.currentTimeMillis() - start;
@@ -1164,13 +1250,13 @@ public class FPOTree {
 	 * @param itemCodesMapToFrequencies
 	 * @return running time
 	 */
-	public long build_from_1IS(Map<Integer, Integer> itemCodesMapToFrequencies, int support_count){
+	public long build_from_1IS(IntIntMap itemCodesMapToFrequencies, int support_count){
 		long start = System.currentTimeMillis();
 		
 		int[] codes = new int[1];
-		for(Entry<Integer, Integer> entry : itemCodesMapToFrequencies.entrySet()){
-			if(entry.getValue() < support_count) continue;
-			codes[0] = entry.getKey();
+		for(int itemCode : itemCodesMapToFrequencies.keys()){
+			if(itemCodesMapToFrequencies.get(itemCode) < support_count) continue;
+			codes[0] = itemCode;
 			insertFrequentPattern(codes, 1);
 		}
 		
@@ -1179,37 +1265,29 @@ public class FPOTree {
 	
 	/**
 	 * In a parallel method, slaves build the FPO-Tree from frequent k-itemsets, k >= 2.
-	 * @param hFrequentPatterns
-	 * @param from_2itemsets
+	 * @param hFrequent2Itemsets codes of the frequent 2-itemsets -> their subspaces of frequent k-itemsets
+	 * @param just_2itemsets
 	 * @return running time
 	 * @throws InterruptedException
 	 */
-	public long build_from_kIS(Map<String, FPSubset> hFrequentPatterns, boolean just_2itemsets) throws InterruptedException{
+	public long build_from_kIS(ItemsetObjectMap<FPSubset> hFrequent2Itemsets, boolean just_2itemsets) throws InterruptedException{
 		long start = System.currentTimeMillis();
         
         // Build FPO tree from frequent 2-itemsets
-        FPONode[] fpoNodeList_l2 = new FPONode[hFrequentPatterns.size()];
+        FPONode[] fpoNodeList_l2 = new FPONode[hFrequent2Itemsets.size()];
         int[] codes = new int[2];
-        String[] i1i2_list;
-        int index = 0;
-        for(String i1i2 : hFrequentPatterns.keySet()){
-        	i1i2_list = i1i2.split(" ");
-    		codes[0] = Integer.parseInt(i1i2_list[0]);
-    		codes[1] = Integer.parseInt(i1i2_list[1]);
+        for(int entry=0; entry<hFrequent2Itemsets.size(); entry++){
+        	hFrequent2Itemsets.getKey(entry, codes);
     		// FPONode level2 is maintained in 'fpoNodeList_l2'.
-    		fpoNodeList_l2[index] = FPOTree.insertFrequentPattern(codes, 2, this.root);
-    		index++;
+    		fpoNodeList_l2[entry] = FPOTree.insertFrequentPattern(codes, 2, this.root);
         }
          
 		// Threads
         if(!just_2itemsets){
-        	String[] frequent_2itemsets = new String[hFrequentPatterns.size()];
-            hFrequentPatterns.keySet().toArray(frequent_2itemsets);
         	IntHolder globalIndex = new IntHolder(0);
             Thread[] threads = new Thread[THREAD_COUNT];
             for(int i=0; i<THREAD_COUNT; i++){        	
-            	threads[i] = new FPOTreeBuildingThread(hFrequentPatterns,
-    													frequent_2itemsets,
+            	threads[i] = new FPOTreeBuildingThread(hFrequent2Itemsets,
     													fpoNodeList_l2,
     													globalIndex, i);
             	threads[i].start();
@@ -1229,9 +1307,21 @@ public class FPOTree {
 	 * @throws InterruptedException 
 	 */
 	public long update_supportCount(FISMAlgorithm fism_alg) throws InterruptedException{
+		return this.update_supportCount(fism_alg, null);
+	}
+	
+	/**
+	 * In parallel way, slaves update support counts, as update_supportCount(fism_alg).
+	 * @param fism_alg
+	 * @param local_tree the local frequent itemsets with their support counts, inserted by FPOTreeItemsetSink during
+	 * the mining, null: the local frequent k-itemsets are in fism_alg.hFrequentPatterns
+	 * @return running time, -1 if failed
+	 * @throws InterruptedException 
+	 */
+	public long update_supportCount(FISMAlgorithm fism_alg, FPOTree local_tree) throws InterruptedException{
 		long start = System.currentTimeMillis();
 
-		Map<Integer, Integer> itemCodesMaptoFrequencies = fism_alg.itemCodesMaptoFrequencies;
+		IntIntMap itemCodesMaptoFrequencies = fism_alg.itemCodesMaptoFrequencies;
 		int[][] matrix = fism_alg.matrix.get2DArray();
 		List<FPONode> l2_nodes_list = new LinkedList<FPONode>();
 		
@@ -1266,7 +1356,8 @@ public class FPOTree {
 		IntHolder globalIndex = new IntHolder(0);
 		Thread[] threads = new Thread[THREAD_COUNT];
 		for(int i=0; i<threads.length; i++){
-			threads[i] = new UpdateSupportCountThread(l2_nodes_arr, fism_alg, globalIndex, i);
+			threads[i] = new UpdateSupportCountThread(l2_nodes_arr, fism_alg,
+														local_tree == null ? null : local_tree.root, globalIndex, i);
 			threads[i].start();
 		}
 		for(int i=0; i<threads.length; i++) threads[i].join();
@@ -0,0 +1,26 @@
+package dfism.fpo;
+
+/**
+ * Inserts the frequent itemsets into an FPO tree as they are discovered, with their support counts.
+ * </br>The nodes of the prefixes of an itemset which are not yet discovered are inserted with support count 0,
+ * their support counts are set when their own itemsets come.
+ */
+public class FPOTreeItemsetSink implements FrequentItemsetSink {
+	public static final String NAME = "tree";
+	
+	private FPOTree fpo_tree;
+	
+	public FPOTreeItemsetSink(FPOTree fpo_tree){
+		this.fpo_tree = fpo_tree;
+	}
+	
+	public FPOTree getFPOTree(){
+		return fpo_tree;
+	}
+	
+	public void add(int[] codes, int length, int support_count){
+		this.fpo_tree.insertFrequentPattern(codes, length, support_count);
+	}
+	
+	public void close(){}
+}
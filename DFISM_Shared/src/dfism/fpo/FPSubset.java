@@ -1,19 +1,19 @@
 package dfism.fpo;
 
-import java.util.HashMap;
-import java.util.Map;
+import dfism.commons.collections.ItemsetIntMap;
 
 /**
  * Two public properties:
  * </br> support: support count of a frequent 2-itemset 
- * </br> fPatterns: a map of frequent k-itemsets (k>2) to their support counts. These k-itemset share the same 2-itemset
+ * </br> fPatterns: a map of frequent k-itemsets (k>2) to their support counts. These k-itemset share the same 2-itemset,
+ * which is omitted from the keys: a key is the codes of the other k-2 items in increasing order
  */
 public class FPSubset {
 	public int support;
-	public Map<String, Integer> fPatterns;
+	public ItemsetIntMap fPatterns;
 	
 	public FPSubset(int support) {
 		this.support = support;
-		this.fPatterns = new HashMap<String, Integer>();
+		this.fPatterns = new ItemsetIntMap();
 	}
 }
@@ -0,0 +1,66 @@
+package dfism.fpo;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the frequent itemsets to a file as they are discovered, in the format of PrePostPlusE.writeResult():
+ * one line "code1 code2 .. codek:support" for each itemset, in the order of discovery.
+ * </br>Each thread of the miner formats into its own buffer, a full buffer is written under the lock of the file.
+ * </br>Errors of writing are thrown by close().
+ */
+public class FileItemsetSink implements FrequentItemsetSink {
+	private static final int BUFFER_SIZE = 1 << 16;	// characters
+	private final Writer output;
+	private IOException error = null;
+	private final List<StringBuilder> buffers = new ArrayList<StringBuilder>();
+	private final ThreadLocal<StringBuilder> thread_buffer = new ThreadLocal<StringBuilder>(){
+		protected StringBuilder initialValue(){
+			StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 256);
+			synchronized(buffers){
+				buffers.add(buffer);
+			}
+			return buffer;
+		}
+	};
+	
+	public FileItemsetSink(String fileName) throws IOException {
+		this.output = new BufferedWriter(new FileWriter(fileName), BUFFER_SIZE);
+	}
+	
+	public void add(int[] codes, int length, int support_count){
+		StringBuilder sb = this.thread_buffer.get();
+		sb.append(codes[0]);
+		for(int i=1; i<length; i++) sb.append(' ').append(codes[i]);
+		sb.append(':').append(support_count).append('\n');
+		if(sb.length() >= BUFFER_SIZE) this.write(sb);
+	}
+	
+	private void write(StringBuilder sb){
+		synchronized(this.output){
+			try {
+				if(this.error == null) this.output.append(sb);
+			} catch (IOException e) {
+				this.error = e;
+			}
+		}
+		sb.setLength(0);
+	}
+	
+	/**
+	 * Write the buffers of all threads and close the file, call it after the mining is done
+	 */
+	public void close() throws IOException {
+		synchronized(buffers){
+			for(StringBuilder sb : buffers) this.write(sb);
+		}
+		synchronized(this.output){
+			this.output.close();
+			if(this.error != null) throw this.error;
+		}
+	}
+}
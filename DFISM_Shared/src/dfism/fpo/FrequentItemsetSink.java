@@ -0,0 +1,26 @@
+package dfism.fpo;
+
+import java.io.IOException;
+
+/**
+ * Receives the frequent itemsets as the miner discovers them, so they do not have to be kept in memory until the
+ * mining is done.
+ * </br>- The codes of an itemset are in increasing order. The array is reused by the miner after add() returns,
+ * a sink which keeps the itemset must copy the codes.
+ * </br>- add() is called concurrently by the threads of the miner, implementations must be thread-safe.
+ * </br>- The owner of the sink closes it after the mining.
+ */
+public interface FrequentItemsetSink {
+	/**
+	 * @param codes codes of the items of the itemset are codes[0 .. length)
+	 * @param length number of items
+	 * @param support_count
+	 */
+	void add(int[] codes, int length, int support_count);
+	
+	/**
+	 * Flush or finish what the sink has received
+	 * @throws IOException
+	 */
+	void close() throws IOException;
+}
@@ -0,0 +1,32 @@
+package dfism.fpo;
+
+import dfism.commons.collections.ItemsetObjectMap;
+
+/**
+ * Keeps the frequent k-itemsets (k>2) in the maps 'fPatterns' of the subspaces of their 2-itemset prefixes,
+ * the result layout of FISMAlgorithm.hFrequentPatterns which the FPO tree and the master/slave protocol read.
+ * </br>1-itemsets and 2-itemsets are ignored, they are already in the maps of the algorithm.
+ */
+public class MapItemsetSink implements FrequentItemsetSink {
+	public static final String NAME = "map";
+	
+	private ItemsetObjectMap<FPSubset> subsets;	// codes of a 2-itemset -> its subspace in 'hFrequentPatterns'
+	
+	/**
+	 * @param hFrequent2Itemsets codes of the frequent 2-itemsets -> their subspaces, FISMAlgorithm.hFrequent2Itemsets
+	 */
+	public MapItemsetSink(ItemsetObjectMap<FPSubset> hFrequent2Itemsets){
+		this.subsets = hFrequent2Itemsets;
+	}
+	
+	public void add(int[] codes, int length, int support_count){
+		if(length < 3) return;
+		// The 2-itemset prefix is omitted from the keys of its subspace
+		FPSubset fpSubset = this.subsets.get(codes, 0, 2);
+		synchronized(fpSubset.fPatterns){
+			fpSubset.fPatterns.put(codes, 2, length-2, support_count);
+		}
+	}
+	
+	public void close(){}
+}
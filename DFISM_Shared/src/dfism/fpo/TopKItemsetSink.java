@@ -0,0 +1,74 @@
+package dfism.fpo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps only the k frequent itemsets which have the highest support counts, in a min-heap of size k.
+ * </br>Once the heap is full, its minimum support count is published, so that most itemsets are rejected without the
+ * lock. Among itemsets with the same support count as the k-th one, the ones which come first are kept.
+ */
+public class TopKItemsetSink implements FrequentItemsetSink {
+	private static final Comparator<Itemset> SUPPORT_ORDER = new Comparator<Itemset>(){
+		public int compare(Itemset itemset1, Itemset itemset2){
+			return Integer.compare(itemset1.support, itemset2.support);
+		}
+	};
+	
+	private final int k;
+	private final PriorityQueue<Itemset> heap;
+	private volatile int min_support = Integer.MIN_VALUE;	// support count of the top of a full heap
+	
+	/**
+	 * A frequent itemset kept by the sink
+	 */
+	public static class Itemset {
+		public final int[] codes;
+		public final int support;
+		
+		Itemset(int[] codes, int support){
+			this.codes = codes;
+			this.support = support;
+		}
+	}
+	
+	/**
+	 * @param k number of itemsets to keep, > 0
+	 */
+	public TopKItemsetSink(int k){
+		if(k <= 0) throw new IllegalArgumentException("k must be > 0");
+		this.k = k;
+		this.heap = new PriorityQueue<Itemset>(k, SUPPORT_ORDER);
+	}
+	
+	public void add(int[] codes, int length, int support_count){
+		if(support_count <= this.min_support) return;
+		synchronized(this.heap){
+			if(this.heap.size() == k){
+				if(support_count <= this.heap.peek().support) return;
+				this.heap.poll();
+			}
+			this.heap.add(new Itemset(Arrays.copyOf(codes, length), support_count));
+			if(this.heap.size() == k) this.min_support = this.heap.peek().support;
+		}
+	}
+	
+	/**
+	 * Read after the mining is done
+	 * @return the kept itemsets, in decreasing order of their support counts
+	 */
+	public List<Itemset> itemsets(){
+		List<Itemset> itemsets;
+		synchronized(this.heap){
+			itemsets = new ArrayList<Itemset>(this.heap);
+		}
+		Collections.sort(itemsets, Collections.reverseOrder(SUPPORT_ORDER));
+		return itemsets;
+	}
+	
+	public void close(){}
+}
@@ -0,0 +1,395 @@
+package dfism.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * A compact binary format of transaction datasets, and a TransactionSource reading it.
+ * <ul>
+ * <li>Header: magic, version, offset of the block index, transaction count, item count,
+ * then each item: varint length, bytes of the item, varint support count.
+ * Items are stored in decreasing order of support count, the position of an item is its id.
+ * <li>Body: each transaction: varint item count, then its item ids in increasing order, delta-encoded as varints.
+ * <li>Block index: block size, block count, then the file offset of every block of 'block size' transactions.
+ * </ul>
+ * Frequent items have small ids, so most ids and deltas take one byte. The support counts in the header make
+ * the counting pass unnecessary, which pays off when the same dataset is mined at many thresholds.
+ */
+public class BinaryTransactionFile implements TransactionSource {
+	public static final int MAGIC = 0x44465442;	// "DFTB"
+	public static final int VERSION = 1;
+	private static final int BLOCK_SIZE = 1 << 14;	// transactions per block of the block index
+	private static final Charset charset = Charset.defaultCharset();
+
+	private final String fileName;
+	private final ItemDictionary dictionary;
+	private int[] itemSupports;
+	private int transaction_count;
+	private int block_size;
+	private long[] block_offsets;
+
+	/**
+	 * Open a binary transaction file, the header and the block index are read immediately.
+	 * @param fileName
+	 * @throws IOException
+	 */
+	public BinaryTransactionFile(String fileName) throws IOException{
+		this.fileName = fileName;
+
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+		if(input.readInt() != MAGIC || input.readInt() != VERSION){
+			input.close();
+			throw new IOException("Not a binary transaction file: " + fileName);
+		}
+		long index_offset = input.readLong();
+		this.transaction_count = input.readInt();
+		int item_count = input.readInt();
+		this.dictionary = new ItemDictionary(item_count);
+		this.itemSupports = new int[item_count];
+		byte[] bytes = new byte[64];
+		int length;
+		for(int id=0; id<item_count; id++){
+			length = TransactionCache.readVarInt(input);
+			if(length > bytes.length) bytes = new byte[length];
+			input.readFully(bytes, 0, length);
+			dictionary.getOrAdd(bytes, 0, length);
+			itemSupports[id] = TransactionCache.readVarInt(input);
+		}
+		input.close();
+
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		file.seek(index_offset);
+		this.block_size = file.readInt();
+		this.block_offsets = new long[file.readInt()];
+		for(int i=0; i<block_offsets.length; i++) block_offsets[i] = file.readLong();
+		file.close();
+	}
+
+	public String getFileName(){
+		return fileName;
+	}
+
+	public int transactionCount(){
+		return transaction_count;
+	}
+
+	/**
+	 * @return support counts of items, indexed by item ids
+	 */
+	public int[] getItemSupports(){
+		return itemSupports;
+	}
+
+	@Override
+	public ItemDictionary getDictionary() {
+		return dictionary;
+	}
+
+	@Override
+	public TransactionReader openReader(boolean learnItems) throws IOException {
+		return new Reader(block_offsets.length == 0 ? 0 : block_offsets[0], transaction_count);
+	}
+
+	/**
+	 * Parts are runs of consecutive blocks of the block index.
+	 */
+	@Override
+	public TransactionSource[] partition(int count) throws IOException {
+		int block_count = block_offsets.length;
+		count = Math.max(1, Math.min(count, block_count));
+		TransactionSource[] parts = new TransactionSource[count];
+		int first_block, end_block;
+		for(int i=0; i<count; i++){
+			first_block = (int)((long)block_count*i/count);
+			end_block = (int)((long)block_count*(i+1)/count);
+			parts[i] = new Blocks(first_block, end_block);
+		}
+		return parts;
+	}
+
+	/**
+	 * @return true if the file starts with the magic number of binary transaction files
+	 */
+	public static boolean isBinaryFile(String fileName){
+		try{
+			DataInputStream input = new DataInputStream(new FileInputStream(fileName));
+			try{
+				return input.readInt() == MAGIC;
+			}finally{
+				input.close();
+			}
+		}catch(IOException e){
+			return false;
+		}
+	}
+
+	////////////////////////////////////////////////// CONVERSION //////////////////////////////////////////////////
+
+	/**
+	 * Convert a text dataset (one transaction per line, items separated by a space) to the binary format.
+	 * @param textFileName
+	 * @param binaryFileName
+	 * @return running time
+	 * @throws IOException
+	 */
+	public static long convert(String textFileName, String binaryFileName) throws IOException{
+		long start = System.currentTimeMillis();
+
+		// First pass: learn items and their support counts
+		MappedTransactionScanner scanner = new MappedTransactionScanner(textFileName);
+		TransactionReader input = scanner.openReader(true);
+		int[] counts = new int[1024];
+		int[] items;
+		int transaction_count = 0, length;
+		while((length = input.next()) >= 0){
+			transaction_count++;
+			items = input.items();
+			for(int i=0; i<length; i++){
+				if(items[i] >= counts.length) counts = Arrays.copyOf(counts, Math.max(items[i]+1, counts.length << 1));
+				counts[items[i]]++;
+			}
+		}
+		input.close();
+
+		// New ids in decreasing order of support count
+		ItemDictionary dictionary = scanner.getDictionary();
+		int item_count = dictionary.size();
+		long[] support_ids = new long[item_count];
+		for(int id=0; id<item_count; id++) support_ids[id] = ((long)(Integer.MAX_VALUE - counts[id]) << 32) | id;
+		Arrays.sort(support_ids);
+		int[] newIds = new int[item_count];
+		for(int i=0; i<item_count; i++) newIds[(int)support_ids[i]] = i;
+
+		// Header
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryFileName), 1 << 16));
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.writeLong(0);	// offset of the block index, updated at the end
+		output.writeInt(transaction_count);
+		output.writeInt(item_count);
+		long offset = 24;
+		int id;
+		for(int i=0; i<item_count; i++){
+			id = (int)support_ids[i];
+			byte[] bytes = dictionary.getItem(id).getBytes(charset);
+			offset += TransactionCache.writeVarInt(output, bytes.length);
+			output.write(bytes);
+			offset += bytes.length;
+			offset += TransactionCache.writeVarInt(output, counts[id]);
+		}
+
+		// Body: second pass over the text file
+		long[] block_offsets = new long[(transaction_count + BLOCK_SIZE - 1)/BLOCK_SIZE];
+		input = scanner.openReader(false);
+		int[] sorted = new int[64];
+		int count = 0, previous;
+		while((length = input.next()) >= 0){
+			if(count % BLOCK_SIZE == 0) block_offsets[count/BLOCK_SIZE] = offset;
+			count++;
+			items = input.items();
+			if(length > sorted.length) sorted = new int[Math.max(length, sorted.length << 1)];
+			for(int i=0; i<length; i++) sorted[i] = newIds[items[i]];
+			Arrays.sort(sorted, 0, length);
+
+			offset += TransactionCache.writeVarInt(output, length);
+			previous = 0;
+			for(int i=0; i<length; i++){
+				offset += TransactionCache.writeVarInt(output, sorted[i] - previous);
+				previous = sorted[i];
+			}
+		}
+		input.close();
+
+		// Block index
+		output.writeInt(BLOCK_SIZE);
+		output.writeInt(block_offsets.length);
+		for(long block_offset : block_offsets) output.writeLong(block_offset);
+		output.close();
+
+		RandomAccessFile file = new RandomAccessFile(binaryFileName, "rw");
+		file.seek(8);
+		file.writeLong(offset);
+		file.close();
+
+		return System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * Get the binary version of a text dataset from the cache directory. The cached file is keyed by the name,
+	 * the size and the last-modified time of the text file; if it does not exist yet, the text file is converted
+	 * and the out-of-date versions of the text file are deleted.
+	 * @param textFileName
+	 * @param cacheDirectory
+	 * @return file name of the binary version
+	 * @throws IOException
+	 */
+	public static String getCachedBinaryFile(String textFileName, String cacheDirectory) throws IOException{
+		File textFile = new File(textFileName);
+		File dir = new File(cacheDirectory);
+		if(!dir.exists()) dir.mkdirs();
+
+		File binaryFile = new File(dir, textFile.getName() + "_" + textFile.length() + "_" + textFile.lastModified() + ".bin");
+		if(binaryFile.exists()) return binaryFile.getPath();
+
+		// Convert into a temporary file of its own then rename, so a broken conversion is never taken as a cached file
+		// and concurrent conversions of the same text file do not write into the same file
+		File tempFile = File.createTempFile(binaryFile.getName(), ".tmp", dir);
+		try{
+			System.out.println("=> Convert " + textFileName + " to the binary format in (ms): " +
+								convert(textFileName, tempFile.getPath()));
+			Files.move(tempFile.toPath(), binaryFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}catch(FileAlreadyExistsException e){
+			// Another conversion created the cached file meanwhile, it has the same content
+		}finally{
+			tempFile.delete();
+		}
+
+		// Only the cached files of this text file, those of another text file may start with the same name
+		Pattern cachedFile = Pattern.compile("^" + Pattern.quote(textFile.getName()) + "_\\d+_\\d+\\.bin$");
+		for(File file : dir.listFiles()){
+			if(!file.equals(binaryFile) && cachedFile.matcher(file.getName()).matches()) file.delete();
+		}
+
+		return binaryFile.getPath();
+	}
+
+	/**
+	 * Convert text datasets to the binary format.
+	 * </br>Usage: BinaryTransactionFile input output
+	 * </br>If input is a directory, all files in it are converted into the directory output.
+	 */
+	public static void main(String[] args) throws IOException{
+		if(args.length != 2){
+			System.out.println("Usage: BinaryTransactionFile <text file | directory> <binary file | directory>");
+			return;
+		}
+
+		File input = new File(args[0]);
+		if(input.isDirectory()){
+			File output_dir = new File(args[1]);
+			if(!output_dir.exists()) output_dir.mkdirs();
+			for(File file : input.listFiles()){
+				if(file.isDirectory()) continue;
+				System.out.println(file.getName() + " converted in (ms): " +
+									convert(file.getPath(), new File(output_dir, file.getName()).getPath()));
+			}
+		}else{
+			System.out.println(input.getName() + " converted in (ms): " + convert(args[0], args[1]));
+		}
+	}
+
+	//////////////////////////////////////////////////// READING ///////////////////////////////////////////////////
+
+	/**
+	 * The transactions in the blocks [first_block, end_block) of the block index.
+	 */
+	private final class Blocks implements TransactionSource {
+		private final int first_block;
+		private final int end_block;
+
+		Blocks(int first_block, int end_block){
+			this.first_block = first_block;
+			this.end_block = end_block;
+		}
+
+		@Override
+		public ItemDictionary getDictionary() {
+			return dictionary;
+		}
+
+		@Override
+		public TransactionReader openReader(boolean learnItems) throws IOException {
+			if(first_block == end_block) return new Reader(0, 0);
+			int count = (int)Math.min((long)end_block*block_size, transaction_count) - first_block*block_size;
+			return new Reader(block_offsets[first_block], count);
+		}
+
+		@Override
+		public TransactionSource[] partition(int count) throws IOException {
+			return new TransactionSource[]{this};
+		}
+	}
+
+	/**
+	 * Read 'count' transactions from the position 'offset' of the file.
+	 */
+	private final class Reader implements TransactionReader {
+		private final RandomAccessFile file;
+		private final byte[] buffer = new byte[1 << 20];
+		private int buffer_pos = 0;
+		private int buffer_limit = 0;
+		private int remaining;
+		private int[] items = new int[64];
+
+		Reader(long offset, int count) throws IOException {
+			this.file = new RandomAccessFile(fileName, "r");
+			this.file.seek(offset);
+			this.remaining = count;
+		}
+
+		@Override
+		public int next() throws IOException {
+			if(remaining == 0) return -1;
+			remaining--;
+
+			int length = this.readVarInt();
+			if(length > items.length) items = new int[Math.max(length, items.length << 1)];
+			int id = 0;
+			for(int i=0; i<length; i++){
+				id += this.readVarInt();
+				items[i] = id;
+			}
+			return length;
+		}
+
+		@Override
+		public int[] items() {
+			return items;
+		}
+
+		@Override
+		public void close() throws IOException {
+			file.close();
+		}
+
+		private int readVarInt() throws IOException {
+			if(buffer_limit - buffer_pos < 5) this.fill();
+			byte[] buffer = this.buffer;
+			int b = buffer[buffer_pos++];
+			int value = b & 0x7F, shift = 7;
+			while(b < 0){
+				b = buffer[buffer_pos++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			}
+			return value;
+		}
+
+		/**
+		 * Move the unread bytes to the beginning of the buffer and fill up the buffer
+		 */
+		private void fill() throws IOException {
+			int unread = buffer_limit - buffer_pos;
+			System.arraycopy(buffer, buffer_pos, buffer, 0, unread);
+			buffer_pos = 0;
+			buffer_limit = unread;
+			int read;
+			while(buffer_limit < buffer.length && (read = file.read(buffer, buffer_limit, buffer.length - buffer_limit)) > 0){
+				buffer_limit += read;
+			}
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package dfism.io;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A dictionary of items which assigns a dense id (0, 1, 2, ...) to each distinct item in order of appearance.
+ * </br>Items are looked up directly from their bytes, so tokens of a transaction do not need to become Strings.
+ * The bytes of all items are kept in one byte pool, and ids are found through an open-addressing hash table.
+ * </br>Item names are decoded with the default charset, the same as FileReader does.
+ */
+public class ItemDictionary {
+	private static final float load_factor = 0.5f;
+	private static final Charset charset = Charset.defaultCharset();
+
+	private byte[] pool;		// bytes of all items, item after item
+	private int pool_size;
+	private int[] offsets;		// id -> offset of the item in the pool, offsets[id+1] is the end of the item
+	private int[] hashes;		// id -> hash of the item
+	private String[] names;		// id -> decoded item, filled lazily
+	private int size;
+
+	private int[] table;		// slot -> id+1, 0 for an empty slot
+	private int mask;
+
+	public ItemDictionary(){
+		this(1024);
+	}
+
+	/**
+	 * @param expected_size	expected number of distinct items
+	 */
+	public ItemDictionary(int expected_size){
+		int capacity = 16;
+		while(capacity*load_factor < expected_size) capacity <<= 1;
+		this.table = new int[capacity];
+		this.mask = capacity-1;
+		this.pool = new byte[Math.max(64, expected_size*8)];
+		this.offsets = new int[Math.max(16, expected_size)+1];
+		this.hashes = new int[Math.max(16, expected_size)];
+		this.names = new String[Math.max(16, expected_size)];
+	}
+
+	/**
+	 * @return the number of distinct items
+	 */
+	public int size(){
+		return this.size;
+	}
+
+	/**
+	 * Find the id of the item given by bytes[start, end)
+	 * @return the id of the item, -1 if the item does not exist
+	 */
+	public int get(byte[] bytes, int start, int end){
+		int hash = hash(bytes, start, end);
+		int slot = hash & mask, id;
+		while((id = table[slot]) != 0){
+			id--;
+			if(hashes[id] == hash && equals(id, bytes, start, end)) return id;
+			slot = (slot+1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the id of the item given by bytes[start, end). If the item does not exist, it is added.
+	 * @return the id of the item
+	 */
+	public int getOrAdd(byte[] bytes, int start, int end){
+		return this.getOrAdd(bytes, start, end, hash(bytes, start, end));
+	}
+
+	/**
+	 * Add all items of another dictionary, items existing in this dictionary keep their ids.
+	 * @param other
+	 * @return the mapping from ids of the other dictionary to ids of this dictionary
+	 */
+	public int[] getOrAddAll(ItemDictionary other){
+		int[] mapping = new int[other.size];
+		for(int id=0; id<other.size; id++){
+			mapping[id] = this.getOrAdd(other.pool, other.offsets[id], other.offsets[id+1], other.hashes[id]);
+		}
+		return mapping;
+	}
+
+	private int getOrAdd(byte[] bytes, int start, int end, int hash){
+		int slot = hash & mask, id;
+		while((id = table[slot]) != 0){
+			id--;
+			if(hashes[id] == hash && equals(id, bytes, start, end)) return id;
+			slot = (slot+1) & mask;
+		}
+
+		// New item
+		id = this.add(bytes, start, end, hash);
+		table[slot] = id+1;
+		if(this.size > table.length*load_factor) this.rehash(table.length << 1);
+		return id;
+	}
+
+	/**
+	 * Find the id of an item given by its name
+	 * @return the id of the item, -1 if the item does not exist
+	 */
+	public int get(String item){
+		byte[] bytes = item.getBytes(charset);
+		return this.get(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Find the id of an item given by its name. If the item does not exist, it is added.
+	 * @return the id of the item
+	 */
+	public int getOrAdd(String item){
+		byte[] bytes = item.getBytes(charset);
+		return this.getOrAdd(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * @param id
+	 * @return the name of the item having the id
+	 */
+	public String getItem(int id){
+		String name = names[id];
+		if(name == null){
+			name = new String(pool, offsets[id], offsets[id+1]-offsets[id], charset);
+			names[id] = name;
+		}
+		return name;
+	}
+
+	private int add(byte[] bytes, int start, int end, int hash){
+		int length = end - start;
+		if(pool_size + length > pool.length) pool = Arrays.copyOf(pool, Math.max(pool.length << 1, pool_size + length));
+		if(size+1 == hashes.length){
+			int capacity = hashes.length << 1;
+			hashes = Arrays.copyOf(hashes, capacity);
+			names = Arrays.copyOf(names, capacity);
+			offsets = Arrays.copyOf(offsets, capacity+1);
+		}
+		System.arraycopy(bytes, start, pool, pool_size, length);
+		offsets[size] = pool_size;
+		pool_size += length;
+		offsets[size+1] = pool_size;
+		hashes[size] = hash;
+		return size++;
+	}
+
+	private void rehash(int capacity){
+		int[] new_table = new int[capacity];
+		int new_mask = capacity-1, slot;
+		for(int id=0; id<size; id++){
+			slot = hashes[id] & new_mask;
+			while(new_table[slot] != 0) slot = (slot+1) & new_mask;
+			new_table[slot] = id+1;
+		}
+		this.table = new_table;
+		this.mask = new_mask;
+	}
+
+	private boolean equals(int id, byte[] bytes, int start, int end){
+		int offset = offsets[id];
+		if(offsets[id+1]-offset != end-start) return false;
+		for(int i=start; i<end; i++, offset++){
+			if(pool[offset] != bytes[i]) return false;
+		}
+		return true;
+	}
+
+	private static int hash(byte[] bytes, int start, int end){
+		int h = 0x811c9dc5;		// FNV-1a
+		for(int i=start; i<end; i++){
+			h ^= bytes[i];
+			h *= 0x01000193;
+		}
+		return h ^ (h >>> 16);
+	}
+}
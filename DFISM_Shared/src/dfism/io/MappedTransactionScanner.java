@@ -0,0 +1,263 @@
+package dfism.io;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A TransactionSource for text datasets: one transaction per line, items separated by a space character.
+ * </br>The file is mapped into memory window by window through FileChannel.map, lines are tokenized on bytes and
+ * the tokens are looked up in the ItemDictionary directly, so no String is created for lines or items.
+ * </br>Tokenizing gives the same items as BufferedReader.readLine() and String.split(" ") do:
+ * lines end at '\n', '\r' or "\r\n"; empty items between two consecutive spaces are kept; trailing empty items are dropped.
+ */
+public class MappedTransactionScanner implements TransactionSource {
+	private static final int WINDOW_SIZE = 1 << 26;	// 64 MB for each mapped window
+
+	private final String fileName;
+	private final ItemDictionary dictionary;
+
+	public MappedTransactionScanner(String fileName){
+		this(fileName, new ItemDictionary());
+	}
+
+	public MappedTransactionScanner(String fileName, ItemDictionary dictionary){
+		this.fileName = fileName;
+		this.dictionary = dictionary;
+	}
+
+	public String getFileName(){
+		return fileName;
+	}
+
+	@Override
+	public ItemDictionary getDictionary() {
+		return dictionary;
+	}
+
+	@Override
+	public TransactionReader openReader(boolean learnItems) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		return new Reader(file, 0, file.length(), learnItems);
+	}
+
+	/**
+	 * Open a reader of the lines which start in the byte range [start, end) of the file.
+	 * </br>Readers of different ranges can run concurrently if learnItems = false,
+	 * or if each range is read through its own scanner with its own dictionary.
+	 */
+	public TransactionReader openReader(long start, long end, boolean learnItems) throws IOException {
+		return new Reader(new RandomAccessFile(fileName, "r"), start, end, learnItems);
+	}
+
+	@Override
+	public TransactionSource[] partition(int count) throws IOException {
+		long[] boundaries = this.split(count);
+		TransactionSource[] parts = new TransactionSource[count];
+		for(int i=0; i<count; i++) parts[i] = new Range(boundaries[i], boundaries[i+1]);
+		return parts;
+	}
+
+	/**
+	 * Split the file into byte ranges of nearly equal size, every range begins at the start of a line.
+	 * @param range_count
+	 * @return boundaries of the ranges, range i is [boundaries[i], boundaries[i+1])
+	 * @throws IOException
+	 */
+	public long[] split(int range_count) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try{
+			long file_size = file.length();
+			long[] boundaries = new long[range_count+1];
+			boundaries[range_count] = file_size;
+			byte[] buffer = new byte[1 << 16];
+			for(int i=1; i<range_count; i++){
+				boundaries[i] = lineStart(file, Math.max(file_size/range_count*i, boundaries[i-1]), buffer);
+			}
+			return boundaries;
+		}finally{
+			file.close();
+		}
+	}
+
+	/**
+	 * @return the first position >= pos where a line starts, that is, the previous byte is '\n',
+	 * or the previous byte is '\r' and the byte is not '\n'
+	 */
+	private static long lineStart(RandomAccessFile file, long pos, byte[] buffer) throws IOException {
+		long file_size = file.length();
+		if(pos == 0 || pos >= file_size) return Math.min(pos, file_size);
+
+		file.seek(pos-1);
+		int previous = file.read(), current, length = 0, i = 0;
+		for(long position = pos; position < file_size; position++){
+			if(i == length){
+				length = file.read(buffer, 0, buffer.length);
+				i = 0;
+			}
+			current = buffer[i++];
+			if(previous == '\n' || (previous == '\r' && current != '\n')) return position;
+			previous = current;
+		}
+		return file_size;
+	}
+
+	/**
+	 * The lines which start in the byte range [start, end) of the file.
+	 */
+	private final class Range implements TransactionSource {
+		private final long start;
+		private final long end;
+
+		Range(long start, long end){
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public ItemDictionary getDictionary() {
+			return dictionary;
+		}
+
+		@Override
+		public TransactionReader openReader(boolean learnItems) throws IOException {
+			return MappedTransactionScanner.this.openReader(start, end, learnItems);
+		}
+
+		@Override
+		public TransactionSource[] partition(int count) throws IOException {
+			return new TransactionSource[]{this};
+		}
+	}
+
+	/**
+	 * Read lines which start in the byte range [start, end) of the file.
+	 */
+	private final class Reader implements TransactionReader {
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final long file_size;
+		private final long end;
+		private final boolean learnItems;
+
+		private long position;			// position in the file of the next line
+		private boolean skip_lf = false;	// the previous line ended with '\r', a following '\n' belongs to it
+		private MappedByteBuffer window;
+		private long window_start;
+
+		private byte[] line = new byte[1024];
+		private int[] items = new int[64];
+
+		Reader(RandomAccessFile file, long start, long end, boolean learnItems) throws IOException {
+			this.file = file;
+			this.channel = file.getChannel();
+			this.file_size = file.length();
+			this.position = start;
+			this.end = end;
+			this.learnItems = learnItems;
+			if(start < file_size) this.map(start, WINDOW_SIZE);
+		}
+
+		@Override
+		public int next() throws IOException {
+			if(skip_lf){
+				skip_lf = false;
+				if(position < file_size){
+					this.ensureMapped(position);
+					if(window.get((int)(position-window_start)) == '\n') position++;
+				}
+			}
+			if(position >= end) return -1;
+
+			return this.tokenize(this.readLine());
+		}
+
+		@Override
+		public int[] items() {
+			return items;
+		}
+
+		@Override
+		public void close() throws IOException {
+			window = null;
+			file.close();
+		}
+
+		/**
+		 * Copy the line at 'position' into 'line' and move 'position' behind the line terminator.
+		 * @return length of the line
+		 */
+		private int readLine() throws IOException {
+			this.ensureMapped(position);
+			int offset = (int)(position - window_start);
+			int limit = window.limit();
+			int i = offset;
+			byte b = 0;
+
+			while(true){
+				while(i < limit && (b = window.get(i)) != '\n' && b != '\r') i++;
+				if(i < limit || window_start + limit >= file_size) break;
+
+				// The line crosses the end of the window, map a new window from the start of the line
+				int scanned = i - offset;
+				this.map(position, Math.max(WINDOW_SIZE, scanned << 1));
+				offset = 0;
+				i = scanned;
+				limit = window.limit();
+			}
+
+			int length = i - offset;
+			if(length > line.length) line = new byte[Math.max(length, line.length << 1)];
+			window.position(offset);
+			window.get(line, 0, length);
+
+			if(i < limit){
+				position += length + 1;		// Skip the terminator
+				skip_lf = (b == '\r');
+			}else position += length;		// The last line without terminator
+
+			return length;
+		}
+
+		/**
+		 * Split the line in the same way of String.split(" ") and translate items to their ids.
+		 * @return number of item ids in 'items'
+		 */
+		private int tokenize(int length){
+			byte[] line = this.line;
+			ItemDictionary dictionary = MappedTransactionScanner.this.dictionary;
+
+			// Trailing empty items are dropped. But an empty line is still an empty item
+			int stop = length;
+			while(stop > 0 && line[stop-1] == ' ') stop--;
+			if(stop == 0 && length > 0) return 0;
+
+			int count = 0, start = 0, id;
+			for(int i=0; i<=stop; i++){
+				if(i < stop && line[i] != ' ') continue;
+
+				if(learnItems) id = dictionary.getOrAdd(line, start, i);
+				else id = dictionary.get(line, start, i);
+				start = i + 1;
+
+				if(id < 0) continue;	// Unknown item
+				if(count == items.length) items = Arrays.copyOf(items, count << 1);
+				items[count] = id;
+				count++;
+			}
+			return count;
+		}
+
+		private void ensureMapped(long pos) throws IOException {
+			if(window == null || pos < window_start || pos >= window_start + window.limit()) this.map(pos, WINDOW_SIZE);
+		}
+
+		private void map(long pos, long size) throws IOException {
+			size = Math.min(Math.min(size, Integer.MAX_VALUE), file_size - pos);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+			window_start = pos;
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package dfism.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A TransactionSource keeping an int-encoded copy of transactions, so a dataset can be read from disk only once.
+ * </br>Transactions are added in the first pass as item ids of the dictionary of the original source.
+ * They are held in chunks of int arrays (length, id, id, ..., length, id, ...) until the memory budget is used up,
+ * the remaining transactions are spilled in varint encoding to a temporary file.
+ */
+public class TransactionCache implements TransactionSource {
+	private static final int CHUNK_SIZE = 1 << 20;	// ints per chunk, 4 MB
+
+	private ItemDictionary dictionary;
+	private int[] spill_mapping = null;	// translation of item ids in the spill file, null for no translation
+	private final long max_chunk_count;
+
+	private List<int[]> chunks = new ArrayList<int[]>();
+	private int[] chunk;
+	private int chunk_size = 0;		// used ints in the last chunk
+
+	private File spill_file = null;
+	private DataOutputStream spill_output = null;
+	private int transaction_count = 0;
+	private int spill_count = 0;		// transactions in the spill file
+
+	/**
+	 * @param dictionary the dictionary of item ids which are added to the cache
+	 * @param memory_budget maximum bytes held in memory, the remaining transactions are spilled to a temporary file
+	 */
+	public TransactionCache(ItemDictionary dictionary, long memory_budget){
+		this.dictionary = dictionary;
+		this.max_chunk_count = Math.max(1, memory_budget/(CHUNK_SIZE*4L));
+	}
+
+	@Override
+	public ItemDictionary getDictionary() {
+		return dictionary;
+	}
+
+	public int transactionCount(){
+		return transaction_count;
+	}
+
+	/**
+	 * @return true if a part of the transactions had to be spilled to disk
+	 */
+	public boolean isSpilled(){
+		return spill_file != null;
+	}
+
+	/**
+	 * Append a transaction to the cache
+	 * @param items item ids of the transaction
+	 * @param length number of item ids
+	 * @throws IOException
+	 */
+	public void add(int[] items, int length) throws IOException{
+		transaction_count++;
+		if(spill_output == null){
+			int need = length + 1;
+			if(chunk == null || chunk_size + need > chunk.length){
+				if(chunks.size() >= max_chunk_count){
+					this.openSpillFile();
+					this.spill(items, length);
+					return;
+				}
+				if(chunk != null && chunk_size < chunk.length) chunk[chunk_size] = -1;	// Mark the end of the sealed chunk
+				chunk = new int[Math.max(CHUNK_SIZE, need)];
+				chunks.add(chunk);
+				chunk_size = 0;
+			}
+			chunk[chunk_size] = length;
+			System.arraycopy(items, 0, chunk, chunk_size+1, length);
+			chunk_size += need;
+		}else this.spill(items, length);
+	}
+
+	/**
+	 * Call this function after the last transaction is added.
+	 * @throws IOException
+	 */
+	public void finish() throws IOException{
+		if(spill_output != null){
+			spill_output.close();
+			spill_output = null;
+		}
+	}
+
+	/**
+	 * Release the memory and the temporary file
+	 */
+	public void free(){
+		chunks = null;
+		chunk = null;
+		if(spill_file != null) spill_file.delete();
+	}
+
+	/**
+	 * Translate the cached item ids to the ids of another dictionary, after the transactions are added.
+	 * </br>Transactions in memory are translated immediately, the spilled transactions when they are read.
+	 * @param dictionary the new dictionary
+	 * @param mapping mapping from the current ids to the ids of the new dictionary
+	 */
+	public void translate(ItemDictionary dictionary, int[] mapping){
+		int used, length;
+		for(int[] chunk : chunks){
+			used = (chunk == this.chunk) ? chunk_size : chunk.length;
+			for(int i=0; i<used && chunk[i] >= 0; i += length + 1){
+				length = chunk[i];
+				for(int j=i+1; j<=i+length; j++) chunk[j] = mapping[chunk[j]];
+			}
+		}
+		if(spill_file != null){
+			if(spill_mapping != null){
+				int[] composed = new int[spill_mapping.length];
+				for(int id=0; id<composed.length; id++) composed[id] = mapping[spill_mapping[id]];
+				mapping = composed;
+			}
+			spill_mapping = mapping;
+		}
+		this.dictionary = dictionary;
+	}
+
+	@Override
+	public TransactionReader openReader(boolean learnItems) throws IOException {
+		return new Reader(0, chunks.size(), true);
+	}
+
+	/**
+	 * Parts are runs of consecutive chunks in memory, the spilled transactions are one more part.
+	 */
+	@Override
+	public TransactionSource[] partition(int count) throws IOException {
+		int chunk_count = chunks.size();
+		int memory_parts = Math.max(1, Math.min(count, chunk_count));
+		TransactionSource[] parts = new TransactionSource[spill_file == null ? memory_parts : memory_parts+1];
+		for(int i=0; i<memory_parts; i++){
+			parts[i] = new Part(chunk_count*i/memory_parts, chunk_count*(i+1)/memory_parts, false);
+		}
+		if(spill_file != null) parts[memory_parts] = new Part(chunk_count, chunk_count, true);
+		return parts;
+	}
+
+	private void openSpillFile() throws IOException{
+		spill_file = File.createTempFile("dfism_transactions", ".cache");
+		spill_file.deleteOnExit();
+		spill_output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spill_file), 1 << 16));
+	}
+
+	private void spill(int[] items, int length) throws IOException{
+		spill_count++;
+		writeVarInt(spill_output, length);
+		for(int i=0; i<length; i++) writeVarInt(spill_output, items[i]);
+	}
+
+	/**
+	 * @return number of written bytes
+	 */
+	static int writeVarInt(DataOutputStream output, int value) throws IOException{
+		int bytes = 1;
+		while((value & ~0x7F) != 0){
+			output.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+			bytes++;
+		}
+		output.write(value);
+		return bytes;
+	}
+
+	static int readVarInt(DataInputStream input) throws IOException{
+		int b = input.read();
+		if(b < 0) throw new EOFException();
+		int value = b & 0x7F, shift = 7;
+		while((b & 0x80) != 0){
+			b = input.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		return value;
+	}
+
+	/**
+	 * Transactions of the chunks [first_chunk, end_chunk) in memory, and of the spill file if 'read_spill'.
+	 */
+	private final class Part implements TransactionSource {
+		private final int first_chunk;
+		private final int end_chunk;
+		private final boolean read_spill;
+
+		Part(int first_chunk, int end_chunk, boolean read_spill){
+			this.first_chunk = first_chunk;
+			this.end_chunk = end_chunk;
+			this.read_spill = read_spill;
+		}
+
+		@Override
+		public ItemDictionary getDictionary() {
+			return dictionary;
+		}
+
+		@Override
+		public TransactionReader openReader(boolean learnItems) throws IOException {
+			return new Reader(first_chunk, end_chunk, read_spill);
+		}
+
+		@Override
+		public TransactionSource[] partition(int count) throws IOException {
+			return new TransactionSource[]{this};
+		}
+	}
+
+	private final class Reader implements TransactionReader {
+		private int chunk_index;
+		private final int end_chunk;
+		private int offset = 0;
+		private int spill_remaining;		// transactions left in the spill file
+		private DataInputStream spill_input = null;
+		private int[] items = new int[64];
+
+		Reader(int first_chunk, int end_chunk, boolean read_spill){
+			this.chunk_index = first_chunk;
+			this.end_chunk = end_chunk;
+			this.spill_remaining = read_spill ? spill_count : 0;
+		}
+
+		@Override
+		public int next() throws IOException {
+			// Transactions in memory
+			while(chunk_index < end_chunk){
+				int[] chunk = chunks.get(chunk_index);
+				int used = (chunk == TransactionCache.this.chunk) ? chunk_size : chunk.length;
+				if(offset < used && chunk[offset] >= 0){
+					int length = chunk[offset];
+					if(length > items.length) items = new int[Math.max(length, items.length << 1)];
+					System.arraycopy(chunk, offset+1, items, 0, length);
+					offset += length + 1;
+					return length;
+				}
+				chunk_index++;
+				offset = 0;
+			}
+
+			// Transactions in the spill file
+			if(spill_remaining == 0) return -1;
+			spill_remaining--;
+			if(spill_input == null){
+				spill_input = new DataInputStream(new BufferedInputStream(new FileInputStream(spill_file), 1 << 16));
+			}
+			int length = readVarInt(spill_input);
+			if(length > items.length) items = new int[Math.max(length, items.length << 1)];
+			for(int i=0; i<length; i++) items[i] = readVarInt(spill_input);
+			if(spill_mapping != null) for(int i=0; i<length; i++) items[i] = spill_mapping[items[i]];
+			return length;
+		}
+
+		@Override
+		public int[] items() {
+			return items;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if(spill_input != null) spill_input.close();
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package dfism.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A forward-only cursor over the transactions of a TransactionSource.
+ */
+public interface TransactionReader extends Closeable {
+	
+	/**
+	 * Move to the next transaction.
+	 * @return the number of item ids of the transaction, available in items(); -1 if there is no more transaction
+	 * @throws IOException
+	 */
+	public int next() throws IOException;
+	
+	/**
+	 * @return the item ids of the current transaction, valid up to the length returned by next().
+	 * </br>The array is reused by the reader, so it is overwritten by the next call of next().
+	 */
+	public int[] items();
+}
@@ -0,0 +1,34 @@
+package dfism.io;
+
+import java.io.IOException;
+
+/**
+ * A source of transactions for the mining algorithms. Items of the transactions are delivered as integer ids
+ * of an ItemDictionary owned by the source, so the passes over the data do not need to create item Strings.
+ * </br>Each call to openReader() starts a new pass over all transactions of the source.
+ */
+public interface TransactionSource {
+	
+	/**
+	 * @return the dictionary translating item ids of this source to item names and vice versa
+	 */
+	public ItemDictionary getDictionary();
+	
+	/**
+	 * Start a new pass over the transactions.
+	 * @param learnItems true: unknown items are added to the dictionary (the first pass);
+	 * </br>false: unknown items are skipped, the dictionary is only read, so readers can be used concurrently.
+	 * @return a reader positioned before the first transaction
+	 * @throws IOException
+	 */
+	public TransactionReader openReader(boolean learnItems) throws IOException;
+	
+	/**
+	 * Split the source into disjoint parts, together the parts hold every transaction once.
+	 * </br>The parts share the dictionary of this source, so they are read concurrently with learnItems = false.
+	 * @param count the desired number of parts, a source may return fewer parts
+	 * @return the parts
+	 * @throws IOException
+	 */
+	public TransactionSource[] partition(int count) throws IOException;
+}
@@ -1,26 +1,23 @@
 package dfism.threads;
 
-import java.util.Map;
-
 import dfism.commons.IntHolder;
+import dfism.commons.collections.ItemsetIntMap;
+import dfism.commons.collections.ItemsetObjectMap;
 import dfism.fpo.FPONode;
 import dfism.fpo.FPOTree;
 import dfism.fpo.FPSubset;
 
 public class FPOTreeBuildingThread extends Thread{
-	private Map<String, FPSubset> hFrequentPatterns;
-	private String[] frequent_2itemsets;
+	private ItemsetObjectMap<FPSubset> hFrequent2Itemsets;
 	private FPONode[] fpoNodeList_l2;
 	private IntHolder globalIndex;
 	private int id;
 	
-	public FPOTreeBuildingThread(Map<String, FPSubset> hFrequentPatterns,
-								String[] frequent_2itemsets,
+	public FPOTreeBuildingThread(ItemsetObjectMap<FPSubset> hFrequent2Itemsets,
 								FPONode[] fpoNodeList_l2,
 								IntHolder globalIndex,
 								int id){
-		this.hFrequentPatterns = hFrequentPatterns;
-		this.frequent_2itemsets = frequent_2itemsets;
+		this.hFrequent2Itemsets = hFrequent2Itemsets;
 		this.fpoNodeList_l2 = fpoNodeList_l2;
 		this.globalIndex = globalIndex;
 		this.id = id;
@@ -32,34 +29,24 @@ public class FPOTreeBuildingThread extends Thread{
 		long start_time = System.currentTimeMillis();
 		
 		FPONode subNode;
-		String i1i2;
-		int count, start, end;
+		int index;
+		ItemsetIntMap fPatterns;
 		int[] codes = new int[25];
 		
 		while(true){
 			synchronized(globalIndex){
-				if(globalIndex.value >= frequent_2itemsets.length) break;
-				i1i2 = frequent_2itemsets[globalIndex.value];
-				subNode = fpoNodeList_l2[globalIndex.value];
+				if(globalIndex.value >= fpoNodeList_l2.length) break;
+				index = globalIndex.value;
+				subNode = fpoNodeList_l2[index];
 				globalIndex.value++;
 			}
 			
-			/* Insert all the k-itemsets (k>2) which share the same 2-itemset i1i2 as their prefix
+			/* Insert all the k-itemsets (k>2) which share the same 2-itemset of the node as their prefix
 			 * NOTE: the prefix was omitted */
-			for(String pattern : this.hFrequentPatterns.get(i1i2).fPatterns.keySet()){
-				start = 0;
-				
-				// Parse item by item
-				count = 0;
-	            while ((end = pattern.indexOf(' ', start)) > 0) {
-	                codes[count] = Integer.parseInt(pattern.substring(start, end));
-	                start = end + 1;
-	                count++;
-	            }
-	            // Get the last item
-	            codes[count] = Integer.parseInt(pattern.substring(start));
-	            count++;	// The value of 'count' is now the count of codes
-				FPOTree.insertFrequentPattern(codes, count, subNode);
+			fPatterns = this.hFrequent2Itemsets.value(index).fPatterns;
+			for(int entry=0; entry<fPatterns.size(); entry++){
+				if(fPatterns.keyLength(entry) > codes.length) codes = new int[fPatterns.keyLength(entry)];
+				FPOTree.insertFrequentPattern(codes, fPatterns.getKey(entry, codes), subNode);
 			}
 		}
 		
@@ -1,24 +1,30 @@
 package dfism.threads;
 
-import java.util.Map;
+import java.util.Arrays;
 
 import dfism.commons.IntHolder;
+import dfism.commons.collections.ItemsetIntMap;
 import dfism.fpo.FISMAlgorithm;
 import dfism.fpo.FPONode;
+import dfism.fpo.FPOTree;
 import dfism.fpo.FPSubset;
 
 public class UpdateSupportCountThread extends Thread{
 	private FPONode[] nodes_arr;
 	private FISMAlgorithm fism_alg;
+	private FPONode local_root;	// root of the local FPO tree with support counts, null: they are in hFrequentPatterns
 	private IntHolder globalIndex;
+	private int[] codes = new int[16];	// codes of the itemset of the node being processed and of its ancestors
 	private int id;
 	
 	public UpdateSupportCountThread(FPONode[] nodes_arr,
 								FISMAlgorithm fism_alg,
+								FPONode local_root,
 								IntHolder globalIndex,
 								int id){
 		this.nodes_arr = nodes_arr;
 		this.fism_alg = fism_alg;
+		this.local_root = local_root;
 		this.globalIndex = globalIndex;
 		this.id = id;
 		this.setPriority(Thread.MAX_PRIORITY);
@@ -29,7 +35,6 @@ public class UpdateSupportCountThread extends Thread{
 		
 		StringBuilder sb = new StringBuilder();
 		FPONode node_l2;
-		String[] prefix_codes = new String[2];
 		
 		while(true){
 			synchronized(globalIndex){
@@ -38,24 +43,34 @@ public class UpdateSupportCountThread extends Thread{
 				globalIndex.value++;
 			}
 			
-			// Construct prefix_codes.
-			prefix_codes[0] = String.valueOf(node_l2.parent.code);
-			prefix_codes[1] = String.valueOf(node_l2.code);
+			// Construct the prefix codes.
+			codes[0] = node_l2.parent.code;
+			codes[1] = node_l2.code;
+			
+			if(local_root != null){
+				// The local frequent itemsets of the subspace are under the node of the 2-itemset in the local tree
+				FPONode local_l2 = FPOTree.findChild(FPOTree.findChild(local_root, codes[0]), codes[1]);
+				for(FPONode node_l3 : node_l2.children){
+					if(local_l2 != null) this.update_supportCount_recursive(local_l2, node_l3, 2, fism_alg);
+					else this.update_supportCount_recursive(node_l3, 2, fism_alg);
+				}
+				continue;
+			}
 			
 			// If it is not frequent, the corresponding 2-itemset has not yet been in fism_alg.hFrequentPatterns
 			sb.setLength(0);
 			FPSubset fpSubset = fism_alg.hFrequentPatterns.get(
-									sb.append(prefix_codes[0]).append(' ').append(prefix_codes[1]).toString());
+									sb.append(codes[0]).append(' ').append(codes[1]).toString());
 			
 			if(fpSubset != null){
 				// Update recursively support counts for nodes at levels >= 3
 				for(FPONode node_l3 : node_l2.children){
-					this.update_supportCount_recursive(fpSubset.fPatterns, node_l3, prefix_codes, fism_alg);
+					this.update_supportCount_recursive(fpSubset.fPatterns, node_l3, 2, fism_alg);
 				}
 			}else{
 				// Update recursively support counts for nodes at levels >= 3
 				for(FPONode node_l3 : node_l2.children){
-					this.update_supportCount_recursive(node_l3, prefix_codes, fism_alg);
+					this.update_supportCount_recursive(node_l3, 2, fism_alg);
 				}
 			}
 		}
@@ -73,40 +88,65 @@ public class UpdateSupportCountThread extends Thread{
 	 * @param node	the node need to be determined its support count
 	 * @param fPatterns the sub space of frequent itemsets that share the same 2-itemsets as their prefixes
 	 * @param node
-	 * @param prefix_codes
+	 * @param prefix_length the codes of the itemset of the parent node are codes[0 .. prefix_length)
 	 * @param fism_alg
 	 */
-	private void update_supportCount_recursive(Map<String, Integer> fPatterns, 
+	private void update_supportCount_recursive(ItemsetIntMap fPatterns, 
 												FPONode node,
-												String[] prefix_codes, 
+												int prefix_length, 
 												FISMAlgorithm fism_alg){
 		// If local data set does not include node.code (its support = 0), 
 		// the itemsets containing this node.code do not exist also.
 		if( fism_alg.itemCodesMaptoFrequencies.get(node.code) == 0) return;
 		
 		// Prepare the code array of the itemset corresponding to the node
-		String[] codes = new String[prefix_codes.length+1];
-		System.arraycopy(prefix_codes, 0, codes, 0, prefix_codes.length);
-		codes[prefix_codes.length] = String.valueOf(node.code);		
+		int length = this.appendCode(prefix_length, node.code);
 		
-		// Calculate support count of the itemset corresponding to the node.
-		{
-			// Prepare str_2items and str_itemset
-			StringBuilder sb = new StringBuilder(100);
-			sb.append(codes[2]);
-			for(int i=3; i<codes.length; i++) sb.append(' ').append(codes[i]);
-			
-			Integer support_count = fPatterns.get(sb.toString());
-			if(support_count != null) node.support = support_count;
-			else {
-				node.support = fism_alg.calculate_supportCount_kItemset(codes);
-			}
-		} // Free local variables to heap when being out of this scope
+		// Calculate support count of the itemset corresponding to the node, the 2-itemset prefix is omitted in fPatterns
+		int support_count = fPatterns.get(codes, 2, length-2);
+		if(support_count != fPatterns.noEntryValue()) node.support = support_count;
+		else {
+			node.support = fism_alg.calculate_supportCount_kItemset(codes, length);
+		}
 		
 		// Call recursively for all its child nodes if it has. 
 		if(node.children != null){
 			for(FPONode childNode : node.children) 
-				this.update_supportCount_recursive(fPatterns, childNode, codes, fism_alg);
+				this.update_supportCount_recursive(fPatterns, childNode, length, fism_alg);
+		}
+	}
+	
+	/**
+	 * Calculate and update support count for the itemset corresponding to the node, unless it is a local frequent
+	 * itemset in the local FPO tree.
+	 * </br>All super itemsets of this itemset are also processed in the same way recursively.
+	 * @param local_parent the node of the itemset of the parent node in the local FPO tree
+	 * @param node	the node need to be determined its support count
+	 * @param prefix_length the codes of the itemset of the parent node are codes[0 .. prefix_length)
+	 * @param fism_alg
+	 */
+	private void update_supportCount_recursive(FPONode local_parent,
+												FPONode node,
+												int prefix_length,
+												FISMAlgorithm fism_alg){
+		// If local data set does not include node.code (its support = 0), 
+		// the itemsets containing this node.code do not exist also.
+		if( fism_alg.itemCodesMaptoFrequencies.get(node.code) == 0) return;
+		
+		// Prepare the code array of the itemset corresponding to the node
+		int length = this.appendCode(prefix_length, node.code);
+		
+		FPONode local_node = FPOTree.findChild(local_parent, node.code);
+		if(local_node != null) node.support = local_node.support;
+		else node.support = fism_alg.calculate_supportCount_kItemset(codes, length);
+		
+		// Call recursively for all its child nodes if it has, the supersets of a local infrequent itemset are not
+		// in the local tree either
+		if(node.children != null){
+			for(FPONode childNode : node.children){
+				if(local_node != null) this.update_supportCount_recursive(local_node, childNode, length, fism_alg);
+				else this.update_supportCount_recursive(childNode, length, fism_alg);
+			}
 		}
 	}
 	
@@ -114,28 +154,36 @@ public class UpdateSupportCountThread extends Thread{
 	 * Calculate and update support count for the itemset corresponding to the node. 
 	 * </br>All super itemsets of this itemset are also processed in the same way recursively.
 	 * @param node	the node need to be determined its support count
-	 * @param prefix_codes
+	 * @param prefix_length the codes of the itemset of the parent node are codes[0 .. prefix_length)
 	 * @param fism_alg
 	 */
 	private void update_supportCount_recursive(FPONode node,
-												String[] prefix_codes,
+												int prefix_length,
 												FISMAlgorithm fism_alg){
 		// If local data set does not include node.code (its support = 0), 
 		// the itemsets containing this node.code do not exist also.
 		if( fism_alg.itemCodesMaptoFrequencies.get(node.code) == 0) return;
 		
 		// Prepare the code array of the itemset corresponding to the node
-		String[] codes = new String[prefix_codes.length+1];
-		System.arraycopy(prefix_codes, 0, codes, 0, prefix_codes.length);
-		codes[prefix_codes.length] = String.valueOf(node.code);		
+		int length = this.appendCode(prefix_length, node.code);
 		
 		// Calculate support count of the itemset corresponding to the node.
-		node.support = fism_alg.calculate_supportCount_kItemset(codes);
+		node.support = fism_alg.calculate_supportCount_kItemset(codes, length);
 		
 		// Call recursively for all its child nodes if it has. 
 		if(node.children != null){
 			for(FPONode childNode : node.children) 
-				this.update_supportCount_recursive(childNode, codes, fism_alg);
+				this.update_supportCount_recursive(childNode, length, fism_alg);
 		}
 	}
+	
+	/**
+	 * Put 'code' after the codes of the parent itemset, the codes of the ancestors stay in place for the siblings
+	 * @return the number of codes of the itemset
+	 */
+	private int appendCode(int prefix_length, int code){
+		if(prefix_length == codes.length) codes = Arrays.copyOf(codes, prefix_length << 1);
+		codes[prefix_length] = code;
+		return prefix_length+1;
+	}
 }
\ No newline at end of file
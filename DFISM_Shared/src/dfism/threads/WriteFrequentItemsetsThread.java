@@ -98,8 +98,11 @@ public class WriteFrequentItemsetsThread extends Thread{
 		if(node.support < this.support_threshold) return;
 		sb.setLength(0);
 		String itemset = sb.append(sub_itemset).append(' ').append(index_item[node.code]).toString();
-		output.write(sb.append(':').append(node.support).append("\n").toString());
-		this.node_count++;
+		// Nodes of itemsets which are not closed are marked by FPOTree.mark_closed_itemsets()
+		if(node.closed){
+			output.write(sb.append(':').append(node.support).append("\n").toString());
+			this.node_count++;
+		}
 		
 		if(node.children != null){
 			for(FPONode child_node : node.children){
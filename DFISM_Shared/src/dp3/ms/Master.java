@@ -278,8 +278,10 @@ public class Master {
 			String[] parameter_array = new String[input_filename_list.size()];
 			int index=0;
 			for(String filename : input_filename_list){
-				parameter_array[index] = sb.append(mining_mode).append(' ').append(filename).append(' ')
-						.append(Options.support_threshold).append(' ').append(Options.part_count).toString();
+				sb.append(mining_mode).append(' ').append(filename).append(' ')
+						.append(Options.support_threshold).append(' ').append(Options.part_count);
+				if(!Options.engine.isEmpty()) sb.append(' ').append(Options.engine);
+				parameter_array[index] = sb.toString();
 				index++;
 				sb.setLength(0);
 			}
@@ -287,6 +289,7 @@ public class Master {
 		}else{
 			sb.append(mining_mode).append(' ').append(Options.filter_filename).append(' ')
 					.append(Options.support_threshold).append(' ').append(Options.part_count);
+			if(!Options.engine.isEmpty()) sb.append(' ').append(Options.engine);
 			return new String[]{sb.toString()};
 		}
 	}
@@ -331,16 +334,12 @@ public class Master {
 		System.out.println("Number of frequent 2-itemsets: " + alg.hFrequentPatterns.size());
 
 		// Freeing up memory by clearing the PPC tree, as in DP3
-		alg.root.children.clear();
-		alg.root.children = null;
-		alg.root = null;
+		alg.ppcTree = null;
 		System.out.println("GC time in (ms): " + GarbageCollector.collectMemory());
 
 		// Generating nodelists for each frequent 2-itemset
-		String[] frequent_2itemsets = new String[alg.hFrequentPatterns.size()];
-		alg.hFrequentPatterns.keySet().toArray(frequent_2itemsets);
 		System.out.println("=> Time of generating node list for frequent 2-itemsets (ms): " +
-				alg.create_nodelist_for_frequent_2itemsets(frequent_2itemsets));
+				alg.create_nodelist_for_frequent_2itemsets(alg.hFrequent2Itemsets));
 
 		// Memory check
 		memoryLogger.checkMemory();
@@ -4,6 +4,7 @@ class Options {
 	public static String filter_filename = "";
 	public static double support_threshold = -1;
 	public static int part_count = 1;
+	public static String engine = "";
   
 	public static boolean parse(String args[]) {
 		if (args.length % 2 != 0 && args.length < 4) {
@@ -19,6 +20,8 @@ class Options {
 					support_threshold = Double.parseDouble(args[i + 1]);
 				} else if (args[i].equals("-pc") || args[i].equals("--part_count")) {
 					part_count = Integer.parseInt(args[i + 1]);
+				} else if (args[i].equals("-en") || args[i].equals("--engine")) {
+					engine = args[i + 1];
 				} else if (args[i].equals("-h") || args[i].equals("--help")) {
 					printHelp();
 				}
@@ -37,7 +40,8 @@ class Options {
 	public static String getString() {
 		return "Mining parameters: [filter_filename=" + filter_filename + 
 				", support_threshold=" + support_threshold + 
-				", part_count=" + part_count + "]";
+				", part_count=" + part_count + 
+				", engine=" + engine + "]";
 	}
   
 	public static void printHelp() {
@@ -55,6 +59,10 @@ class Options {
 	    System.out.println("\t--part_count (-pc) Part count, Integer >= 1, is OPTIONAL");
 	    System.out.println("\t\tThe number of parts of global potential 2-itemsets");
 	    
+	    System.out.println("\t--engine (-en) Mining engine, nlist or diffset, is OPTIONAL");
+	    System.out.println("\t\tnlist: node lists, diffset: diffsets, faster on dense datasets. "
+	    		+ "Default: MINING_ENGINE in the configuration of each slave");
+	    
 	    System.out.println("\t--help (-h)");
 	    System.out.println("\t\tPrint out help");
 	    
@@ -20,6 +20,8 @@ import dfism.commons.GarbageCollector;
 import dfism.commons.MemoryLogger;
 import dfism.fpo.FPOTree;
 import dfism.fpo.FPSubset;
+import dfism.io.BinaryTransactionFile;
+import dp3.p3e.PPCTreeSnapshot;
 import dp3.p3e.PrePostPlusE;
 
 
@@ -80,7 +82,10 @@ public class Slave {
             MiningModes miningMode = MiningModes.valueOf(parameters[0].toUpperCase());
             switch(miningMode){
                 case FROM_SCRATCH:
-                    fromScratch_Mining(parameters);
+                case BUILDUP:
+                case LOADTREE:
+                case LOADTREE_BUILDUP:
+                    localMining(parameters, miningMode);
                     break;
                 case EXIT:
                     System.out.println("Exit.");
@@ -123,20 +128,47 @@ public class Slave {
         return ipAddress;
     }
 
-    private static void fromScratchMining(String[] parameters) throws IOException, InterruptedException {
+    /**
+     * FROM_SCRATCH: the dataset is read and the PPC tree is built
+     * </br>BUILDUP: as FROM_SCRATCH, then the PPC tree is stored as a snapshot in the incremental directory
+     * </br>LOADTREE: support counts and the PPC tree are loaded from the snapshot, the dataset is read only if there
+     * is no snapshot or the PPC tree does not fit the global frequent items
+     * </br>LOADTREE_BUILDUP: as LOADTREE, a PPC tree built from the dataset is stored as the new snapshot
+     */
+    private static void localMining(String[] parameters, MiningModes miningMode) throws IOException, InterruptedException {
         long start = System.currentTimeMillis();
 
         String dataFileName = parameters[1];
         threshold = Double.parseDouble(parameters[2]);
         PART_COUNT = Integer.parseInt(parameters[3]);
+        String engine = parameters.length > 4 ? parameters[4] : Config.mining_engine;
 
         System.out.println("Slave ID: " + ID);
         System.out.println("Data file name: " + dataFileName);
         System.out.println("Support threshold: " + threshold);
         System.out.println("Part count: " + PART_COUNT);
+        System.out.println("Mining mode: " + miningMode);
+        System.out.println("Mining engine: " + engine);
+        if (Config.is_closed_mining) System.out.println("Closed mining: " + (PART_COUNT < 2 ? "on" : "off, the job has several parts"));
         System.out.println("-----------------------------------------------------------------------------");
 
-        alg = new PrePostPlusE(Config.input_data_directory + dataFileName, threshold);
+        String dataFilePath = Config.input_data_directory + dataFileName;
+        if(Config.is_binary_cache) dataFilePath = BinaryTransactionFile.getCachedBinaryFile(dataFilePath, Config.binary_cache_directory);
+        alg = PrePostPlusE.newInstance(engine, dataFilePath, threshold);
+        if(Config.is_single_scan) alg.enableSingleScan(Config.single_scan_memory_budget*1048576L);
+        alg.setParallelBuild(Config.is_parallel_ppc_build);
+        alg.setBatchInsertion(Config.is_batch_insertion);
+        PrePostPlusE.setBlockSkippingIntersection(Config.is_block_skipping_intersection);
+        PrePostPlusE.setGallopingIntersectionRatio(Config.galloping_intersection_ratio);
+        PrePostPlusE.setCompressedNodelists(Config.is_compressed_nodelist);
+        PrePostPlusE.setBitmapDensityCutoff(Config.bitmap_density_cutoff);
+        alg.setTaskCostLog(Config.is_task_cost_log);
+        alg.setMemoryBoundedMining(Config.is_memory_bounded_mining);
+        if (miningMode != MiningModes.FROM_SCRATCH) {
+            alg.useSnapshot(PPCTreeSnapshot.getSnapshotFile(Config.input_data_directory + dataFileName, Config.incremental_directory),
+                            miningMode == MiningModes.LOADTREE || miningMode == MiningModes.LOADTREE_BUILDUP,
+                            miningMode == MiningModes.BUILDUP || miningMode == MiningModes.LOADTREE_BUILDUP);
+        }
 
         achieveGlobalFrequentItems();
 
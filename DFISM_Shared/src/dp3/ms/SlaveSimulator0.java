@@ -10,15 +10,17 @@ import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import dfism.commons.Config;
 import dfism.commons.Config.MiningModes;
 import dfism.commons.GarbageCollector;
+import dfism.commons.collections.ItemsetObjectMap;
 import dfism.fpo.FPOTree;
+import dfism.fpo.FPOTreeItemsetSink;
 import dfism.fpo.FPSubset;
+import dfism.io.BinaryTransactionFile;
+import dp3.p3e.PPCTreeSnapshot;
 import dp3.p3e.PrePostPlusE;
 
 public class SlaveSimulator0 {
@@ -33,6 +35,7 @@ public class SlaveSimulator0 {
 	private static double threshold;
 	private static int PART_COUNT = 1;
 	private static int ID;
+	private static boolean is_tree_sink;	// true: the local frequent itemsets are inserted into the local FPM tree
 	
 	private static final int PORT = 9000;
 	
@@ -59,7 +62,10 @@ public class SlaveSimulator0 {
 			MiningModes miningMode = MiningModes.valueOf(parameters[0].toUpperCase());
 			switch(miningMode){
 				case FROM_SCRATCH:
-					fromScratch_Mining(parameters);
+				case BUILDUP:
+				case LOADTREE:
+				case LOADTREE_BUILDUP:
+					local_Mining(parameters, miningMode);
 					break;
 				case EXIT:
 					System.out.println("Exit.");
@@ -84,20 +90,49 @@ public class SlaveSimulator0 {
         return ipAddress;
 	}
 	
-	private static void fromScratch_Mining(String[] parameters) throws IOException, InterruptedException{
+	/**
+	 * FROM_SCRATCH: the dataset is read and the PPC tree is built
+	 * </br>BUILDUP: as FROM_SCRATCH, then the PPC tree is stored as a snapshot in the incremental directory
+	 * </br>LOADTREE: support counts and the PPC tree are loaded from the snapshot, the dataset is read only if there
+	 * is no snapshot or the PPC tree does not fit the global frequent items
+	 * </br>LOADTREE_BUILDUP: as LOADTREE, a PPC tree built from the dataset is stored as the new snapshot
+	 */
+	private static void local_Mining(String[] parameters, MiningModes miningMode) throws IOException, InterruptedException{
 		long start = System.currentTimeMillis();
 		
 		String dataFileName = parameters[1];
 		threshold = Double.parseDouble(parameters[2]);
 		PART_COUNT = Integer.parseInt(parameters[3]);
+		String engine = parameters.length > 4 ? parameters[4] : Config.mining_engine;
 		
 		System.out.println("Slave ID: " + ID);
 		System.out.println("Data file name: " + dataFileName);
 		System.out.println("Support threshold: " + threshold);
 		System.out.println("Part count: " + PART_COUNT);
+		System.out.println("Mining mode: " + miningMode);
+		System.out.println("Mining engine: " + engine);
+		System.out.println("Frequent itemset sink: " + Config.frequent_itemset_sink);
+		if(Config.is_closed_mining) System.out.println("Closed mining: " + (PART_COUNT < 2 ? "on" : "off, the job has several parts"));
 		System.out.println("-----------------------------------------------------------------------------");
 		
-		alg = new PrePostPlusE(Config.input_data_directory+dataFileName, threshold);
+		String dataFilePath = Config.input_data_directory+dataFileName;
+		if(Config.is_binary_cache) dataFilePath = BinaryTransactionFile.getCachedBinaryFile(dataFilePath, Config.binary_cache_directory);
+		alg = PrePostPlusE.newInstance(engine, dataFilePath, threshold);
+		if(Config.is_single_scan) alg.enableSingleScan(Config.single_scan_memory_budget*1048576L);
+		alg.setParallelBuild(Config.is_parallel_ppc_build);
+		alg.setBatchInsertion(Config.is_batch_insertion);
+		PrePostPlusE.setBlockSkippingIntersection(Config.is_block_skipping_intersection);
+		PrePostPlusE.setGallopingIntersectionRatio(Config.galloping_intersection_ratio);
+		PrePostPlusE.setCompressedNodelists(Config.is_compressed_nodelist);
+		PrePostPlusE.setBitmapDensityCutoff(Config.bitmap_density_cutoff);
+		alg.setTaskCostLog(Config.is_task_cost_log);
+		alg.setMemoryBoundedMining(Config.is_memory_bounded_mining);
+		is_tree_sink = Config.frequent_itemset_sink.equalsIgnoreCase(FPOTreeItemsetSink.NAME);
+		if(miningMode != MiningModes.FROM_SCRATCH){
+			alg.useSnapshot(PPCTreeSnapshot.getSnapshotFile(Config.input_data_directory+dataFileName, Config.incremental_directory),
+							miningMode == MiningModes.LOADTREE || miningMode == MiningModes.LOADTREE_BUILDUP,
+							miningMode == MiningModes.BUILDUP || miningMode == MiningModes.LOADTREE_BUILDUP);
+		}
 		
 		achieve_globalFrequentItems();
 		
@@ -152,14 +187,17 @@ public class SlaveSimulator0 {
 	}
 	
 	private static void achieve_globalFrequentItemsets(String dataFileName) throws IOException, InterruptedException{
-		// Local mining
+		// Local mining, with the tree sink the local frequent itemsets are inserted into the FPM tree as they are discovered
+		FPOTree fpm_tree = new FPOTree();
+		FPOTreeItemsetSink sink = is_tree_sink ? new FPOTreeItemsetSink(fpm_tree) : null;
+		alg.setFrequentItemsetSink(sink);
 		System.out.println("=> Build the local PPC tree in (ms): " + alg.constructPPCTree());
 		System.out.println("=> Mine local frequent itemsets in (ms): " + alg.mining());
+		if(sink != null) sink.close();
 		
 		// Build FPMTree from local frequent itemsets
-		FPOTree fpm_tree = new FPOTree();
 		fpm_tree.build_from_1IS(alg.itemCodesMaptoFrequencies, alg.supportCountThreshold());
-		System.out.println("=> Time of building the local FPM tree in (ms): " + fpm_tree.build_from_kIS(alg.hFrequentPatterns, false));
+		if(!is_tree_sink) System.out.println("=> Time of building the local FPM tree in (ms): " + fpm_tree.build_from_kIS(alg.hFrequent2Itemsets, false));
 		
 		System.out.println("=> Time of counting all kinds of nodes in (ms): " + fpm_tree.count_nodes());
 		System.out.println("=> Time of sending the local FPM tree in (ms): " + fpm_tree.send_only_itemCode(dos));
@@ -169,14 +207,48 @@ public class SlaveSimulator0 {
 		System.out.println("\tInner node count: " + fpm_tree.getInnerNodeCount());
 		System.out.println("\tLeaf node count: " + fpm_tree.getLeafNodeCount());
 		
-		fpm_tree.free(); fpm_tree = new FPOTree();
+		// The local FPM tree of the tree sink has the support counts of the local frequent itemsets
+		FPOTree local_tree = null;
+		if(is_tree_sink) local_tree = fpm_tree;
+		else fpm_tree.free();
+		fpm_tree = new FPOTree();
 		System.out.println("GC time in (ms): " + GarbageCollector.collectMemory());
 		
 		System.out.println("=> Time of receiving the global FPM tree in (ms): " + fpm_tree.receive_only_itemCode(dis));
 		
-		System.out.println("=> Time of updating support counts in (ms): " + fpm_tree.update_supportCount(alg));
+		System.out.println("=> Time of updating support counts in (ms): " + fpm_tree.update_supportCount(alg, local_tree));
 		System.out.println("=> Time of sending the array of support counts in (ms): " + 
 													fpm_tree.send_supportCountArray_toMaster(dos));
+		if(local_tree != null) local_tree.free();
+		
+		// Closed mode: the first slave gets the global FPM tree back, with the global support counts
+		if(Config.is_closed_mining && ID == 0){
+			fpm_tree.free(); fpm_tree = null;
+			System.out.println("=> Time of writing the closed frequent itemsets in (ms): " + write_closedItemsets(dataFileName));
+		}
+	}
+	
+	/**
+	 * Receive the global FPM tree with the global support counts, accumulated and pruned by the master, mark the
+	 * itemsets which are not closed, then write the closed frequent itemsets. The closed itemsets of the local datasets
+	 * are not enough, see FPOTree.mark_closed_itemsets().
+	 * @param dataFileName
+	 * @return running time
+	 */
+	private static long write_closedItemsets(String dataFileName) throws IOException, InterruptedException{
+		long start = System.currentTimeMillis();
+		
+		FPOTree fpm_tree = new FPOTree();
+		System.out.println("=> Time of receiving the global FPM tree with global support counts in (ms): " + fpm_tree.receive(dis));
+		System.out.println("=> Time of marking the closed itemsets in (ms): " + fpm_tree.mark_closed_itemsets());
+		String[] index_item = alg.globalIndex_item.toArray(new String[alg.globalIndex_item.size()]);
+		String result_filename = Config.output_data_directory + dataFileName + "_closed";
+		System.out.println("=> Time of filtering and writing the closed itemsets in (ms): " +
+							fpm_tree.filter_write_frequentPatterns(index_item, result_filename, 0));
+		System.out.println("Closed frequent itemset count: " + fpm_tree.getNodeCount());
+		fpm_tree.free();
+		
+		return System.currentTimeMillis() - start;
 	}
 	
 	private static void achieve_globalFrequentItemsets_PARTS(String dataFileName) throws IOException, InterruptedException{
@@ -187,7 +259,7 @@ public class SlaveSimulator0 {
 		// Build FPMTree from local frequent 2-itemsets
 		FPOTree fpm_tree = new FPOTree();
 		System.out.println("=> Build FPM-Tree from local frequent 2-itemsets in (ms): " + 
-												fpm_tree.build_from_kIS(alg.hFrequentPatterns, true));
+												fpm_tree.build_from_kIS(alg.hFrequent2Itemsets, true));
 		fpm_tree.count_nodes();
 		
     	// Achieve the all global potential 2-itemsets 
@@ -201,34 +273,48 @@ public class SlaveSimulator0 {
 		System.out.println("------------------LOOP of Achieving Global Frequent Itemsets-----------------");
 		for(int i=0; i<PART_COUNT; i++) {
 			System.out.println("----------------------------------PART " + i + "-------------------------------------");
-			mine_frequentKItemsetsPART_buildAndSend_FPMTree(potential_2itemset_2D[i]);
+			FPOTree local_tree = new FPOTree();
+			mine_frequentKItemsetsPART_buildAndSend_FPMTree(potential_2itemset_2D[i], local_tree);
+			if(!is_tree_sink) {local_tree.free(); local_tree = null;}
 			System.out.println("GC time in (ms): " + GarbageCollector.collectMemory());
-			receive_update_send_globalFPMTree();
+			receive_update_send_globalFPMTree(local_tree);
 			System.out.println("GC time in (ms): " + GarbageCollector.collectMemory());
 		}
 	}
 	
-	private static long mine_frequentKItemsetsPART_buildAndSend_FPMTree(String[] potential_2itemsets) throws InterruptedException, IOException{
+	/**
+	 * @param potential_2itemsets
+	 * @param fpm_tree the local FPM tree of the part, empty
+	 * @return running time
+	 */
+	private static long mine_frequentKItemsetsPART_buildAndSend_FPMTree(String[] potential_2itemsets, FPOTree fpm_tree) throws InterruptedException, IOException{
 		long start = System.currentTimeMillis();
 		
-		Map<String, FPSubset> hFrequentPatterns_PART = new HashMap<String, FPSubset>(potential_2itemsets.length);
+		ItemsetObjectMap<FPSubset> hFrequentPatterns_PART = new ItemsetObjectMap<FPSubset>(potential_2itemsets.length);
+		FPOTreeItemsetSink sink = is_tree_sink ? new FPOTreeItemsetSink(fpm_tree) : null;
+		alg.setFrequentItemsetSink(sink);
 		System.out.println("=> Time of discovering subspaces of frequent k-itemsets in (ms): " +
 					alg.mining_frequent_kItemsets_PART(potential_2itemsets, hFrequentPatterns_PART));
-		FPOTree fpm_tree = new FPOTree();
-		System.out.println("=> Time of building the FPM tree in (ms): " + fpm_tree.build_from_kIS(hFrequentPatterns_PART, false));
+		if(sink != null) sink.close();
+		else System.out.println("=> Time of building the FPM tree in (ms): " + fpm_tree.build_from_kIS(hFrequentPatterns_PART, false));
 		System.out.println("=> Time of counting all kinds of nodes in (ms): " + fpm_tree.count_nodes());
 		System.out.println("=> Time of sending the FPM tree in (ms): " + fpm_tree.send_only_itemCode(dos));
 		
 		return System.currentTimeMillis() - start;
 	}
 	
-	private static long receive_update_send_globalFPMTree() throws InterruptedException, IOException{
+	/**
+	 * @param local_tree the local FPM tree of the part with the support counts of the tree sink, null: the map sink
+	 * @return running time
+	 */
+	private static long receive_update_send_globalFPMTree(FPOTree local_tree) throws InterruptedException, IOException{
 		long start = System.currentTimeMillis();
 		
 		FPOTree fpm_tree = new FPOTree();
 		System.out.println("=> Time of receiving the global FPM tree in (ms): " + fpm_tree.receive_only_itemCode(dis));
-		System.out.println("=> Time of updating support counts in (ms): " + fpm_tree.update_supportCount(alg));
+		System.out.println("=> Time of updating support counts in (ms): " + fpm_tree.update_supportCount(alg, local_tree));
 		System.out.println("=> Time of sending the array of support counts in (ms): " + fpm_tree.send_supportCountArray_toMaster(dos));
+		if(local_tree != null) local_tree.free();
 		alg.free(); 		// Revoke memory to used for other LOOPs
 		
 		return System.currentTimeMillis() - start;
@@ -0,0 +1,53 @@
+package dp3.p3e;
+
+import dfism.commons.IntHolder;
+
+/**
+ * Work on the level-1 branches of a PPC tree, branches are claimed one by one through 'branchIndex'.
+ * </br>If 'branch_offsets' is null, the thread counts the number of nodes of each branch into 'branch_sizes'.
+ * Otherwise it assigns pre&post-order codes to each branch, the codes of branch i start after 'branch_offsets[i]'
+ * nodes of the branches before it.
+ */
+class AssignPrePosOrderCodeThread extends Thread{
+	private PPCTree ppcTree;
+	private int[] level1_nodes;
+	private int[] branch_sizes;
+	private int[] branch_offsets;
+	private IntHolder branchIndex;
+	private int id;
+	
+	public AssignPrePosOrderCodeThread(PPCTree ppcTree, int[] level1_nodes, int[] branch_sizes, int[] branch_offsets,
+										IntHolder branchIndex, int id){
+		this.ppcTree = ppcTree;
+		this.level1_nodes = level1_nodes;
+		this.branch_sizes = branch_sizes;
+		this.branch_offsets = branch_offsets;
+		this.branchIndex = branchIndex;
+		this.id = id;
+		this.setPriority(Thread.MAX_PRIORITY);
+	}
+	
+	// Overwrite the run method
+	public void run(){
+		long start = System.currentTimeMillis();
+		
+		int branch;
+		while(true){
+			synchronized(branchIndex){
+				if(branchIndex.value >= level1_nodes.length) break;
+				branch = branchIndex.value;
+				branchIndex.value++;
+			}
+			
+			// The root has pre-order code 1, so branches start from pre-order code 2
+			if(branch_offsets == null) branch_sizes[branch] = ppcTree.subtreeSize(level1_nodes[branch]);
+			else ppcTree.assignPrePosOrderCode(level1_nodes[branch], branch_offsets[branch]+2, branch_offsets[branch]+1);
+		}
+		
+		// Just for testing
+		StringBuilder sb = new StringBuilder();
+		sb.append(this.getClass().getSimpleName()).append(' ').append(id).append(" finished work in ")
+		.append(System.currentTimeMillis()-start).append(" ms");
+		System.out.println(sb.toString());
+	}
+}
@@ -0,0 +1,69 @@
+package dp3.p3e;
+
+import java.io.IOException;
+
+import dfism.commons.IntHolder;
+import dfism.io.TransactionSource;
+
+/**
+ * Build a partial PPC tree from the parts of the dataset claimed one by one through 'partIndex'.
+ * The partial trees of all threads are merged afterwards by MergePPCTreeBranchThread.
+ */
+class BuildPartialPPCTreeThread extends Thread{
+	private TransactionSource[] parts;
+	private IntHolder partIndex;
+	private int[] itemId_globalIndex;
+	private PPCTree ppcTree;
+	private boolean is_batch_insertion;
+	private IOException exception = null;
+	private int id;
+	
+	public BuildPartialPPCTreeThread(TransactionSource[] parts, IntHolder partIndex,
+									int[] itemId_globalIndex, int item_count, boolean is_batch_insertion, int id){
+		this.parts = parts;
+		this.partIndex = partIndex;
+		this.itemId_globalIndex = itemId_globalIndex;
+		this.ppcTree = new PPCTree(item_count);
+		this.is_batch_insertion = is_batch_insertion;
+		this.id = id;
+		this.setPriority(Thread.MAX_PRIORITY);
+	}
+	
+	public PPCTree getPPCTree(){
+		return ppcTree;
+	}
+	
+	/**
+	 * @return the exception which stopped the thread, null if the thread finished normally
+	 */
+	public IOException getException(){
+		return exception;
+	}
+	
+	// Overwrite the run method
+	public void run(){
+		long start = System.currentTimeMillis();
+		
+		TransactionSource part;
+		try{
+			while(true){
+				synchronized(partIndex){
+					if(partIndex.value >= parts.length) break;
+					part = parts[partIndex.value];
+					partIndex.value++;
+				}
+				
+				if(is_batch_insertion) ppcTree.insertTransactionsInBatches(part.openReader(false), itemId_globalIndex);
+				else ppcTree.insertTransactions(part.openReader(false), itemId_globalIndex);
+			}
+		}catch(IOException e){
+			this.exception = e;
+		}
+		
+		// Just for testing
+		StringBuilder sb = new StringBuilder();
+		sb.append(this.getClass().getSimpleName()).append(' ').append(id).append(" finished work in ")
+		.append(System.currentTimeMillis()-start).append(" ms");
+		System.out.println(sb.toString());
+	}
+}
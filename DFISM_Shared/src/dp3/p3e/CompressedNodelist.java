@@ -0,0 +1,121 @@
+package dp3.p3e;
+
+/**
+ * A read-only node list kept in a compressed form, made by Nodelist.compact() when the compression is enabled.
+ * </br>Each node is three varints: the difference between its pre-code and the pre-code of the node before, its
+ * pos-code relative to its pre-code (zigzag encoded, it can be negative), and its support count.
+ * Small differences and counts take one byte instead of four.
+ * </br>The node list can only be read from the start to the end by a cursor, intersections decode it while they walk it.
+ * </br>The purpose is to reduce the memory of the node lists which are kept during the mining.
+ */
+class CompressedNodelist extends Nodelist {
+	private final byte[] data;
+	private final int size;
+	private final int support_count;
+
+	public CompressedNodelist(Nodelist nodelist){
+		super(true);
+		this.size = nodelist.size();
+
+		// First pass: the length of the encoding
+		int length = 0, last_pre = 0;
+		for(int i=0; i<size; i++){
+			int pre = nodelist.pre(i);
+			length += varintLength(pre - last_pre) + varintLength(zigzag(nodelist.pos(i) - pre))
+						+ varintLength(nodelist.count(i));
+			last_pre = pre;
+		}
+		this.support_count = nodelist.totalSupportCount();
+
+		// Second pass: the encoding
+		this.data = new byte[length];
+		int index = 0;
+		last_pre = 0;
+		for(int i=0; i<size; i++){
+			int pre = nodelist.pre(i);
+			index = writeVarint(data, index, pre - last_pre);
+			index = writeVarint(data, index, zigzag(nodelist.pos(i) - pre));
+			index = writeVarint(data, index, nodelist.count(i));
+			last_pre = pre;
+		}
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public int capacity(){
+		return size;
+	}
+
+	/**
+	 * @return the number of bytes of the encoding
+	 */
+	public int byteSize(){
+		return data.length;
+	}
+
+	public int totalSupportCount(){
+		return support_count;
+	}
+
+	public void shrink(){}
+
+	public Nodelist compact(){
+		return this;
+	}
+
+	NodeCursor cursor(){
+		return new CompressedNodeCursor(data);
+	}
+
+	private static int zigzag(int value){
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int varintLength(int value){
+		int length = 1;
+		while((value >>>= 7) != 0) length++;
+		return length;
+	}
+
+	private static int writeVarint(byte[] data, int index, int value){
+		while((value & ~0x7F) != 0){
+			data[index++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data[index++] = (byte)value;
+		return index;
+	}
+
+	/**
+	 * Decode the nodes one by one
+	 */
+	private static class CompressedNodeCursor extends NodeCursor {
+		private final byte[] data;
+		private int index = 0;
+
+		CompressedNodeCursor(byte[] data){
+			this.data = data;
+		}
+
+		boolean next(){
+			if(index == data.length) return false;
+			pre += readVarint();
+			int relative_pos = readVarint();
+			pos = pre + ((relative_pos >>> 1) ^ -(relative_pos & 1));
+			count = readVarint();
+			return true;
+		}
+
+		private int readVarint(){
+			byte b = data[index++];
+			int value = b & 0x7F;
+			for(int shift=7; b < 0; shift+=7){
+				b = data[index++];
+				value |= (b & 0x7F) << shift;
+			}
+			return value;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package dp3.p3e;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import dfism.commons.IntHolder;
+import dfism.io.ItemDictionary;
+import dfism.io.MappedTransactionScanner;
+import dfism.io.TransactionCache;
+import dfism.io.TransactionReader;
+
+/**
+ * Count support counts of items in byte ranges of a text dataset.
+ * </br>Each thread has its own item dictionary and counters, ranges are claimed one by one through 'rangeIndex'.
+ * The counts of all threads are merged after they finished.
+ */
+class CountItemSupportThread extends Thread{
+	private MappedTransactionScanner scanner;
+	private long[] boundaries;
+	private IntHolder rangeIndex;
+	private int id;
+
+	private int[] itemIdCounts = new int[1024];		// item id in the thread's dictionary -> support count
+	private int transaction_count = 0;
+	private TransactionCache cache = null;
+	private IOException exception = null;
+
+	/**
+	 * @param fileName
+	 * @param boundaries boundaries of line-aligned byte ranges, range i is [boundaries[i], boundaries[i+1])
+	 * @param rangeIndex
+	 * @param cache_memory_budget memory budget for the cached transactions of this thread, < 0: no cache
+	 * @param id
+	 */
+	public CountItemSupportThread(String fileName, long[] boundaries, IntHolder rangeIndex, long cache_memory_budget, int id){
+		ItemDictionary dictionary = new ItemDictionary();
+		this.scanner = new MappedTransactionScanner(fileName, dictionary);
+		this.boundaries = boundaries;
+		this.rangeIndex = rangeIndex;
+		if(cache_memory_budget >= 0) this.cache = new TransactionCache(dictionary, cache_memory_budget);
+		this.id = id;
+		this.setPriority(Thread.MAX_PRIORITY);
+	}
+
+	public ItemDictionary getDictionary(){
+		return scanner.getDictionary();
+	}
+
+	public int[] getItemIdCounts(){
+		return itemIdCounts;
+	}
+
+	public int getTransactionCount(){
+		return transaction_count;
+	}
+
+	public TransactionCache getCache(){
+		return cache;
+	}
+
+	/**
+	 * @return the exception which stopped the thread, null if the thread finished normally
+	 */
+	public IOException getException(){
+		return exception;
+	}
+
+	// Overwrite the run method
+	public void run(){
+		long start = System.currentTimeMillis();
+
+		int range, length, item_id;
+		int[] items, itemIdCounts = this.itemIdCounts;
+		try{
+			while(true){
+				synchronized(rangeIndex){
+					if(rangeIndex.value >= boundaries.length-1) break;
+					range = rangeIndex.value;
+					rangeIndex.value++;
+				}
+
+				TransactionReader input = scanner.openReader(boundaries[range], boundaries[range+1], true);
+				while((length = input.next()) >= 0){
+					transaction_count++;
+					items = input.items();
+					for(int i=0; i<length; i++){
+						item_id = items[i];
+						if(item_id >= itemIdCounts.length) itemIdCounts = Arrays.copyOf(itemIdCounts, Math.max(item_id+1, itemIdCounts.length << 1));
+						itemIdCounts[item_id]++;
+					}
+					if(cache != null) cache.add(items, length);
+				}
+				input.close();
+			}
+			if(cache != null) cache.finish();
+		}catch(IOException e){
+			this.exception = e;
+		}
+		this.itemIdCounts = itemIdCounts;
+
+		// Just for testing
+		StringBuilder sb = new StringBuilder();
+		sb.append(this.getClass().getSimpleName()).append(' ').append(id).append(" finished work in ")
+		.append(System.currentTimeMillis()-start).append(" ms");
+		System.out.println(sb.toString());
+	}
+}
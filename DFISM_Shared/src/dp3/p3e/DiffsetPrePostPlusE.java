@@ -0,0 +1,85 @@
+package dp3.p3e;
+
+import java.io.IOException;
+
+import dfism.io.TransactionSource;
+
+/**
+ * The diffset engine: PrePostPlusE where itemsets from 2-itemsets are represented by diffsets instead of node lists.
+ * </br>All itemsets of the subspace of a 2-itemset i1|i2 start with i1. The support counts are counted by the nodes of
+ * i1, as by the node lists: the support count of an itemset i1|P is the sum of the counts of the nodes of i1 having an
+ * ancestor of each item of P.
+ * <li>Diffset of i1|x: the nodes of i1 which have no ancestor of x. support(i1|x) = support(i1) - counts of the diffset
+ * <li>Diffset of P|x|y = diffset of P|y - diffset of P|x. support(P|x|y) = support(P|x) - counts of the diffset
+ * </br>A transaction which repeats an item has several nodes of the item on its path. The support counts of the frequent
+ * 2-itemsets are counted before, by pairs of nodes, so the support counts of their extensions start from
+ * support(i1) - counts of the diffset of i1|i2 instead.
+ * </br>On dense datasets the node lists hardly shrink as itemsets grow, while the diffsets become smaller and smaller.
+ * On sparse datasets, the node lists are smaller. The diffsets of frequent k-itemsets (k>2) are released as soon as their
+ * branch is done, as by setMemoryBoundedMining(true).
+ * </br>The output is the same as PrePostPlusE: frequent itemsets in hFrequentPatterns, and the support counts of
+ * infrequent itemsets are calculated by calculate_supportCount_kItemset().
+ */
+public class DiffsetPrePostPlusE extends PrePostPlusE {
+	public static final String ENGINE = "diffset";
+
+	public DiffsetPrePostPlusE(String fileName, double threshold) throws IOException {
+		super(fileName, threshold);
+	}
+
+	public DiffsetPrePostPlusE(TransactionSource source, double threshold) {
+		super(source, threshold);
+	}
+
+	@Override
+	protected boolean usesDiffsets(){
+		return true;
+	}
+
+	/**
+	 * The diffsets of frequent k-itemsets are not kept: the diffset of an itemset is not much smaller than the node
+	 * list of i1 when the itemset is not dense in the transactions of i1, so keeping them does not fit in memory.
+	 */
+	@Override
+	protected boolean isMemoryBoundedMining(){
+		return true;
+	}
+
+	/**
+	 * The same steps as PrePostPlusE.calculate_supportCount_kItemset(), with diffsets. Only the diffsets of the
+	 * frequent 2-itemsets are kept: the diffset of an infrequent itemset is almost the node list of codes[0], so the
+	 * diffsets of a loop are released as soon as the next loop calculated its own.
+	 * The support count of each prefix is calculated from the support count of the prefix before.
+	 */
+	@Override
+	public int calculate_supportCount_kItemset(int[] codes, int length) {
+		Nodelist[] diffsets = new Nodelist[length];	// diffsets[i]: diffset of prefix|codes[i] in the current loop
+		int[] key = {codes[0], 0};
+
+		// First loop, loop = 1: diffsets of 2-itemsets codes[0]|codes[i]
+		Nodelist nodelist1 = item_nodelist[codes[0]];
+		int support = nodelist1.totalSupportCount();	// support count of the prefix
+		for(int i=1; i<length; i++){
+			key[1] = codes[i];
+			NodelistSubset subset = this.get2ItemsetSubset(key);
+			if(subset != null) diffsets[i] = subset.nodelist;
+			else diffsets[i] = PrePostPlusUtility.create_diffset_from_2Nodelists(nodelist1, item_nodelist[codes[i]]);
+			if(diffsets[i].totalSupportCount() == support) return 0;
+		}
+
+		// Other loop, loop >= 2: the prefix is codes[0 .. loop-1], the itemsets are prefix|codes[i] from
+		// codes[0 .. loop-1] and codes[0 .. loop-2]|codes[i]
+		for(int loop=2; loop<length; loop++){
+			Nodelist diffset1 = diffsets[loop-1];
+			diffsets[loop-1] = null;	// Save memory
+			support -= diffset1.totalSupportCount();
+			for(int i=loop; i<length; i++){
+				diffsets[i] = PrePostPlusUtility.create_diffset_from_2Diffsets(diffset1, diffsets[i]);
+				if(diffsets[i].totalSupportCount() == support) return 0;
+			}
+		}
+
+		// Calculate itemset's support
+		return support - diffsets[length-1].totalSupportCount();
+	}
+}
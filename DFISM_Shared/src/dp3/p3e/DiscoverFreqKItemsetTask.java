@@ -0,0 +1,380 @@
+package dp3.p3e;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import dfism.commons.collections.IntList;
+import dfism.commons.collections.ItemsetObjectMap;
+import dfism.fpo.FrequentItemsetSink;
+
+/**
+ * Discover frequent k-itemsets (k>2) from a frequent 2-itemset i1i2 (i1 < i2), as a task of a ForkJoinPool.
+ * </br>A task discovers the subspace of i1i2, or a branch X of it: the itemsets X|P where P are candidate items after
+ * the last item of X. The branches X|cad_item which still have at least MIN_FORK_CANDIDATES candidate items are forked
+ * as new tasks, so idle threads steal them instead of waiting for the thread which works on a huge subspace.
+ * Smaller branches are discovered by the task itself.
+ * </br>The frequent itemsets are given to the sink as they are found, with the prefix i1i2. All tasks of a subspace put
+ * into the same 'localK_itemset_nodelist', under its lock. The node lists of X and of its siblings are passed to the
+ * tasks, so the map is not read.
+ * </br>Memory-bounded mining: the node lists are not put into 'localK_itemset_nodelist', they are only reachable from
+ * the branches on the recursion stack, which keep the node lists of their children. So the node lists in memory are
+ * bounded by depth * width of the branches instead of by the number of frequent itemsets.
+ * </br>Closed mode: instead of the frequent itemsets, the sink gets one candidate of a closed itemset for each
+ * discovered itemset X: X with all its equivalent items, see ClosedItemsetFilter.
+ */
+class DiscoverFreqKItemsetTask extends RecursiveAction{
+	private static final long serialVersionUID = 1L;
+	private static final int MIN_FORK_CANDIDATES = 8;
+	// Reused for the node lists of all candidates of a worker thread
+	private static final ThreadLocal<Nodelist> candidate_nodelists = new ThreadLocal<Nodelist>(){
+		protected Nodelist initialValue(){
+			return new Nodelist();
+		}
+	};
+	
+	private int[] i1i2;		// codes of i1, i2 of the subspace
+	private long cost;		// estimated cost of the subspace
+	private boolean is_timed;	// true: the task of the subspace measures its running time
+	private long time;		// running time of the subspace in nanoseconds, waiting for its forked branches included
+	private ItemsetObjectMap<NodelistSubset> hk_itemset_nodelist;
+	private FrequentItemsetSink sink;
+	private ItemsetObjectMap<Nodelist> localK_itemset_nodelist;
+	private int cad_itemCodes_size;
+	private int SUPPORT_COUNT;
+	private boolean is_diffset;
+	private boolean is_memory_bounded;
+	private boolean is_closed;
+	
+	// The branch, X is the itemset of the parent branch extended by cad_items[head_index]
+	private int[] X;
+	private int X_suppcount;
+	private int i1i2_nodes_support;	// diffset engine: support count of i1i2 counted by the nodes of i1, see extend()
+	private Nodelist nodelistX;
+	private IntList cad_items;
+	private List<Nodelist> cad_nodelists;	// node lists (or diffsets) of X[0 .. n-2]|cad_item
+	private int head_index;
+	private List<int[]> parent_eq_set;
+	
+	private Nodelist candidate_nodelist;
+	private Nodelist candidate;	// Node list, diffset or bitmap of the last extended itemset
+	private int[] key = new int[16];	// Reused for building the itemsets, i1i2 followed by the codes of X and more
+	
+	/**
+	 * The task of the subspace of a frequent 2-itemset
+	 * @param i1i2 codes of i1, i2
+	 * @param i1i2_support support count of i1i2
+	 * @param i1_support support count of i1, the sum of the counts of the nodes of i1
+	 * @param hk_itemset_nodelist
+	 * @param sink receives the frequent itemsets of the subspace, i1i2 included
+	 * @param cad_itemCodes_size
+	 * @param support_count
+	 * @param is_diffset
+	 * @param is_memory_bounded true: the node lists of the k-itemsets are released when their branch is done
+	 * @param is_closed true: the sink gets the candidates of closed itemsets
+	 * @param is_timed true: the running time of the subspace is measured, see time()
+	 * @param cost estimated cost of the subspace
+	 */
+	public DiscoverFreqKItemsetTask(int[] i1i2, int i1i2_support, int i1_support,
+									ItemsetObjectMap<NodelistSubset> hk_itemset_nodelist,
+									FrequentItemsetSink sink, int cad_itemCodes_size,
+									int support_count, boolean is_diffset, boolean is_memory_bounded, boolean is_closed,
+									boolean is_timed, long cost){
+		NodelistSubset nlss = hk_itemset_nodelist.get(i1i2);
+		this.i1i2 = i1i2;
+		this.cost = cost;
+		this.is_timed = is_timed;
+		this.hk_itemset_nodelist = hk_itemset_nodelist;
+		this.sink = sink;
+		this.localK_itemset_nodelist = nlss.itemset_nodelist;
+		this.cad_itemCodes_size = cad_itemCodes_size;
+		this.SUPPORT_COUNT = support_count;
+		this.is_diffset = is_diffset;
+		this.is_memory_bounded = is_memory_bounded;
+		this.is_closed = is_closed;
+		this.X = new int[0];	// NOTE: i1i2 is prefix of all frequent k-itemset (k>2) in the subspace, it is omitted
+		this.X_suppcount = i1i2_support;
+		this.i1i2_nodes_support = is_diffset ? i1_support - nlss.nodelist.totalSupportCount() : i1i2_support;
+		this.nodelistX = nlss.nodelist;
+		this.parent_eq_set = new ArrayList<int[]>(0);
+	}
+	
+	/**
+	 * The task of a branch X, forked by the task 'parent' of the same subspace
+	 */
+	private DiscoverFreqKItemsetTask(DiscoverFreqKItemsetTask parent, int[] X, int X_suppcount, Nodelist nodelistX,
+									IntList cad_items, List<Nodelist> cad_nodelists, int head_index,
+									List<int[]> parent_eq_set){
+		this.i1i2 = parent.i1i2;
+		this.sink = parent.sink;
+		this.localK_itemset_nodelist = parent.localK_itemset_nodelist;
+		this.SUPPORT_COUNT = parent.SUPPORT_COUNT;
+		this.is_diffset = parent.is_diffset;
+		this.is_memory_bounded = parent.is_memory_bounded;
+		this.is_closed = parent.is_closed;
+		this.X = X;
+		this.X_suppcount = X_suppcount;
+		this.nodelistX = nodelistX;
+		this.cad_items = cad_items;
+		this.cad_nodelists = cad_nodelists;
+		this.head_index = head_index;
+		this.parent_eq_set = parent_eq_set;
+	}
+	
+	protected void compute(){
+		long start = is_timed ? System.nanoTime() : 0;
+		this.candidate_nodelist = candidate_nodelists.get();
+		key[0] = i1i2[0];
+		key[1] = i1i2[1];
+		if(cad_items == null){
+			// The task of the subspace
+			if(!is_closed) this.sink.add(key, 2, X_suppcount);
+			this.prepare_candidates_of_2itemset();
+		}
+		this.generate_freqItemsets_from_itemset(X, X_suppcount, nodelistX, cad_items, cad_nodelists, head_index,
+												parent_eq_set);
+		if(is_timed) this.time = System.nanoTime() - start;
+	}
+	
+	/**
+	 * @return codes of i1, i2 of the subspace
+	 */
+	int[] i1i2(){
+		return i1i2;
+	}
+	
+	/**
+	 * @return estimated cost of the subspace
+	 */
+	long cost(){
+		return cost;
+	}
+	
+	/**
+	 * @return running time of the subspace in nanoseconds, available after the task is done if it is timed
+	 */
+	long time(){
+		return time;
+	}
+	
+	/**
+	 * The candidate items of i1i2 are the items after i2. The extension by cad_item is calculated from i1i2 and the
+	 * 2-itemset Y = i1|cad_item.
+	 * </br>Y does not contain equivalent items. Therefore if Y is frequent, Y must have its nodelist.
+	 * If nodelist of Y is null, it means that Y is not frequent. So the extended itemset is not too.
+	 * From the branches of i1i2, both X, Y are frequent and certainly have their nodelists.
+	 */
+	private void prepare_candidates_of_2itemset(){
+		this.cad_items = new IntList();
+		this.cad_nodelists = new ArrayList<Nodelist>();
+		this.head_index = -1;
+		int[] Y = {i1i2[0], 0};
+		for(int cad_item=i1i2[1]+1; cad_item<cad_itemCodes_size; cad_item++){
+			Y[1] = cad_item;
+			NodelistSubset nlssY = this.hk_itemset_nodelist.get(Y);
+			if(nlssY == null) continue;
+			this.cad_items.add(cad_item);
+			this.cad_nodelists.add(nlssY.nodelist);
+		}
+	}
+    
+    /**
+     * Discover frequent k-itemsets from a frequent itemset X, the prefix i1i2 is omitted in X.
+     * <li>X is X[0 .. n-2]|head, it is extended by the candidate items after head. The extension by cad_item is
+     * calculated from X and Y = X[0 .. n-2]|cad_item.
+     * <li>Extended itemsets which are frequent are given to the sink, their nodelists are put in the
+     * 'localK_itemset_nodelist'.
+     * <li>The branches of the extended itemsets are forked if they are large, otherwise discovered recursively.
+     * @param X
+     * @param X_suppcount
+     * @param nodelistX
+     * @param cad_items candidate items, the last item of X is cad_items[head_index]
+     * @param cad_nodelists node lists of X[0 .. n-2]|cad_item
+     * @param head_index
+     * @param parent_eq_set
+     */
+    private void generate_freqItemsets_from_itemset(int[] X, int X_suppcount, Nodelist nodelistX,
+													IntList cad_items, List<Nodelist> cad_nodelists, int head_index,
+													List<int[]> parent_eq_set){
+    	IntList next_cad_items = new IntList();
+    	IntList next_supports = new IntList();
+    	List<Nodelist> next_nodelists = new ArrayList<Nodelist>();
+    	IntList eq_items = new IntList();
+    	int n = X.length;
+    	
+    	// The support counts of the extensions of i1i2 are calculated from the one counted by the nodes of i1
+    	int X_nodes_suppcount = (n == 0) ? this.i1i2_nodes_support : X_suppcount;
+    	if(key.length <= n+2) key = Arrays.copyOf(key, (n+2) << 1);
+    	System.arraycopy(X, 0, key, 2, n);
+    	for(int j=head_index+1; j<cad_items.size(); j++){
+    		int cad_item = cad_items.get(j);
+    		
+			// Calculate the nodelist and support count for the ext_itemset
+    		int ext_itemset_support = this.extend(nodelistX, cad_nodelists.get(j), X_nodes_suppcount);
+    		
+    		// Make decision based on extended_itemset_suppcount 
+    		if(ext_itemset_support == X_suppcount){
+    			eq_items.add(cad_item);
+    		}else if(ext_itemset_support >= this.SUPPORT_COUNT){
+    			// The candidate node list is reused, keep a compact copy
+    			Nodelist nodelist = this.candidate.compact();
+    			next_cad_items.add(cad_item);
+    			next_supports.add(ext_itemset_support);
+    			next_nodelists.add(nodelist);
+    			key[n+2] = cad_item;	// i1i2|X|cad_item
+    			if(!is_memory_bounded){
+    				synchronized(this.localK_itemset_nodelist){
+    					this.localK_itemset_nodelist.put(key, 2, n+1, nodelist);
+    				}
+    			}
+    			if(!is_closed) this.sink.add(key, n+3, ext_itemset_support);
+    		}
+    	}
+    	
+    	List<int[]> curr_eq_set = is_closed ? this.put_closure_candidate(X, X_suppcount, eq_items, parent_eq_set) :
+    								this.put_equivalent_itemsets(X, X_suppcount, eq_items, next_cad_items, next_supports,
+    															parent_eq_set);
+    	
+    	// Fork the large branches first, so that they can be stolen while the small ones are discovered here
+    	List<DiscoverFreqKItemsetTask> tasks = new ArrayList<DiscoverFreqKItemsetTask>();
+    	for(int i=0; i<next_cad_items.size(); i++){
+    		int[] ext_itemset = Arrays.copyOf(X, n+1);
+    		ext_itemset[n] = next_cad_items.get(i);
+    		if(next_cad_items.size()-i-1 >= MIN_FORK_CANDIDATES){
+    			DiscoverFreqKItemsetTask task = new DiscoverFreqKItemsetTask(this, ext_itemset, next_supports.get(i),
+    												next_nodelists.get(i), next_cad_items, next_nodelists, i, curr_eq_set);
+    			task.fork();
+    			tasks.add(task);
+    		}else{
+    			this.generate_freqItemsets_from_itemset(ext_itemset, next_supports.get(i), next_nodelists.get(i),
+    													next_cad_items, next_nodelists, i, curr_eq_set);
+    			// The node list of X|cad_item is Y of the branches before, it is not used any more if they are done
+    			if(is_memory_bounded && tasks.isEmpty()) next_nodelists.set(i, null);
+    		}
+    	}
+    	for(int i=tasks.size()-1; i>=0; i--) tasks.get(i).join();
+    }
+    
+    /**
+     * Give to the sink the itemsets which are frequent because they have the same support count as X or as an extended itemset.
+     * <li>X|subset for each subset of the power set of 'eq_items', and X|subset for each subset of the Descartes
+     * production of this power set and 'parent_eq_set'.
+     * <li>X|cad_item|subset for each frequent extension X|cad_item and each subset of the returned eq set.
+     * @param X
+     * @param X_suppcount
+     * @param eq_items items whose extensions of X have the same support count as X
+     * @param next_cad_items items whose extensions of X are frequent
+     * @param next_supports support counts of the extensions by 'next_cad_items'
+     * @param parent_eq_set the eq set of the parent of X
+     * @return curr_eq_set, the eq set of X, it is not changed afterwards
+     */
+    private List<int[]> put_equivalent_itemsets(int[] X, int X_suppcount, IntList eq_items,
+    											IntList next_cad_items, IntList next_supports,
+    											List<int[]> parent_eq_set){
+    	List<int[]> curr_eq_set;
+    	
+    	// This code block updates curr_eq_set and generates equivalent itemsets from X
+    	if(eq_items.size()>0){
+    		ArrayList<int[]> eq_set = new ArrayList<int[]>((1 << eq_items.size())-1);
+    		PrePostPlusUtility.generatePowerSet(eq_items, eq_set);
+    		for(int[] subset : eq_set){
+    			this.putOrderedItemset(X, X.length, subset, X_suppcount);
+    		}
+    		
+    		if(parent_eq_set.size()>0){
+    			// Allocate full capacity for curr_eq_set
+    			curr_eq_set = new ArrayList<int[]>((eq_set.size()+1)*(parent_eq_set.size()+1));
+    			PrePostPlusUtility.generateDescartProduction(eq_set, parent_eq_set, curr_eq_set);
+    			// curr_eq_set now contains Descart production of eq_set and parent_eq_set
+    			for(int[] subset : curr_eq_set) {
+    				this.putOrderedItemset(X, X.length, subset, X_suppcount);
+    			}
+    			// update curr_eq_set
+    			curr_eq_set.addAll(eq_set);
+    			curr_eq_set.addAll(parent_eq_set);
+    		}else{
+    			curr_eq_set = eq_set;
+    		}
+    	}else{
+    		curr_eq_set = parent_eq_set;
+    	}
+    	
+    	// This code block generates equivalent itemsets from each extended_itemset
+    	if(curr_eq_set.size()>0){
+    		int[] ext_itemset = Arrays.copyOf(X, X.length+1);
+    		for(int i=0; i<next_cad_items.size(); i++){
+    			ext_itemset[X.length] = next_cad_items.get(i);
+        		for(int[] subset : curr_eq_set){
+        			this.putOrderedItemset(ext_itemset, ext_itemset.length, subset, next_supports.get(i));
+        		}
+        	}
+    	}
+    	return curr_eq_set;
+    }
+    
+    /**
+     * Closed mode: give to the sink the candidate X|eq items, the eq items are the items whose extensions of X or of
+     * the ancestors of X have the same support count. The frequent extensions of X give their candidates in their
+     * own branches.
+     * @param X
+     * @param X_suppcount
+     * @param eq_items items whose extensions of X have the same support count as X
+     * @param parent_eq_set the eq set of the parent of X
+     * @return curr_eq_set, the eq set of X: in closed mode one subset with all the eq items, or none
+     */
+    private List<int[]> put_closure_candidate(int[] X, int X_suppcount, IntList eq_items, List<int[]> parent_eq_set){
+    	int[] parent_eq_items = parent_eq_set.isEmpty() ? new int[0] : parent_eq_set.get(0);
+    	int[] curr_eq_items = Arrays.copyOf(parent_eq_items, parent_eq_items.length + eq_items.size());
+    	for(int i=0; i<eq_items.size(); i++) curr_eq_items[parent_eq_items.length+i] = eq_items.get(i);
+    	this.putOrderedItemset(X, X.length, curr_eq_items, X_suppcount);
+    	
+    	if(eq_items.size() == 0) return parent_eq_set;
+    	List<int[]> curr_eq_set = new ArrayList<int[]>(1);
+    	curr_eq_set.add(curr_eq_items);
+    	return curr_eq_set;
+    }
+    
+    /**
+     * Calculate the node list of the extended itemset X|y into 'candidate'.
+     * </br>N-list engine: the intersection of the node lists of X and Y, into 'candidate_nodelist'. In dense subspaces
+     * X or Y is a bitmap, the result is then a new bitmap.
+     * </br>Diffset engine: the diffset of Y minus the diffset of X, the support count of X|y is the support count of X
+     * minus the support counts of the nodes of the result. The support count of X must then be the sum of the counts
+     * of the nodes of i1 in X: a transaction which repeats an item has several nodes of the item on its path, so for
+     * i1i2 this sum is not the support count of the 2-itemsets, which counts the pairs of nodes of i1 and i2.
+     * @param nodelistX node list (or diffset) of X
+     * @param nodelistY node list (or diffset) of Y, the itemset of the prefix of X and y
+     * @param X_suppcount support count of X counted by the nodes of i1
+     * @return support count of X|y, 0 if X|y is known to be infrequent before the calculation finished
+     */
+    private int extend(Nodelist nodelistX, Nodelist nodelistY, int X_suppcount){
+    	if(is_diffset){
+    		Nodelist diffset = PrePostPlusUtility.create_diffset_from_2Diffsets(nodelistX, nodelistY,
+    															X_suppcount, this.SUPPORT_COUNT, this.candidate_nodelist);
+    		if(diffset == NodelistFake.INFREQUENT) return 0;
+    		this.candidate = diffset;
+    		return X_suppcount - diffset.totalSupportCount();
+    	}
+    	
+    	this.candidate = PrePostPlusUtility.create_nodelist_from_2Nodelists(nodelistX, nodelistY,
+    															X_suppcount, this.SUPPORT_COUNT, this.candidate_nodelist);
+    	return this.candidate.totalSupportCount();
+    }
+    
+    /**
+     * Give the itemset i1i2|itemset|subset to the sink, with its codes sorted
+     * @param itemset
+     * @param length is the number of codes in the 'itemset'
+     * @param subset
+     * @param support_count
+     */
+    private void putOrderedItemset(int[] itemset, int length, int[] subset, int support_count){
+    	int size = 2 + length + subset.length;
+    	if(key.length < size) key = Arrays.copyOf(key, size << 1);
+    	System.arraycopy(itemset, 0, key, 2, length);
+    	System.arraycopy(subset, 0, key, 2+length, subset.length);
+        Arrays.sort(key, 2, size);	// the items of X and of the eq sets are after i2
+        this.sink.add(key, size, support_count);
+    }
+}
@@ -1,24 +1,26 @@
 package dp3.p3e;
 
-import java.util.Map;
-
 import dfism.commons.IntHolder;
+import dfism.commons.collections.ItemsetObjectMap;
+import dfism.fpo.FPSubset;
 
 class Generate2ItemsetNodelistThread extends Thread{
-	private String[] frequent_2itemsets;
-	private Map<String, Nodelist> item_nodelist;
-	private Map<String, NodelistSubset> hk_itemset_nodelist;
+	private ItemsetObjectMap<FPSubset> frequent_2itemsets;
+	private Nodelist[] item_nodelist;
+	private ItemsetObjectMap<NodelistSubset> hk_itemset_nodelist;
 	private IntHolder globalIndex;
+	private boolean is_diffset;
 	private int id;
 	
-	public Generate2ItemsetNodelistThread(String[] frequent_2itemsets,
-									Map<String, Nodelist> item_nodelist,
-									Map<String, NodelistSubset> hk_itemset_nodelist,
-									IntHolder globalIndex, int id){
+	public Generate2ItemsetNodelistThread(ItemsetObjectMap<FPSubset> frequent_2itemsets,
+									Nodelist[] item_nodelist,
+									ItemsetObjectMap<NodelistSubset> hk_itemset_nodelist,
+									IntHolder globalIndex, boolean is_diffset, int id){
 		this.frequent_2itemsets = frequent_2itemsets;
 		this.item_nodelist = item_nodelist;
 		this.hk_itemset_nodelist = hk_itemset_nodelist;
 		this.globalIndex = globalIndex;		
+		this.is_diffset = is_diffset;
 		this.id = id;
 		this.setPriority(Thread.MAX_PRIORITY);
 	}
@@ -27,20 +29,24 @@ class Generate2ItemsetNodelistThread extends Thread{
 	public void run(){
 		long start = System.currentTimeMillis();
 		
-		String i1i2;
-		String[] i1i2_list;
+		int entry;
+		int[] codes = new int[2];
 		while(true){
 			synchronized(globalIndex){
-				if(globalIndex.value >= frequent_2itemsets.length) break;
-				i1i2 = frequent_2itemsets[globalIndex.value];
+				if(globalIndex.value >= frequent_2itemsets.size()) break;
+				entry = globalIndex.value;
 				globalIndex.value++;
 			}
 			
-			i1i2_list = i1i2.split(" ");
-			Nodelist nodelist = this.hk_itemset_nodelist.get(i1i2).nodelist;
+			frequent_2itemsets.getKey(entry, codes);
+			NodelistSubset nlss = this.hk_itemset_nodelist.get(codes);
 			
-			PrePostPlusUtility.create_nodelist_for_itemset(i1i2_list[0], i1i2_list[1], this.item_nodelist, nodelist);
-			nodelist.shrink();	// Save memory
+			if(is_diffset) PrePostPlusUtility.create_diffset_for_itemset(codes[0], codes[1], this.item_nodelist, nlss.nodelist);
+			else{
+				PrePostPlusUtility.create_nodelist_for_itemset(codes[0], codes[1], this.item_nodelist, nlss.nodelist);
+				nlss.nodelist = PrePostPlusUtility.create_bitmap_if_dense(this.item_nodelist[codes[0]], nlss.nodelist);
+			}
+			nlss.nodelist = nlss.nodelist.compact();	// Save memory
 		}
 		
 		// Just for testing
@@ -1,20 +1,20 @@
 package dp3.p3e;
 
-import java.util.List;
-
 import dfism.commons.IntHolder;
 import dfism.commons.Matrix;
 
 class Generate2ItemsetsThread extends Thread{
-	private List<PPCNode> child_list;
+	private PPCTree ppcTree;
+	private int[] level1_nodes;
 	private Matrix matrix;
 	private IntHolder globalIndex;
 	private int id;
 	
-	public Generate2ItemsetsThread(List<PPCNode> child_list,
+	public Generate2ItemsetsThread(PPCTree ppcTree, int[] level1_nodes,
 									Matrix matrix,
 									IntHolder globalIndex, int id){
-		this.child_list = child_list;
+		this.ppcTree = ppcTree;
+		this.level1_nodes = level1_nodes;
 		this.matrix = matrix;
 		this.globalIndex = globalIndex;		
 		this.id = id;
@@ -25,16 +25,19 @@ class Generate2ItemsetsThread extends Thread{
 	public void run(){
 		long start = System.currentTimeMillis();
 		
-		PPCNode l1_child;
-		int size = child_list.size();
+		int l1_child;
+		int size = level1_nodes.length;
 		while (true){
 			synchronized(globalIndex){
 				if(globalIndex.value >= size) break;
-				l1_child = child_list.get(globalIndex.value);
+				l1_child = level1_nodes[globalIndex.value];
 				globalIndex.value++;
 			}
 			
-			for(PPCNode l2_child : l1_child.children) update_suppcount_2itemsets_recursive(l2_child);
+			// All nodes below the level-1 node, in pre-order
+			for(int node=ppcTree.nextPreOrder(l1_child, l1_child); node != PPCTree.NONE; node=ppcTree.nextPreOrder(node, l1_child)){
+				update_suppcount_2itemsets(node);
+			}
 		}
 		
 		// Summary local support for each 2-itemsets.
@@ -52,16 +55,14 @@ class Generate2ItemsetsThread extends Thread{
 	 * This procedure accumulate the support count for 2-itemsets, the items are in item_Index
 	 * @param node
 	 */
-    private void update_suppcount_2itemsets_recursive(PPCNode node){
-    	int index = node.itemCode;
-    	PPCNode parentNode = node.parent;
+    private void update_suppcount_2itemsets(int node){
+    	PPCTree ppcTree = this.ppcTree;
+    	int index = ppcTree.itemCode(node), count = ppcTree.count(node);
+    	int parentNode = ppcTree.parent(node);
     	
-    	while(parentNode.parent != null){	// if parentNode.parent == null, parentNode is the root.
-    		matrix.add(index, parentNode.itemCode, node.count);
-    		parentNode = parentNode.parent;
+    	while(parentNode != PPCTree.ROOT){
+    		matrix.add(index, ppcTree.itemCode(parentNode), count);
+    		parentNode = ppcTree.parent(parentNode);
     	}
-    	
-    	// If the current node is not a leaf node, traverse all its children
-    	for(PPCNode child : node.children) update_suppcount_2itemsets_recursive(child);
     }
 }
@@ -0,0 +1,52 @@
+package dp3.p3e;
+
+import dfism.commons.IntHolder;
+
+/**
+ * Merge the partial PPC trees into one PPC tree, branch by branch. A branch is all paths starting with the same
+ * level-1 item code; branches are claimed one by one through 'itemCodeIndex', so threads never touch the same nodes.
+ */
+class MergePPCTreeBranchThread extends Thread{
+	private PPCTree ppcTree;
+	private PPCTree[] partial_trees;
+	private IntHolder itemCodeIndex;
+	private int item_count;
+	private int id;
+	
+	public MergePPCTreeBranchThread(PPCTree ppcTree, PPCTree[] partial_trees,
+									IntHolder itemCodeIndex, int item_count, int id){
+		this.ppcTree = ppcTree;
+		this.partial_trees = partial_trees;
+		this.itemCodeIndex = itemCodeIndex;
+		this.item_count = item_count;
+		this.id = id;
+		this.setPriority(Thread.MAX_PRIORITY);
+	}
+	
+	// Overwrite the run method
+	public void run(){
+		long start = System.currentTimeMillis();
+		
+		PPCTree.Allocator allocator = ppcTree.newAllocator();
+		int itemCode, node;
+		while(true){
+			synchronized(itemCodeIndex){
+				if(itemCodeIndex.value >= item_count) break;
+				itemCode = itemCodeIndex.value;
+				itemCodeIndex.value++;
+			}
+			
+			for(PPCTree partial_tree : partial_trees){
+				node = partial_tree.getRootChild(itemCode);
+				if(node != PPCTree.NONE) ppcTree.mergeBranch(partial_tree, node, allocator);
+			}
+		}
+		ppcTree.releaseAllocator(allocator);
+		
+		// Just for testing
+		StringBuilder sb = new StringBuilder();
+		sb.append(this.getClass().getSimpleName()).append(' ').append(id).append(" finished work in ")
+		.append(System.currentTimeMillis()-start).append(" ms");
+		System.out.println(sb.toString());
+	}
+}
@@ -0,0 +1,270 @@
+package dp3.p3e;
+
+import java.util.Arrays;
+
+/**
+ * A bitmap of the transactions containing an itemset i1|P, used instead of the node list in dense subspaces of i1.
+ * </br>The transactions containing i1 are numbered along the node list of i1, which is the universe of the bitmap:
+ * the transactions of its first node are 0 .. count-1, the transactions of the second node follow, and so on.
+ * All transactions of a node of i1 are in a bitmap or none of them is.
+ * </br>The numbers are split into chunks of 2^16 like a Roaring bitmap. A chunk holding few numbers is a sorted array of
+ * their low 16 bits, a fuller chunk is an array of words. The last chunk is only as long as the universe.
+ * </br>Two bitmaps are intersected word by word and the support count is the popcount. A bitmap of P|x and a node
+ * list of P|y are intersected through the universe: a transaction of P|x contains y if its node of i1 has
+ * an ancestor in the node list of P|y, and the same holds the other way round.
+ * </br>The bitmap is read-only, it is not used by the diffset engine.
+ */
+class NodeBitmap extends Nodelist {
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_WORDS = 1 << (CHUNK_BITS-6);
+	private static double density_cutoff = 0;
+	private final Nodelist universe;
+	private final char[][] arrays;	// chunk i is arrays[i] or words[i], both are null if the chunk is empty
+	private final long[][] words;
+	private final int last_chunk_words;
+	private int cardinality;
+
+	private NodeBitmap(Nodelist universe, int universe_size){
+		super(true);
+		int chunk_count = (universe_size + (1 << CHUNK_BITS) - 1) >>> CHUNK_BITS;
+		this.universe = universe;
+		this.arrays = new char[chunk_count][];
+		this.words = new long[chunk_count][];
+		this.last_chunk_words = ((universe_size - ((chunk_count-1) << CHUNK_BITS)) + 63) >>> 6;
+	}
+
+	private NodeBitmap(NodeBitmap bitmap){
+		super(true);
+		this.universe = bitmap.universe;
+		this.arrays = new char[bitmap.arrays.length][];
+		this.words = new long[bitmap.words.length][];
+		this.last_chunk_words = bitmap.last_chunk_words;
+	}
+
+	/**
+	 * Set the density from which the 2-itemsets i1|i2, and the itemsets of their subspaces, are bitmaps.
+	 * @param density_cutoff support count of i1|i2 / support count of i1, 0: bitmaps are never used
+	 */
+	static void setDensityCutoff(double density_cutoff){
+		NodeBitmap.density_cutoff = density_cutoff;
+	}
+
+	/**
+	 * @param support_count support count of 2-itemset i1|i2
+	 * @param universe_support_count support count of item i1
+	 * @return true if i1|i2 is represented by a bitmap
+	 */
+	static boolean isDense(int support_count, int universe_support_count){
+		return density_cutoff > 0 && support_count >= density_cutoff*universe_support_count;
+	}
+
+	/**
+	 * @return the number of transactions in the bitmap
+	 */
+	public int size(){
+		return cardinality;
+	}
+
+	public int capacity(){
+		return cardinality;
+	}
+
+	public int totalSupportCount(){
+		return cardinality;
+	}
+
+	public void shrink(){}
+
+	public Nodelist compact(){
+		return this;
+	}
+
+	/**
+	 * @return the number of bytes of the chunks
+	 */
+	public int byteSize(){
+		int size = 0;
+		for(int i=0; i<arrays.length; i++){
+			if(arrays[i] != null) size += 2*arrays[i].length;
+			else if(words[i] != null) size += 8*words[i].length;
+		}
+		return size;
+	}
+
+	/**
+	 * Calculate the bitmap of the 2-itemset i1|i2 from the node list of item i1 and the node list of i1|i2
+	 * @param universe node list of item i1
+	 * @param nodelist node list of i1|i2 (or of item i2)
+	 * @return the bitmap of the transactions of the nodes of i1 having an ancestor in 'nodelist'
+	 */
+	static NodeBitmap create(Nodelist universe, Nodelist nodelist){
+		return intersection(universe, null, nodelist);
+	}
+
+	/**
+	 * Calculate the bitmap of itemset common|i1|i2 from the bitmaps or node lists of itemsets common|i1 and common|i2.
+	 * At least one of them is a bitmap, both are of the same subspace.
+	 * @param nodelist1 bitmap or node list of itemset common|i1
+	 * @param nodelist2 bitmap or node list of itemset common|i2
+	 * @return the bitmap of itemset common|i1|i2
+	 */
+	static NodeBitmap intersection(Nodelist nodelist1, Nodelist nodelist2){
+		if(!(nodelist1 instanceof NodeBitmap)) return intersection(((NodeBitmap)nodelist2).universe, (NodeBitmap)nodelist2, nodelist1);
+		if(!(nodelist2 instanceof NodeBitmap)) return intersection(((NodeBitmap)nodelist1).universe, (NodeBitmap)nodelist1, nodelist2);
+
+		NodeBitmap bitmap1 = (NodeBitmap)nodelist1, bitmap2 = (NodeBitmap)nodelist2;
+		NodeBitmap bitmap = new NodeBitmap(bitmap1);
+		for(int i=0; i<bitmap.arrays.length; i++){
+			long[] words1 = bitmap1.words[i], words2 = bitmap2.words[i];
+			char[] array1 = bitmap1.arrays[i], array2 = bitmap2.arrays[i];
+			if(words1 != null){
+				if(words2 != null) bitmap.and(i, words1, words2);
+				else if(array2 != null) bitmap.setArray(i, filter(array2, words1));
+			}else if(array1 != null){
+				if(words2 != null) bitmap.setArray(i, filter(array1, words2));
+				else if(array2 != null) bitmap.setArray(i, merge(array1, array2));
+			}
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Walk the nodes of the universe, a node whose transactions are in 'bitmap' (all nodes if it is null) and which has
+	 * an ancestor in 'nodelist' adds its transactions.
+	 * </br>Nodes of a node list are disjoint subtrees, so the only node of 'nodelist' which can be an ancestor of a node
+	 * is the first one with a greater pos-code.
+	 */
+	private static NodeBitmap intersection(Nodelist universe, NodeBitmap bitmap, Nodelist nodelist){
+		NodeBitmap result = bitmap == null ? new NodeBitmap(universe, universe.totalSupportCount()) : new NodeBitmap(bitmap);
+		long[] chunk = new long[result.chunkWords(0)];
+		int chunk_index = 0, chunk_cardinality = 0, first = 0;
+		NodeCursor node = universe.cursor(), ancestor = nodelist.cursor();
+		boolean has_ancestor = ancestor.next();
+		while(has_ancestor && node.next()){
+			int start = first;	// number of the first transaction of the node
+			first += node.count;
+			while(has_ancestor && ancestor.pos < node.pos) has_ancestor = ancestor.next();
+			if(!has_ancestor || ancestor.pre > node.pre) continue;	// The node has no ancestor
+			if(bitmap != null && !bitmap.contains(start)) continue;
+
+			// Add the transactions of the node, they may continue in the next chunk
+			while(start < first){
+				int index = start >>> CHUNK_BITS;
+				if(index != chunk_index){
+					result.store(chunk_index, chunk, chunk_cardinality);
+					chunk_index = index;
+					chunk_cardinality = 0;
+					if(chunk.length != result.chunkWords(index)) chunk = new long[result.chunkWords(index)];
+					else Arrays.fill(chunk, 0);
+				}
+				int end = Math.min(first, (index+1) << CHUNK_BITS);
+				setRange(chunk, start & 0xFFFF, end - (index << CHUNK_BITS));
+				chunk_cardinality += end - start;
+				start = end;
+			}
+		}
+		result.store(chunk_index, chunk, chunk_cardinality);
+		return result;
+	}
+
+	/**
+	 * @param number number of a transaction
+	 * @return true if the transaction is in this bitmap
+	 */
+	private boolean contains(int number){
+		int index = number >>> CHUNK_BITS, low = number & 0xFFFF;
+		if(words[index] != null) return (words[index][low >>> 6] & (1L << low)) != 0;
+		if(arrays[index] != null) return Arrays.binarySearch(arrays[index], (char)low) >= 0;
+		return false;
+	}
+
+	private int chunkWords(int index){
+		return index == words.length-1 ? last_chunk_words : CHUNK_WORDS;
+	}
+
+	/**
+	 * Keep the chunk 'index' whose bits are in 'chunk': as an array if it takes less memory, otherwise as a copy of
+	 * the words
+	 */
+	private void store(int index, long[] chunk, int chunk_cardinality){
+		if(chunk_cardinality == 0) return;
+		if(2*chunk_cardinality < 8*chunk.length){
+			char[] array = new char[chunk_cardinality];
+			int size = 0;
+			for(int i=0; i<chunk.length; i++){
+				for(long word=chunk[i]; word != 0; word &= word-1){
+					array[size++] = (char)((i << 6) + Long.numberOfTrailingZeros(word));
+				}
+			}
+			this.arrays[index] = array;
+		}else{
+			this.words[index] = chunk.clone();
+		}
+		this.cardinality += chunk_cardinality;
+	}
+
+	private void and(int index, long[] words1, long[] words2){
+		long[] chunk = new long[words1.length];
+		int chunk_cardinality = 0;
+		for(int i=0; i<chunk.length; i++){
+			chunk[i] = words1[i] & words2[i];
+			chunk_cardinality += Long.bitCount(chunk[i]);
+		}
+		if(chunk_cardinality == 0) return;
+		if(2*chunk_cardinality < 8*chunk.length) this.store(index, chunk, chunk_cardinality);
+		else{
+			this.words[index] = chunk;
+			this.cardinality += chunk_cardinality;
+		}
+	}
+
+	private void setArray(int index, char[] array){
+		if(array.length == 0) return;
+		this.arrays[index] = array;
+		this.cardinality += array.length;
+	}
+
+	/**
+	 * @return the values of 'array' whose bits are set in 'words'
+	 */
+	private static char[] filter(char[] array, long[] words){
+		char[] result = new char[array.length];
+		int size = 0;
+		for(char value : array){
+			if((words[value >>> 6] & (1L << value)) != 0) result[size++] = value;
+		}
+		return size == array.length ? result : Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * @return the values which are in both sorted arrays
+	 */
+	private static char[] merge(char[] array1, char[] array2){
+		char[] result = new char[Math.min(array1.length, array2.length)];
+		int size = 0, index1 = 0, index2 = 0;
+		while(index1 < array1.length && index2 < array2.length){
+			if(array1[index1] < array2[index2]) index1++;
+			else if(array1[index1] > array2[index2]) index2++;
+			else{
+				result[size++] = array1[index1];
+				index1++;
+				index2++;
+			}
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Set the bits from 'from' to 'to' (exclusive)
+	 */
+	private static void setRange(long[] words, int from, int to){
+		int first = from >>> 6, last = (to-1) >>> 6;
+		if(first == last){
+			words[first] |= (-1L << from) & (-1L >>> -to);
+			return;
+		}
+		words[first] |= -1L << from;
+		for(int i=first+1; i<last; i++) words[i] = -1L;
+		words[last] |= -1L >>> -to;
+	}
+}
@@ -2,39 +2,44 @@ package dp3.p3e;
 
 /**
  * An array implementation for list of nodes. Each node has three properties: pre-code, pos-code, and support count.
- * </br>The purpose is to reduce memory overhead. 
+ * </br>The purpose is to reduce memory overhead.
+ * </br>Nodes are interleaved in one array as [pre, pos, count] triples, so a node is read from one cache line
+ * and intersections walk two arrays sequentially.
  */
 class Nodelist {
 	private static final float allocate_rate = 1.75f;
-	private int[][] ppc;
+	private static final int BLOCK = 8;		// nodes skipped at once by the block-skipping intersection
+	private static boolean is_block_skipping = false;
+	private static int galloping_ratio = 32;
+	private static boolean is_compressing = false;
+	private int[] ppc;	// pre-code, pos-code and support count of node i are at 3*i, 3*i+1 and 3*i+2
 	private int size;
-	
+	private int support_count;	// sum of the support counts of the nodes, kept up to date by all methods adding nodes
+
  	public Nodelist(int capacity){
  		this.size = 0;
-		// ppc[0] for pre-codes, ppc[1] for pos-codes, ppc[2] for support counts
-		this.ppc = new int[3][capacity];
+		this.ppc = new int[3*capacity];
 	}
- 	
+
  	public Nodelist(){
  		this.size = 0;
-		// ppc[0] for pre-codes, ppc[1] for pos-codes, ppc[2] for support counts
-		this.ppc = new int[3][16];
+		this.ppc = new int[3*16];
 	}
- 	
+
  	/**
  	 * New a Nodelist but not allocate any resource. The purpose is to DELAY the allocation
  	 * @param isEmpty	No matter the value of isEmpty is. No allocation!
  	 */
  	public Nodelist(boolean isEmpty){}
- 	
+
  	public int size(){
  		return this.size;
  	}
- 	
+
  	public int capacity(){
- 		return this.ppc[0].length;
+ 		return this.ppc.length/3;
  	}
- 	
+
  	/**
  	 * This method is associated with the constructor Nodelist(boolean isEmpty)
  	 * @param capacity
@@ -42,11 +47,22 @@ class Nodelist {
  	public void allocate(int capacity){
  		if(this.ppc == null){
  			this.size = 0;
- 			// ppc[0] for pre-codes, ppc[1] for pos-codes, ppc[2] for support counts
- 			this.ppc = new int[3][capacity];
+ 			this.ppc = new int[3*capacity];
  		}
  	}
- 	
+
+ 	/**
+ 	 * Make room for at least 'capacity' nodes
+ 	 */
+ 	private void ensureCapacity(int capacity){
+ 		if(3*capacity > this.ppc.length){
+ 			// No spare room for new nodes, allocate new space
+ 			int[] new_space = new int[3*Math.max(capacity, (int)(this.ppc.length/3*allocate_rate))];
+ 			System.arraycopy(this.ppc, 0, new_space, 0, 3*size);
+ 			this.ppc = new_space;
+ 		}
+ 	}
+
  	/**
  	 * Add a new node to the end of the node list
  	 * @param pre
@@ -54,100 +70,517 @@ class Nodelist {
  	 * @param count
  	 */
  	public void add(int pre, int pos, int count){
- 		int current_capacity = this.ppc[0].length;
- 		if(this.size == current_capacity){
- 			// No spare room for new node, allocate new space
- 			current_capacity = (int)(current_capacity*allocate_rate);
- 			int[][] new_space = new int[3][current_capacity];
- 			// Copy
- 			System.arraycopy(this.ppc[0], 0, new_space[0], 0, size);
- 			System.arraycopy(this.ppc[1], 0, new_space[1], 0, size);
- 			System.arraycopy(this.ppc[2], 0, new_space[2], 0, size);
- 			this.ppc = new_space;
- 		}
+ 		if(3*size == this.ppc.length) this.ensureCapacity(size+1);
  		// Add new node
- 		this.ppc[0][size] = pre;
- 		this.ppc[1][size] = pos;
- 		this.ppc[2][size] = count;
+ 		int index = 3*size;
+ 		this.ppc[index] = pre;
+ 		this.ppc[index+1] = pos;
+ 		this.ppc[index+2] = count;
  		this.size++;
+ 		this.support_count += count;
  	}
- 	
+
  	/**
  	 * Based on the information of parameter 'node', a new node is add to the end of the node list
  	 * @param node
  	 */
  	public void add(Node node){
- 		int current_capacity = this.ppc[0].length;
- 		if(this.size == current_capacity){
- 			// No spare room for new node, allocate new space
- 			current_capacity = (int)(current_capacity*allocate_rate);
- 			int[][] new_space = new int[3][current_capacity];
- 			// Copy
- 			System.arraycopy(this.ppc[0], 0, new_space[0], 0, size);
- 			System.arraycopy(this.ppc[1], 0, new_space[1], 0, size);
- 			System.arraycopy(this.ppc[2], 0, new_space[2], 0, size);
- 			this.ppc = new_space;
- 		}
- 		// Add new node
- 		this.ppc[0][size] = node.pre;
- 		this.ppc[1][size] = node.pos;
- 		this.ppc[2][size] = node.count;
- 		this.size++;
+ 		this.add(node.pre, node.pos, node.count);
  	}
- 	
+
  	/**
  	 * Fill information of the node at position 'index' to the parameter 'node'
  	 * @param index
  	 * @param node
  	 */
  	public void get(int index, Node node){
- 		node.pre = this.ppc[0][index];
- 		node.pos = this.ppc[1][index];
- 		node.count = this.ppc[2][index];
+ 		index *= 3;
+ 		node.pre = this.ppc[index];
+ 		node.pos = this.ppc[index+1];
+ 		node.count = this.ppc[index+2];
+ 	}
+
+ 	public int pre(int index){
+ 		return this.ppc[3*index];
+ 	}
+
+ 	public int pos(int index){
+ 		return this.ppc[3*index+1];
  	}
- 	
+
+ 	public int count(int index){
+ 		return this.ppc[3*index+2];
+ 	}
+
  	/**
  	 * Add the 'supportCount' to the support count of node at the position 'index'
  	 * @param index
  	 * @param supportCount
  	 */
  	public void accSupportCount(int index, int supportCount){
- 		this.ppc[2][index] += supportCount;
+ 		this.ppc[3*index+2] += supportCount;
+ 		this.support_count += supportCount;
  	}
- 	
+
  	/**
- 	 * Summarize all support counts of nodes then return the sum
- 	 * @return 
+ 	 * @return the sum of the support counts of all nodes, it is kept while nodes are added
  	 */
  	public int totalSupportCount(){
- 		int supportCount=0;
- 		if(this.ppc != null) for(int count : this.ppc[2]) supportCount += count;
- 		return supportCount;
+ 		return this.support_count;
  	}
- 	
+
+	/**
+	 * Choose the intersection kernel of all node lists, both kernels give the same node lists.
+	 * @param is_block_skipping true: runs of nodes which can not match are skipped block by block;
+	 * false: the plain merge walk over both node lists
+	 */
+	static void setBlockSkipping(boolean is_block_skipping){
+		Nodelist.is_block_skipping = is_block_skipping;
+	}
+
+	/**
+	 * Set the size ratio from which the longer node list is searched by galloping instead of being walked.
+	 * @param galloping_ratio 0: galloping is never used
+	 */
+	static void setGallopingRatio(int galloping_ratio){
+		Nodelist.galloping_ratio = galloping_ratio;
+	}
+
+	/**
+	 * @param is_compressing true: compact() makes CompressedNodelist
+	 */
+	static void setCompression(boolean is_compressing){
+		Nodelist.is_compressing = is_compressing;
+	}
+
+ 	/**
+ 	 * - Append the node list of itemset common|i1|i2 calculated from the node lists of itemsets common|i1 and
+ 	 * common|i2 (i1 < i2 in the used order, common may be empty).
+ 	 * </br>- A node of 'nodelist2' is added when it is an ancestor of nodes of 'nodelist1', its support count is
+ 	 * the sum of the support counts of those nodes. Both node lists are in increasing order of pre-codes.
+ 	 * </br>- Calculate complexity is O(m+n), the arrays are read directly without copying nodes. When one node list
+ 	 * is at least 'galloping_ratio' times longer than the other, the longer one is searched by galloping instead.
+ 	 * @param nodelist1 node list of itemset common|i1
+ 	 * @param nodelist2 node list of itemset common|i2
+ 	 */
+ 	public void intersect(Nodelist nodelist1, Nodelist nodelist2){
+ 		this.intersect(nodelist1, nodelist2, Integer.MAX_VALUE);
+ 	}
+
+ 	/**
+ 	 * The bounded intersection: the support count of a node of 'nodelist1' without an ancestor in 'nodelist2' is lost
+ 	 * for the new itemset. Once the lost support counts sum to more than 'max_lost', the new itemset can not be
+ 	 * frequent and the intersection is abandoned.
+ 	 * </br>The bound is checked by the merge walk and the galloping search of ancestors, the other kernels always
+ 	 * finish the intersection.
+ 	 * @param nodelist1 node list of itemset common|i1
+ 	 * @param nodelist2 node list of itemset common|i2
+ 	 * @param max_lost support count of common|i1 - minimum support count
+ 	 * @return the sum of the support counts of the appended nodes, which is the support count of common|i1|i2 if this
+ 	 * node list was empty; -1 if the intersection is abandoned, this node list is incomplete then
+ 	 */
+ 	public int intersect(Nodelist nodelist1, Nodelist nodelist2, int max_lost){
+ 		int size1 = nodelist1.size(), size2 = nodelist2.size();
+ 		if(size1 == 0 || size2 == 0) return 0;
+ 		this.ensureCapacity(this.size + size2);	// Each node of 'nodelist2' is added at most once
+ 		if(nodelist1 instanceof CompressedNodelist || nodelist2 instanceof CompressedNodelist){
+ 			return this.intersectStreaming(nodelist1, nodelist2, max_lost);
+ 		}
+ 		if(galloping_ratio > 0 && size2/size1 >= galloping_ratio) return this.intersectGallopingAncestors(nodelist1, nodelist2, max_lost);
+ 		if(galloping_ratio > 0 && size1/size2 >= galloping_ratio) return this.intersectGallopingDescendants(nodelist1, nodelist2);
+ 		if(is_block_skipping) return this.intersectBlockSkipping(nodelist1, nodelist2);
+ 		return this.intersectMerge(nodelist1, nodelist2, max_lost);
+ 	}
+
+ 	/**
+ 	 * The end of a kernel which wrote its nodes up to 'index'
+ 	 * @param support sum of the support counts of the nodes the kernel appended
+ 	 * @return 'support'
+ 	 */
+ 	private int append(int index, int support){
+ 		this.size = index/3;
+ 		this.support_count += support;
+ 		return support;
+ 	}
+
+ 	private int intersectMerge(Nodelist nodelist1, Nodelist nodelist2, int max_lost){
+ 		int size1 = nodelist1.size(), size2 = nodelist2.size();
+ 		int[] ppc1 = nodelist1.ppc, ppc2 = nodelist2.ppc, ppc = this.ppc;
+ 		int end1 = 3*size1, end2 = 3*size2, index1 = 0, index2 = 0, index = 3*this.size, last_pre = -1, lost = 0, support = 0;
+ 		int pre1 = ppc1[0], pos1 = ppc1[1], pre2 = ppc2[0], pos2 = ppc2[1];
+ 		while(true){
+ 			if(pre1 > pre2){
+ 				if(pos1 < pos2){
+ 					// node1 is a descendant of node2, node2 is added (or its count is accumulated) --> next node1
+ 					// NOTE: node2 can be an ancestor of other nodes in nodelist1 --> stay index2
+ 					support += ppc1[index1+2];
+ 					if(last_pre == pre2){
+ 						ppc[index-1] += ppc1[index1+2];
+ 					}else{
+ 						ppc[index] = pre2;
+ 						ppc[index+1] = pos2;
+ 						ppc[index+2] = ppc1[index1+2];
+ 						index += 3;
+ 						last_pre = pre2;
+ 					}
+ 					index1 += 3;
+ 					if(index1 == end1) break;
+ 					pre1 = ppc1[index1];
+ 					pos1 = ppc1[index1+1];
+ 				}else{
+ 					// node1 and all nodes after it are not descendants of node2 --> next node2
+ 					index2 += 3;
+ 					if(index2 == end2) break;
+ 					pre2 = ppc2[index2];
+ 					pos2 = ppc2[index2+1];
+ 				}
+ 			}else{
+ 				// node2 and all nodes after it are not ancestors of node1 --> next node1
+ 				lost += ppc1[index1+2];
+ 				if(lost > max_lost){
+ 					this.append(index, support);
+ 					return -1;
+ 				}
+ 				index1 += 3;
+ 				if(index1 == end1) break;
+ 				pre1 = ppc1[index1];
+ 				pos1 = ppc1[index1+1];
+ 			}
+ 		}
+ 		return this.append(index, support);
+ 	}
+
+ 	/**
+ 	 * The merge walk, where the runs of nodes which are skipped one by one are skipped by blocks of BLOCK nodes.
+ 	 * </br>All nodes of a node list have the same item, so no node is an ancestor of another one: in increasing order
+ 	 * of pre-codes, the pos-codes increase too. If the last node of a block can be skipped, every node of the block can.
+ 	 * The result is the same as intersectMerge().
+ 	 */
+ 	private int intersectBlockSkipping(Nodelist nodelist1, Nodelist nodelist2){
+ 		int size1 = nodelist1.size(), size2 = nodelist2.size();
+ 		int[] ppc1 = nodelist1.ppc, ppc2 = nodelist2.ppc, ppc = this.ppc;
+ 		int end1 = 3*size1, end2 = 3*size2, index1 = 0, index2 = 0, index = 3*this.size, last_pre = -1, support = 0;
+ 		int block_end1 = end1 - 3*BLOCK, block_end2 = end2 - 3*BLOCK;
+ 		int pre1 = ppc1[0], pos1 = ppc1[1], pre2 = ppc2[0], pos2 = ppc2[1];
+ 		while(true){
+ 			if(pre1 > pre2){
+ 				if(pos1 < pos2){
+ 					// node1 is a descendant of node2
+ 					support += ppc1[index1+2];
+ 					if(last_pre == pre2){
+ 						ppc[index-1] += ppc1[index1+2];
+ 					}else{
+ 						ppc[index] = pre2;
+ 						ppc[index+1] = pos2;
+ 						ppc[index+2] = ppc1[index1+2];
+ 						index += 3;
+ 						last_pre = pre2;
+ 					}
+ 					index1 += 3;
+ 					if(index1 == end1) break;
+ 				}else{
+ 					// Skip the nodes of nodelist2 ending before node1
+ 					index2 += 3;
+ 					while(index2 <= block_end2 && ppc2[index2+3*BLOCK-2] < pos1) index2 += 3*BLOCK;
+ 					if(index2 == end2) break;
+ 					pre2 = ppc2[index2];
+ 					pos2 = ppc2[index2+1];
+ 					continue;
+ 				}
+ 			}else{
+ 				// Skip the nodes of nodelist1 starting before node2
+ 				index1 += 3;
+ 				while(index1 <= block_end1 && ppc1[index1+3*BLOCK-3] < pre2) index1 += 3*BLOCK;
+ 				if(index1 == end1) break;
+ 			}
+ 			pre1 = ppc1[index1];
+ 			pos1 = ppc1[index1+1];
+ 		}
+ 		return this.append(index, support);
+ 	}
+
+ 	/**
+ 	 * The merge walk over cursors, for node lists which are compressed. The nodes are decoded while they are walked.
+ 	 * The result is the same as intersectMerge().
+ 	 */
+ 	private int intersectStreaming(Nodelist nodelist1, Nodelist nodelist2, int max_lost){
+ 		NodeCursor node1 = nodelist1.cursor(), node2 = nodelist2.cursor();
+ 		int[] ppc = this.ppc;
+ 		int index = 3*this.size, last_pre = -1, lost = 0, support = 0;
+ 		node1.next();
+ 		node2.next();
+ 		while(true){
+ 			if(node1.pre > node2.pre){
+ 				if(node1.pos < node2.pos){
+ 					// node1 is a descendant of node2
+ 					support += node1.count;
+ 					if(last_pre == node2.pre){
+ 						ppc[index-1] += node1.count;
+ 					}else{
+ 						ppc[index] = node2.pre;
+ 						ppc[index+1] = node2.pos;
+ 						ppc[index+2] = node1.count;
+ 						index += 3;
+ 						last_pre = node2.pre;
+ 					}
+ 					if(!node1.next()) break;
+ 				}else{
+ 					// node1 and all nodes after it are not descendants of node2
+ 					if(!node2.next()) break;
+ 				}
+ 			}else{
+ 				// node2 and all nodes after it are not ancestors of node1
+ 				lost += node1.count;
+ 				if(lost > max_lost){
+ 					this.append(index, support);
+ 					return -1;
+ 				}
+ 				if(!node1.next()) break;
+ 			}
+ 		}
+ 		return this.append(index, support);
+ 	}
+
+ 	/**
+ 	 * - Append the diffset of itemset i1|i2 calculated from the node lists of items i1 and i2 (i1 < i2 in the used order):
+ 	 * the nodes of 'nodelist1' which have no ancestor in 'nodelist2'.
+ 	 * </br>- The support count of i1|i2 is the support count of i1 minus the support counts of the appended nodes.
+ 	 * @param nodelist1 node list of item i1
+ 	 * @param nodelist2 node list of item i2
+ 	 */
+ 	public void exclude(Nodelist nodelist1, Nodelist nodelist2){
+ 		if(nodelist1.size() == 0) return;
+ 		this.ensureCapacity(this.size + nodelist1.size());
+ 		NodeCursor node1 = nodelist1.cursor(), node2 = nodelist2.cursor();
+ 		int[] ppc = this.ppc;
+ 		int index = 3*this.size, support = 0;
+ 		boolean has_node2 = node2.next();
+ 		node1.next();
+ 		while(true){
+ 			if(has_node2 && node1.pre > node2.pre){
+ 				if(node1.pos < node2.pos){
+ 					// node1 is a descendant of node2 --> next node1
+ 					if(!node1.next()) break;
+ 				}else{
+ 					// node1 and all nodes after it are not descendants of node2 --> next node2
+ 					has_node2 = node2.next();
+ 				}
+ 			}else{
+ 				// No node2 is an ancestor of node1
+ 				ppc[index] = node1.pre;
+ 				ppc[index+1] = node1.pos;
+ 				ppc[index+2] = node1.count;
+ 				index += 3;
+ 				support += node1.count;
+ 				if(!node1.next()) break;
+ 			}
+ 		}
+ 		this.append(index, support);
+ 	}
+
+ 	/**
+ 	 * - Append the diffset of itemset P|x|y calculated from the diffsets of itemsets P|x and P|y:
+ 	 * the nodes of 'nodelist1' (P|y) which are not in 'nodelist2' (P|x).
+ 	 * </br>- The support count of P|x|y is the support count of P|x minus the support counts of the appended nodes.
+ 	 * Once these support counts sum to more than 'max_support', the difference is abandoned.
+ 	 * @param nodelist1 diffset of P|y
+ 	 * @param nodelist2 diffset of P|x
+ 	 * @param max_support support count of P|x - minimum support count
+ 	 * @return false if the difference is abandoned, this node list is incomplete then
+ 	 */
+ 	public boolean difference(Nodelist nodelist1, Nodelist nodelist2, int max_support){
+ 		if(nodelist1.size() == 0) return true;
+ 		this.ensureCapacity(this.size + nodelist1.size());
+ 		NodeCursor node1 = nodelist1.cursor(), node2 = nodelist2.cursor();
+ 		int[] ppc = this.ppc;
+ 		int index = 3*this.size, support = 0;
+ 		boolean has_node2 = node2.next();
+ 		while(node1.next()){
+ 			while(has_node2 && node2.pre < node1.pre) has_node2 = node2.next();
+ 			if(has_node2 && node2.pre == node1.pre) continue;	// node1 is in 'nodelist2'
+ 			support += node1.count;
+ 			if(support > max_support){
+ 				this.append(index, support - node1.count);	// node1 is not appended
+ 				return false;
+ 			}
+ 			ppc[index] = node1.pre;
+ 			ppc[index+1] = node1.pos;
+ 			ppc[index+2] = node1.count;
+ 			index += 3;
+ 		}
+ 		this.append(index, support);
+ 		return true;
+ 	}
+
+ 	/**
+ 	 * Intersection for a 'nodelist2' much longer than 'nodelist1'.
+ 	 * </br>Nodes of a node list are disjoint subtrees, so the only node of 'nodelist2' which can be an ancestor of node1
+ 	 * is the first one with a greater pos-code. For each node1, that node is found by galloping from the previous one.
+ 	 * </br>Calculate complexity is O(m*log(n/m)). The result is the same as intersectMerge().
+ 	 */
+ 	private int intersectGallopingAncestors(Nodelist nodelist1, Nodelist nodelist2, int max_lost){
+ 		int[] ppc1 = nodelist1.ppc, ppc2 = nodelist2.ppc, ppc = this.ppc;
+ 		int end1 = 3*nodelist1.size(), end2 = 3*nodelist2.size(), index2 = 0, index = 3*this.size, last_pre = -1, lost = 0, support = 0;
+ 		for(int index1=0; index1<end1; index1+=3){
+ 			index2 = gallop(ppc2, index2, end2, 1, ppc1[index1+1]);
+ 			if(index2 == end2) break;	// No node2 ends after node1 and all nodes after it
+ 			int pre2 = ppc2[index2];
+ 			if(pre2 > ppc1[index1]){
+ 				// node2 starts after node1, node1 has no ancestor
+ 				lost += ppc1[index1+2];
+ 				if(lost > max_lost){
+ 					this.append(index, support);
+ 					return -1;
+ 				}
+ 				continue;
+ 			}
+ 			support += ppc1[index1+2];
+ 			if(last_pre == pre2){
+ 				ppc[index-1] += ppc1[index1+2];
+ 			}else{
+ 				ppc[index] = pre2;
+ 				ppc[index+1] = ppc2[index2+1];
+ 				ppc[index+2] = ppc1[index1+2];
+ 				index += 3;
+ 				last_pre = pre2;
+ 			}
+ 		}
+ 		return this.append(index, support);
+ 	}
+
+ 	/**
+ 	 * Intersection for a 'nodelist1' much longer than 'nodelist2'.
+ 	 * </br>The descendants of node2 in 'nodelist1' are a run starting from the first node with a greater pre-code, and
+ 	 * ending before the first node with a greater pos-code. For each node2, the run is found by galloping from the
+ 	 * end of the previous run, and only the nodes of the run are read.
+ 	 * </br>The result is the same as intersectMerge().
+ 	 */
+ 	private int intersectGallopingDescendants(Nodelist nodelist1, Nodelist nodelist2){
+ 		int[] ppc1 = nodelist1.ppc, ppc2 = nodelist2.ppc, ppc = this.ppc;
+ 		int end1 = 3*nodelist1.size(), end2 = 3*nodelist2.size(), index1 = 0, index = 3*this.size, support = 0;
+ 		for(int index2=0; index2<end2; index2+=3){
+ 			int pre2 = ppc2[index2], pos2 = ppc2[index2+1], count = 0;
+ 			index1 = gallop(ppc1, index1, end1, 0, pre2);
+ 			if(index1 == end1) break;	// No node1 starts after node2 and all nodes after it
+ 			for(; index1<end1 && ppc1[index1+1]<pos2; index1+=3) count += ppc1[index1+2];
+ 			if(count > 0){
+ 				ppc[index] = pre2;
+ 				ppc[index+1] = pos2;
+ 				ppc[index+2] = count;
+ 				index += 3;
+ 				support += count;
+ 			}
+ 		}
+ 		return this.append(index, support);
+ 	}
+
+ 	/**
+ 	 * Exponential search followed by a binary search.
+ 	 * @param ppc node array, the values at 'field' increase
+ 	 * @param from index of the first node to search
+ 	 * @param end index after the last node
+ 	 * @param field 0: pre-code, 1: pos-code
+ 	 * @param key
+ 	 * @return index of the first node from 'from' whose value at 'field' is greater than 'key', 'end' if there is none
+ 	 */
+ 	private static int gallop(int[] ppc, int from, int end, int field, int key){
+ 		if(from == end || ppc[from+field] > key) return from;
+ 		// ppc[low] <= key < ppc[high]
+ 		int low = from, high = end, step = 3;
+ 		while(low + step < end){
+ 			if(ppc[low+step+field] > key){
+ 				high = low + step;
+ 				break;
+ 			}
+ 			low += step;
+ 			step <<= 1;
+ 		}
+ 		while(high - low > 3){
+ 			int middle = low + (high-low)/6*3;
+ 			if(ppc[middle+field] > key) high = middle;
+ 			else low = middle;
+ 		}
+ 		return high;
+ 	}
+
+ 	/**
+ 	 * Remove all nodes, the capacity is kept so the node list can be reused without allocation
+ 	 */
+ 	public void clear(){
+ 		this.size = 0;
+ 		this.support_count = 0;
+ 	}
+
+ 	/**
+ 	 * @return a copy of this node list whose capacity is the size
+ 	 */
+ 	public Nodelist copy(){
+ 		Nodelist nodelist = new Nodelist(size);
+ 		System.arraycopy(this.ppc, 0, nodelist.ppc, 0, 3*size);
+ 		nodelist.size = size;
+ 		nodelist.support_count = support_count;
+ 		return nodelist;
+ 	}
+
+ 	/**
+ 	 * @return the node list to keep after the mining of this node list: a CompressedNodelist if the compression
+ 	 * is enabled, otherwise a copy whose capacity is the size
+ 	 */
+ 	public Nodelist compact(){
+ 		if(is_compressing) return new CompressedNodelist(this);
+ 		return this.copy();
+ 	}
+
+ 	/**
+ 	 * @return a cursor before the first node
+ 	 */
+ 	NodeCursor cursor(){
+ 		return new NodeCursor(this.ppc, this.size);
+ 	}
+
  	/**
  	 * This function should only be used when being sure that there will not be any new nodes added.
  	 * </br> Shrink the capacity to the size.
  	 * @param efficient_rate: if the size < capacity*efficient_rate, the shrink will be done.
  	 */
  	public void shrink(float efficient_rate){
- 		if(this.size < this.ppc[0].length*efficient_rate){
- 			// Too much waste room, shrink
- 			int[][] new_space = new int[3][size];
- 			// Copy
- 			System.arraycopy(this.ppc[0], 0, new_space[0], 0, size);
- 			System.arraycopy(this.ppc[1], 0, new_space[1], 0, size);
- 			System.arraycopy(this.ppc[2], 0, new_space[2], 0, size);
- 			this.ppc = new_space;
- 		}
+ 		if(this.size < this.capacity()*efficient_rate) this.shrink();	// Too much waste room, shrink
  	}
- 	
+
  	public void shrink(){
-		int[][] new_space = new int[3][size];
-		// Copy
-		System.arraycopy(this.ppc[0], 0, new_space[0], 0, size);
-		System.arraycopy(this.ppc[1], 0, new_space[1], 0, size);
-		System.arraycopy(this.ppc[2], 0, new_space[2], 0, size);
+ 		if(3*size == this.ppc.length) return;
+		int[] new_space = new int[3*size];
+		System.arraycopy(this.ppc, 0, new_space, 0, 3*size);
 		this.ppc = new_space;
  	}
+
+	/**
+	 * Read the nodes of a node list one by one, from the start to the end.
+	 * </br>After next() returned true, the fields are the properties of the current node.
+	 */
+	static class NodeCursor {
+		int pre, pos, count;
+		private int[] ppc;
+		private int index, end;
+
+		NodeCursor(){}
+
+		NodeCursor(int[] ppc, int size){
+			this.ppc = ppc;
+			this.index = -3;
+			this.end = 3*size;
+		}
+
+		/**
+		 * @return false if there is no more node
+		 */
+		boolean next(){
+			index += 3;
+			if(index >= end) return false;
+			pre = ppc[index];
+			pos = ppc[index+1];
+			count = ppc[index+2];
+			return true;
+		}
+	}
 }
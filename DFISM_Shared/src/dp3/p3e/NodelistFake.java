@@ -6,6 +6,10 @@ package dp3.p3e;
  * </br>The purpose is to reduce memory overhead. 
  */
 class NodelistFake extends Nodelist {
+	/**
+	 * Returned instead of the node list of an itemset which is known to be infrequent, shared by all threads
+	 */
+	static final NodelistFake INFREQUENT = new NodelistFake();
 	
  	public NodelistFake(){}
  	
@@ -19,6 +23,10 @@ class NodelistFake extends Nodelist {
  	
  	public void shrink(){}
  	
+ 	public Nodelist compact(){
+ 		return this;
+ 	}
+ 	
  	public int totalSupportCount(){
  		return 0;
  	}
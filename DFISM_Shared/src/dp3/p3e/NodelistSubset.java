@@ -1,19 +1,19 @@
 package dp3.p3e;
 
-import java.util.HashMap;
-import java.util.Map;
+import dfism.commons.collections.ItemsetObjectMap;
 
 /**
  * Two public properties:
  * </br> nodelist: node list of a frequent 2-itemset 
- * </br> itemset_nodelist: a map of frequent k-itemsets (k>2) to their node lists. These k-itemset share the same 2-itemset
+ * </br> itemset_nodelist: a map of frequent k-itemsets (k>2) to their node lists. These k-itemset share the same 2-itemset,
+ * which is omitted from the keys as in FPSubset
  */
 class NodelistSubset {
 	public Nodelist nodelist;
-	public Map<String, Nodelist> itemset_nodelist;
+	public ItemsetObjectMap<Nodelist> itemset_nodelist;
 	
 	public NodelistSubset(Nodelist nodelist) {
 		this.nodelist = nodelist;
-		this.itemset_nodelist = new HashMap<String, Nodelist>();
+		this.itemset_nodelist = new ItemsetObjectMap<Nodelist>();
 	}
 }
@@ -0,0 +1,601 @@
+package dp3.p3e;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import dfism.io.TransactionReader;
+
+/**
+ * PPC tree stored as parallel int arrays instead of one object per node.
+ * </br>A node is an int id, its properties are item code, count, parent, first child, next sibling, pre and pos.
+ * Each property is kept in chunks of int arrays, so the tree grows without copying the nodes.
+ * </br>The root has the id 0. Child lists are linked through 'next sibling' in increasing order of item codes.
+ * While building, children of the root are found through a direct index on item codes;
+ * they are linked as a child list by finishBuilding().
+ * </br>Threads can add nodes to the same tree at the same time through their own Allocator: every allocator takes
+ * whole chunks, so node ids of different threads never collide (the last chunk of an allocator may stay partly unused).
+ * Before that, reserve() must make room for all chunks, so the outer arrays are not replaced while threads read them.
+ * </br>Compared to node objects (object header, parent pointer and an ArrayList of children for each node),
+ * a node takes 28 bytes and the whole tree consists of a few hundred arrays, so it is cheap for GC.
+ */
+class PPCTree {
+	public static final int ROOT = 0;
+	public static final int NONE = -1;
+
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;	// nodes per chunk
+	private static final int CHUNK_MASK = CHUNK_SIZE-1;
+
+	private int[][] itemCodes = new int[16][];
+	private int[][] counts = new int[16][];
+	private int[][] parents = new int[16][];
+	private int[][] firstChildren = new int[16][];
+	private int[][] nextSiblings = new int[16][];
+	private int[][] pres = new int[16][];
+	private int[][] poss = new int[16][];
+	private int chunk_count = 0;	// allocated chunks
+	private int node_count = 0;		// number of nodes, root included
+	private final Allocator allocator = new Allocator();	// for single-threaded building
+
+	private int[] rootChildren;		// item code -> child of the root, NONE if not exist
+
+	private static final int BATCH_ITEM_CAPACITY = 1 << 20;		// item codes per batch, 4 MB
+	private static final int BATCH_TRANSACTION_CAPACITY = 1 << 16;
+
+	/**
+	 * @param item_count number of item codes, item codes are in [0, item_count)
+	 */
+	public PPCTree(int item_count){
+		this.rootChildren = new int[item_count];
+		Arrays.fill(this.rootChildren, NONE);
+		this.newNode(allocator, -1, NONE, 0);	// Root
+	}
+
+	/**
+	 * @return number of nodes, root included
+	 */
+	public int size(){
+		return node_count + allocator.node_count;
+	}
+
+	public int itemCode(int node){
+		return itemCodes[node >>> CHUNK_BITS][node & CHUNK_MASK];
+	}
+
+	public int count(int node){
+		return counts[node >>> CHUNK_BITS][node & CHUNK_MASK];
+	}
+
+	public int parent(int node){
+		return parents[node >>> CHUNK_BITS][node & CHUNK_MASK];
+	}
+
+	public int firstChild(int node){
+		return firstChildren[node >>> CHUNK_BITS][node & CHUNK_MASK];
+	}
+
+	public int nextSibling(int node){
+		return nextSiblings[node >>> CHUNK_BITS][node & CHUNK_MASK];
+	}
+
+	public int pre(int node){
+		return pres[node >>> CHUNK_BITS][node & CHUNK_MASK];
+	}
+
+	public int pos(int node){
+		return poss[node >>> CHUNK_BITS][node & CHUNK_MASK];
+	}
+
+	public void setPrePos(int node, int pre, int pos){
+		pres[node >>> CHUNK_BITS][node & CHUNK_MASK] = pre;
+		poss[node >>> CHUNK_BITS][node & CHUNK_MASK] = pos;
+	}
+
+	/**
+	 * The next node of a pre-order traversal of the subtree of 'subtree_root', it walks through child, sibling and
+	 * parent links only, so traversals need no stack and work for any depth.
+	 * @return the next node, NONE if 'node' is the last node of the subtree
+	 */
+	public int nextPreOrder(int node, int subtree_root){
+		int next = firstChildren[node >>> CHUNK_BITS][node & CHUNK_MASK];
+		if(next != NONE) return next;
+		while(node != subtree_root){
+			next = nextSiblings[node >>> CHUNK_BITS][node & CHUNK_MASK];
+			if(next != NONE) return next;
+			node = parents[node >>> CHUNK_BITS][node & CHUNK_MASK];
+		}
+		return NONE;
+	}
+
+	/**
+	 * @return number of nodes in the subtree of 'subtree_root', 'subtree_root' included
+	 */
+	public int subtreeSize(int subtree_root){
+		int size = 0;
+		for(int node=subtree_root; node != NONE; node=this.nextPreOrder(node, subtree_root)) size++;
+		return size;
+	}
+
+	/**
+	 * Traverse the subtree of 'subtree_root' with pre&post-order and assign two ordinal numbers for each node.
+	 * </br>The codes start from 'first_pre' and 'first_pos', so subtrees can be numbered independently when
+	 * the codes of the nodes before them are known.
+	 */
+	public void assignPrePosOrderCode(int subtree_root, int first_pre, int first_pos){
+		int pre = first_pre, pos = first_pos, node = subtree_root, next;
+		while(true){
+			pres[node >>> CHUNK_BITS][node & CHUNK_MASK] = pre++;
+			next = firstChildren[node >>> CHUNK_BITS][node & CHUNK_MASK];
+			if(next != NONE){
+				node = next;
+				continue;
+			}
+
+			// A leaf: its post-order code is given, and so for all ancestors whose last child is done
+			while(true){
+				poss[node >>> CHUNK_BITS][node & CHUNK_MASK] = pos++;
+				if(node == subtree_root) return;
+				next = nextSiblings[node >>> CHUNK_BITS][node & CHUNK_MASK];
+				if(next != NONE) break;
+				node = parents[node >>> CHUNK_BITS][node & CHUNK_MASK];
+			}
+			node = next;
+		}
+	}
+
+	/**
+	 * Insert all transactions of the reader into the tree, then close the reader.
+	 * @param input
+	 * @param itemId_globalIndex item id of the source -> item code, -1 for items which are not frequent
+	 * @throws IOException
+	 */
+	public void insertTransactions(TransactionReader input, int[] itemId_globalIndex) throws IOException {
+		int[] items;
+		int[] sortedFrequentItemsTransaction = new int[rootChildren.length];
+		int count = 0, length, index;
+
+		while ((length = input.next()) >= 0) {
+			items = input.items();
+			count=0;
+
+			if(length > sortedFrequentItemsTransaction.length) sortedFrequentItemsTransaction = new int[length];
+			for(int i=0; i<length; i++) {
+				index = itemId_globalIndex[items[i]];
+				if(index < 0) continue;
+				sortedFrequentItemsTransaction[count] = index;
+				count++;
+			}
+			// Sort increasing, so the inverted order of items for insertTransaction
+			Arrays.sort(sortedFrequentItemsTransaction, 0, count);
+
+			// Insert the prepared transaction into the PPC tree
+			this.insertTransaction(sortedFrequentItemsTransaction, count);
+		}
+		input.close();
+	}
+
+	/**
+	 * Insert all transactions of the reader into the tree batch by batch, then close the reader.
+	 * </br>The transactions of a batch are sorted by their paths, so a transaction shares the longest possible prefix
+	 * with the one inserted before it. Insertion continues from the end of that prefix instead of the root, and
+	 * equal transactions are inserted once with their number as the weight. The result is the same tree as
+	 * insertTransactions() gives.
+	 * @param input
+	 * @param itemId_globalIndex item id of the source -> item code, -1 for items which are not frequent
+	 * @throws IOException
+	 */
+	public void insertTransactionsInBatches(TransactionReader input, int[] itemId_globalIndex) throws IOException {
+		int[] items;
+		int[] sortedFrequentItemsTransaction = new int[rootChildren.length];
+		int[] batch = new int[BATCH_ITEM_CAPACITY];		// paths of the transactions, one after another
+		int[] starts = new int[BATCH_TRANSACTION_CAPACITY+1];	// path i is [starts[i], starts[i+1]) of 'batch'
+		int[] order = new int[BATCH_TRANSACTION_CAPACITY], temp = new int[BATCH_TRANSACTION_CAPACITY];
+		int batch_length = 0, transaction_count = 0, count, length, index;
+
+		while ((length = input.next()) >= 0) {
+			items = input.items();
+			count=0;
+
+			if(length > sortedFrequentItemsTransaction.length) sortedFrequentItemsTransaction = new int[length];
+			for(int i=0; i<length; i++) {
+				index = itemId_globalIndex[items[i]];
+				if(index < 0) continue;
+				sortedFrequentItemsTransaction[count] = index;
+				count++;
+			}
+			if(count == 0) continue;
+			Arrays.sort(sortedFrequentItemsTransaction, 0, count);
+
+			if(transaction_count == BATCH_TRANSACTION_CAPACITY || batch_length+count > batch.length){
+				this.insertBatch(batch, starts, transaction_count, order, temp);
+				batch_length = transaction_count = 0;
+				if(count > batch.length) batch = new int[count];
+			}
+
+			// The path of a transaction goes from the root in decreasing order of item codes
+			for(int i=count-1; i>-1; i--) batch[batch_length++] = sortedFrequentItemsTransaction[i];
+			transaction_count++;
+			starts[transaction_count] = batch_length;
+		}
+		this.insertBatch(batch, starts, transaction_count, order, temp);
+		input.close();
+	}
+
+	/**
+	 * Sort the paths of a batch and insert them with a cursor on the path inserted before.
+	 */
+	private void insertBatch(int[] batch, int[] starts, int transaction_count, int[] order, int[] temp){
+		if(transaction_count == 0) return;
+		for(int i=0; i<transaction_count; i++) order[i] = i;
+		sortPaths(batch, starts, order, temp, 0, transaction_count);
+
+		int[] path = new int[64];		// nodes of the path inserted before
+		int path_length = 0, previous_start = 0;
+		int t, start, length, shared, weight, depth, itemCode, node, child, previous, new_node;
+		for(int k=0; k<transaction_count; k++){
+			t = order[k];
+			start = starts[t];
+			length = starts[t+1] - start;
+
+			// Equal paths are next to each other after sorting
+			weight = 1;
+			while(k+1 < transaction_count && sharedLength(batch, starts, t, order[k+1]) == length
+					&& starts[order[k+1]+1] - starts[order[k+1]] == length){
+				weight++;
+				k++;
+			}
+
+			// The shared prefix with the path before exists already
+			shared = Math.min(path_length, length);
+			for(depth=0; depth<shared; depth++){
+				if(batch[previous_start+depth] != batch[start+depth]) break;
+				node = path[depth];
+				counts[node >>> CHUNK_BITS][node & CHUNK_MASK] += weight;
+			}
+			shared = depth;
+
+			if(length > path.length) path = Arrays.copyOf(path, Math.max(length, path.length << 1));
+			for(depth=shared; depth<length; depth++){
+				itemCode = batch[start+depth];
+				if(depth == 0){
+					// Level 1: direct index on item codes
+					node = rootChildren[itemCode];
+					if(node == NONE){
+						node = this.newNode(allocator, itemCode, ROOT, weight);
+						rootChildren[itemCode] = node;
+					}else counts[node >>> CHUNK_BITS][node & CHUNK_MASK] += weight;
+					path[depth] = node;
+					continue;
+				}
+
+				// Where the paths differ, the node of the path before has a smaller item code and the same parent,
+				// so the search in the ordered child list starts from it. Below that, it starts from the first child.
+				node = path[depth-1];
+				if(depth == shared && depth < path_length){
+					previous = path[depth];
+					child = nextSiblings[previous >>> CHUNK_BITS][previous & CHUNK_MASK];
+				}else{
+					previous = NONE;
+					child = firstChildren[node >>> CHUNK_BITS][node & CHUNK_MASK];
+				}
+				while(child != NONE && itemCodes[child >>> CHUNK_BITS][child & CHUNK_MASK] < itemCode){
+					previous = child;
+					child = nextSiblings[child >>> CHUNK_BITS][child & CHUNK_MASK];
+				}
+
+				if(child != NONE && itemCodes[child >>> CHUNK_BITS][child & CHUNK_MASK] == itemCode){
+					counts[child >>> CHUNK_BITS][child & CHUNK_MASK] += weight;
+					path[depth] = child;
+				}else{
+					new_node = this.newNode(allocator, itemCode, node, weight);
+					nextSiblings[new_node >>> CHUNK_BITS][new_node & CHUNK_MASK] = child;
+					if(previous == NONE) firstChildren[node >>> CHUNK_BITS][node & CHUNK_MASK] = new_node;
+					else nextSiblings[previous >>> CHUNK_BITS][previous & CHUNK_MASK] = new_node;
+					path[depth] = new_node;
+				}
+			}
+			path_length = length;
+			previous_start = start;
+		}
+	}
+
+	/**
+	 * @return length of the common prefix of the paths t1 and t2
+	 */
+	private static int sharedLength(int[] batch, int[] starts, int t1, int t2){
+		int i1 = starts[t1], i2 = starts[t2];
+		int length = Math.min(starts[t1+1] - i1, starts[t2+1] - i2), i = 0;
+		while(i < length && batch[i1+i] == batch[i2+i]) i++;
+		return i;
+	}
+
+	/**
+	 * Compare the paths t1 and t2 lexicographically, a path is before the longer paths it is a prefix of
+	 */
+	private static int comparePaths(int[] batch, int[] starts, int t1, int t2){
+		int shared = sharedLength(batch, starts, t1, t2);
+		int length1 = starts[t1+1] - starts[t1], length2 = starts[t2+1] - starts[t2];
+		if(shared < length1 && shared < length2) return batch[starts[t1]+shared] < batch[starts[t2]+shared] ? -1 : 1;
+		return length1 - length2;
+	}
+
+	/**
+	 * Merge sort order[from, to) by comparePaths()
+	 */
+	private static void sortPaths(int[] batch, int[] starts, int[] order, int[] temp, int from, int to){
+		if(to - from < 16){
+			int t, j;
+			for(int i=from+1; i<to; i++){
+				t = order[i];
+				for(j=i; j>from && comparePaths(batch, starts, order[j-1], t) > 0; j--) order[j] = order[j-1];
+				order[j] = t;
+			}
+			return;
+		}
+
+		int middle = (from + to) >>> 1;
+		sortPaths(batch, starts, order, temp, from, middle);
+		sortPaths(batch, starts, order, temp, middle, to);
+		if(comparePaths(batch, starts, order[middle-1], order[middle]) <= 0) return;	// Already in order
+
+		System.arraycopy(order, from, temp, from, to-from);
+		int i = from, j = middle, k = from;
+		while(i < middle && j < to){
+			if(comparePaths(batch, starts, temp[j], temp[i]) < 0) order[k++] = temp[j++];
+			else order[k++] = temp[i++];
+		}
+		while(i < middle) order[k++] = temp[i++];
+		while(j < to) order[k++] = temp[j++];
+	}
+
+	/**
+	 * Insert a transaction into the tree, counts of the nodes on its path are increased by 1.
+	 * @param transaction item codes in increasing order, they are inserted from the last one
+	 * @param length number of item codes
+	 */
+	public void insertTransaction(int[] transaction, int length){
+		if(length == 0) return;
+
+		// Level 1: direct index on item codes
+		int itemCode = transaction[length-1];
+		int node = rootChildren[itemCode];
+		if(node == NONE){
+			node = this.newNode(allocator, itemCode, ROOT, 1);
+			rootChildren[itemCode] = node;
+		}else counts[node >>> CHUNK_BITS][node & CHUNK_MASK]++;
+
+		// Lower levels: walk the ordered child list
+		int child, previous;
+		for(int i=length-2; i>-1; i--){
+			itemCode = transaction[i];
+			previous = NONE;
+			child = firstChildren[node >>> CHUNK_BITS][node & CHUNK_MASK];
+			while(child != NONE && itemCodes[child >>> CHUNK_BITS][child & CHUNK_MASK] < itemCode){
+				previous = child;
+				child = nextSiblings[child >>> CHUNK_BITS][child & CHUNK_MASK];
+			}
+
+			if(child != NONE && itemCodes[child >>> CHUNK_BITS][child & CHUNK_MASK] == itemCode){
+				counts[child >>> CHUNK_BITS][child & CHUNK_MASK]++;
+				node = child;
+			}else{
+				int new_node = this.newNode(allocator, itemCode, node, 1);
+				nextSiblings[new_node >>> CHUNK_BITS][new_node & CHUNK_MASK] = child;
+				if(previous == NONE) firstChildren[node >>> CHUNK_BITS][node & CHUNK_MASK] = new_node;
+				else nextSiblings[previous >>> CHUNK_BITS][previous & CHUNK_MASK] = new_node;
+				node = new_node;
+			}
+		}
+	}
+
+	/**
+	 * Build a tree from columns of nodes in pre-order, used for loading snapshots.
+	 * @param itemCodes item codes of the nodes
+	 * @param counts counts of the nodes
+	 * @param parents pre-order indexes of the parents of the nodes
+	 * @param node_count number of nodes, root included
+	 * @param code_offset nodes of item codes smaller than 'code_offset' are left out,
+	 * the other item codes are decreased by 'code_offset'. Left out nodes must not have children which are kept.
+	 * @param item_count number of item codes of the new tree
+	 */
+	static PPCTree fromPreOrder(IntBuffer itemCodes, IntBuffer counts, IntBuffer parents, int node_count,
+								int code_offset, int item_count){
+		PPCTree tree = new PPCTree(item_count);
+		tree.reserve(node_count, 1);
+		int[] ids = new int[node_count];	// pre-order index -> node id of the new tree
+		ids[0] = ROOT;
+
+		// Children come in pre-order, so they are appended in increasing order of item codes.
+		// Until pre&post-order codes are assigned, 'pos' of a node keeps its last child (ROOT: no child yet).
+		int[][] firstChildren = tree.firstChildren, nextSiblings = tree.nextSiblings, poss = tree.poss;
+		int itemCode, parent, node, last;
+		for(int i=1; i<node_count; i++){
+			itemCode = itemCodes.get(i) - code_offset;
+			if(itemCode < 0){
+				ids[i] = NONE;
+				continue;
+			}
+			parent = ids[parents.get(i)];
+			node = tree.newNode(tree.allocator, itemCode, parent, counts.get(i));
+			ids[i] = node;
+
+			if(parent == ROOT){
+				tree.rootChildren[itemCode] = node;
+				continue;
+			}
+			last = poss[parent >>> CHUNK_BITS][parent & CHUNK_MASK];
+			if(last == ROOT) firstChildren[parent >>> CHUNK_BITS][parent & CHUNK_MASK] = node;
+			else nextSiblings[last >>> CHUNK_BITS][last & CHUNK_MASK] = node;
+			poss[parent >>> CHUNK_BITS][parent & CHUNK_MASK] = node;
+		}
+		tree.finishBuilding();
+		return tree;
+	}
+
+	/**
+	 * Link the children of the root as an ordered child list, call this function after the last insertion.
+	 */
+	public void finishBuilding(){
+		int previous = NONE, node;
+		for(int itemCode=rootChildren.length-1; itemCode>-1; itemCode--){
+			node = rootChildren[itemCode];
+			if(node == NONE) continue;
+			nextSiblings[node >>> CHUNK_BITS][node & CHUNK_MASK] = previous;
+			previous = node;
+		}
+		firstChildren[0][ROOT] = previous;
+	}
+
+	/**
+	 * @return children of the root in increasing order of item codes
+	 */
+	public int[] getLevel1Nodes(){
+		int count = 0;
+		for(int child=this.firstChild(ROOT); child != NONE; child = this.nextSibling(child)) count++;
+		int[] nodes = new int[count];
+		count = 0;
+		for(int child=this.firstChild(ROOT); child != NONE; child = this.nextSibling(child)) nodes[count++] = child;
+		return nodes;
+	}
+
+	/**
+	 * Merge the branch of the level-1 node 'source_node' of another tree into this tree, the counts of equal paths are
+	 * summed. Branches of different level-1 item codes can be merged by different threads at the same time.
+	 * @param source the other tree, it is only read
+	 * @param source_node a child of the root of the other tree
+	 * @param allocator the allocator of the calling thread
+	 */
+	public void mergeBranch(PPCTree source, int source_node, Allocator allocator){
+		int itemCode = source.itemCode(source_node);
+		int node = rootChildren[itemCode];
+		if(node == NONE){
+			node = this.newNode(allocator, itemCode, ROOT, 0);
+			rootChildren[itemCode] = node;
+		}
+
+		// Pairs (node of this tree, node of the source tree) having the same path, the explicit stack fits any depth
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = node;
+		stack[top++] = source_node;
+
+		int target, child, previous, new_node;
+		while(top > 0){
+			source_node = stack[--top];
+			target = stack[--top];
+			counts[target >>> CHUNK_BITS][target & CHUNK_MASK] += source.count(source_node);
+
+			// Both child lists are in increasing order of item codes
+			previous = NONE;
+			child = firstChildren[target >>> CHUNK_BITS][target & CHUNK_MASK];
+			for(int source_child=source.firstChild(source_node); source_child != NONE; source_child=source.nextSibling(source_child)){
+				itemCode = source.itemCode(source_child);
+				while(child != NONE && itemCodes[child >>> CHUNK_BITS][child & CHUNK_MASK] < itemCode){
+					previous = child;
+					child = nextSiblings[child >>> CHUNK_BITS][child & CHUNK_MASK];
+				}
+
+				if(child != NONE && itemCodes[child >>> CHUNK_BITS][child & CHUNK_MASK] == itemCode){
+					node = child;
+					child = nextSiblings[child >>> CHUNK_BITS][child & CHUNK_MASK];
+				}else{
+					node = new_node = this.newNode(allocator, itemCode, target, 0);
+					nextSiblings[new_node >>> CHUNK_BITS][new_node & CHUNK_MASK] = child;
+					if(previous == NONE) firstChildren[target >>> CHUNK_BITS][target & CHUNK_MASK] = new_node;
+					else nextSiblings[previous >>> CHUNK_BITS][previous & CHUNK_MASK] = new_node;
+				}
+				previous = node;
+
+				if(top+2 > stack.length) stack = Arrays.copyOf(stack, stack.length << 1);
+				stack[top++] = node;
+				stack[top++] = source_child;
+			}
+		}
+	}
+
+	/**
+	 * @return the child of the root having the item code, NONE if not exist
+	 */
+	public int getRootChild(int itemCode){
+		return rootChildren[itemCode];
+	}
+
+	/**
+	 * Create an allocator for a thread which adds nodes to this tree
+	 */
+	public Allocator newAllocator(){
+		return new Allocator();
+	}
+
+	/**
+	 * Count the nodes of an allocator into the tree, call this function when the thread finished adding nodes.
+	 */
+	public synchronized void releaseAllocator(Allocator allocator){
+		node_count += allocator.node_count;
+		allocator.node_count = 0;
+		allocator.next = allocator.end = 0;
+	}
+
+	private int newNode(Allocator allocator, int itemCode, int parent, int count){
+		if(allocator.next == allocator.end){
+			allocator.next = this.allocateChunk() << CHUNK_BITS;
+			allocator.end = allocator.next + CHUNK_SIZE;
+		}
+		int node = allocator.next++;
+		int chunk = node >>> CHUNK_BITS, offset = node & CHUNK_MASK;
+
+		itemCodes[chunk][offset] = itemCode;
+		counts[chunk][offset] = count;
+		parents[chunk][offset] = parent;
+		firstChildren[chunk][offset] = NONE;
+		nextSiblings[chunk][offset] = NONE;
+		allocator.node_count++;
+		return node;
+	}
+
+	/**
+	 * Make room in the outer arrays for the chunks of 'node_count' more nodes added through 'allocator_count' allocators.
+	 */
+	public synchronized void reserve(long node_count, int allocator_count){
+		long chunks = chunk_count + (node_count + CHUNK_SIZE - 1)/CHUNK_SIZE + allocator_count;
+		if(chunks > itemCodes.length) this.growOuterArrays((int)chunks);
+	}
+
+	/**
+	 * @return index of a new chunk
+	 */
+	private synchronized int allocateChunk(){
+		int chunk = chunk_count++;
+		if(chunk == itemCodes.length) this.growOuterArrays(chunk << 1);
+		itemCodes[chunk] = new int[CHUNK_SIZE];
+		counts[chunk] = new int[CHUNK_SIZE];
+		parents[chunk] = new int[CHUNK_SIZE];
+		firstChildren[chunk] = new int[CHUNK_SIZE];
+		nextSiblings[chunk] = new int[CHUNK_SIZE];
+		pres[chunk] = new int[CHUNK_SIZE];
+		poss[chunk] = new int[CHUNK_SIZE];
+		return chunk;
+	}
+
+	private void growOuterArrays(int capacity){
+		itemCodes = Arrays.copyOf(itemCodes, capacity);
+		counts = Arrays.copyOf(counts, capacity);
+		parents = Arrays.copyOf(parents, capacity);
+		firstChildren = Arrays.copyOf(firstChildren, capacity);
+		nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+		pres = Arrays.copyOf(pres, capacity);
+		poss = Arrays.copyOf(poss, capacity);
+	}
+
+	/**
+	 * Nodes are taken from the chunk owned by the allocator, so threads add nodes without synchronization.
+	 */
+	public static final class Allocator {
+		private int next = 0;		// id of the next node
+		private int end = 0;		// end of the ids of the current chunk
+		private int node_count = 0;
+
+		private Allocator(){}
+	}
+}
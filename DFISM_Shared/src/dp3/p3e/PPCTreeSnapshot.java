@@ -0,0 +1,211 @@
+package dp3.p3e;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import dfism.io.ItemDictionary;
+
+/**
+ * A binary snapshot of a built PPC tree, so the same dataset can be mined again without reading it.
+ * <ul>
+ * <li>Header: magic, version, offset of the tree, transaction count, item count, then each item of the dataset
+ * with its support count, then the global frequent items in the order of their item codes.
+ * <li>Tree: node count, then three int columns of the nodes in pre-order: item code, count and
+ * the pre-order index of the parent. The columns are memory-mapped when the tree is loaded.
+ * </ul>
+ * The support counts make the counting pass unnecessary. The tree fits a later mining if its global frequent items
+ * are the items of the snapshot without some of the items having the smallest item codes: those items are
+ * always at the bottom of the paths, so their nodes are just left out.
+ */
+public class PPCTreeSnapshot {
+	public static final int MAGIC = 0x44465053;	// "DFPS"
+	public static final int VERSION = 1;
+
+	private final String fileName;
+	private long tree_offset;
+	private int transaction_count;
+	private String[] items;
+	private int[] itemSupports;
+	private List<String> globalItems;
+
+	/**
+	 * Open a snapshot, the header is read immediately.
+	 * @param fileName
+	 * @throws IOException
+	 */
+	public PPCTreeSnapshot(String fileName) throws IOException{
+		this.fileName = fileName;
+
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+		if(input.readInt() != MAGIC || input.readInt() != VERSION){
+			input.close();
+			throw new IOException("Not a PPC tree snapshot: " + fileName);
+		}
+		this.tree_offset = input.readLong();
+		this.transaction_count = input.readInt();
+		int item_count = input.readInt();
+		this.items = new String[item_count];
+		this.itemSupports = new int[item_count];
+		for(int i=0; i<item_count; i++){
+			items[i] = input.readUTF();
+			itemSupports[i] = input.readInt();
+		}
+		int global_item_count = input.readInt();
+		this.globalItems = new ArrayList<String>(global_item_count);
+		for(int i=0; i<global_item_count; i++) globalItems.add(input.readUTF());
+		input.close();
+	}
+
+	public int transactionCount(){
+		return transaction_count;
+	}
+
+	/**
+	 * @return all items of the dataset
+	 */
+	public String[] getItems(){
+		return items;
+	}
+
+	/**
+	 * @return support counts of the items returned by getItems()
+	 */
+	public int[] getItemSupports(){
+		return itemSupports;
+	}
+
+	/**
+	 * @return the global frequent items of the tree, the index of an item is its item code
+	 */
+	public List<String> getGlobalItems(){
+		return globalItems;
+	}
+
+	/**
+	 * @param globalIndex_item global frequent items of a new mining, the index of an item is its item code
+	 * @return the difference between the item codes of the snapshot and the new item codes,
+	 * -1 if the tree does not fit the new global frequent items
+	 */
+	public int fit(List<String> globalIndex_item){
+		int code_offset = globalItems.size() - globalIndex_item.size();
+		if(code_offset < 0) return -1;
+		for(int i=0; i<globalIndex_item.size(); i++){
+			if(!globalIndex_item.get(i).equals(globalItems.get(i+code_offset))) return -1;
+		}
+		return code_offset;
+	}
+
+	/**
+	 * Load the tree, nodes of item codes smaller than 'code_offset' are left out.
+	 * Pre&post-order codes are not stored, they have to be assigned again.
+	 * @param code_offset the value returned by fit()
+	 * @return the PPC tree with the new item codes
+	 * @throws IOException
+	 */
+	PPCTree loadPPCTree(int code_offset) throws IOException{
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try{
+			FileChannel channel = file.getChannel();
+			file.seek(tree_offset);
+			int node_count = file.readInt();
+
+			// Each column is mapped on its own, so a column may take up to 2 GB
+			long column_size = 4L*node_count, offset = tree_offset + 4;
+			IntBuffer itemCodes = channel.map(FileChannel.MapMode.READ_ONLY, offset, column_size).asIntBuffer();
+			IntBuffer counts = channel.map(FileChannel.MapMode.READ_ONLY, offset + column_size, column_size).asIntBuffer();
+			IntBuffer parents = channel.map(FileChannel.MapMode.READ_ONLY, offset + 2*column_size, column_size).asIntBuffer();
+
+			return PPCTree.fromPreOrder(itemCodes, counts, parents, node_count, code_offset, globalItems.size()-code_offset);
+		}finally{
+			file.close();
+		}
+	}
+
+	/**
+	 * Store a PPC tree, pre&post-order codes must be assigned to the tree before.
+	 * The snapshot is written into a temporary file of its own then moved atomically over the snapshot, so a broken
+	 * snapshot is never taken, and concurrent stores of the same snapshot do not write into the same file.
+	 * @param fileName
+	 * @param transaction_count
+	 * @param dictionary items of the dataset
+	 * @param itemIdCounts item id in the dictionary -> support count
+	 * @param globalIndex_item global frequent items, the index of an item is its item code
+	 * @param ppcTree
+	 * @return running time
+	 * @throws IOException
+	 */
+	static long store(String fileName, int transaction_count, ItemDictionary dictionary, int[] itemIdCounts,
+						List<String> globalIndex_item, PPCTree ppcTree) throws IOException{
+		long start = System.currentTimeMillis();
+
+		File file = new File(fileName).getAbsoluteFile();
+		File dir = file.getParentFile();
+		if(!dir.exists()) dir.mkdirs();
+		File tempFile = File.createTempFile(file.getName(), ".tmp", dir);
+		try{
+			// Header
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16));
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(0);	// offset of the tree, updated at the end
+			output.writeInt(transaction_count);
+			int item_count = dictionary.size();
+			output.writeInt(item_count);
+			for(int id=0; id<item_count; id++){
+				output.writeUTF(dictionary.getItem(id));
+				output.writeInt(itemIdCounts[id]);
+			}
+			output.writeInt(globalIndex_item.size());
+			for(String item : globalIndex_item) output.writeUTF(item);
+			long tree_offset = output.size();
+
+			// Tree: one pre-order pass for each column, the pre-order index of a node is its pre-order code - 1
+			int root = PPCTree.ROOT, node_count = ppcTree.size();
+			output.writeInt(node_count);
+			for(int node=root; node != PPCTree.NONE; node=ppcTree.nextPreOrder(node, root)) output.writeInt(ppcTree.itemCode(node));
+			for(int node=root; node != PPCTree.NONE; node=ppcTree.nextPreOrder(node, root)) output.writeInt(ppcTree.count(node));
+			output.writeInt(-1);	// Parent of the root
+			for(int node=ppcTree.nextPreOrder(root, root); node != PPCTree.NONE; node=ppcTree.nextPreOrder(node, root)){
+				output.writeInt(ppcTree.pre(ppcTree.parent(node))-1);
+			}
+			output.close();
+
+			RandomAccessFile random_file = new RandomAccessFile(tempFile, "rw");
+			random_file.seek(8);
+			random_file.writeLong(tree_offset);
+			random_file.close();
+
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+		}finally{
+			tempFile.delete();
+		}
+
+		return System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * Get the file name of the snapshot of a dataset. The name is keyed by the name, the size and the last-modified
+	 * time of the dataset, so a changed dataset never uses an out-of-date snapshot.
+	 * @param dataFileName
+	 * @param directory
+	 * @return file name of the snapshot, the file may not exist
+	 */
+	public static String getSnapshotFile(String dataFileName, String directory){
+		File dataFile = new File(dataFileName);
+		return new File(directory, dataFile.getName() + "_" + dataFile.length() + "_" + dataFile.lastModified() + ".ppc").getPath();
+	}
+}
@@ -1,24 +1,37 @@
 package dp3.p3e;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
 
 import dfism.commons.GarbageCollector;
 import dfism.commons.IntHolder;
 import dfism.commons.Matrix;
 import dfism.commons.MemoryLogger;
+import dfism.commons.collections.IntIntMap;
+import dfism.commons.collections.ItemsetIntMap;
+import dfism.commons.collections.ItemsetObjectMap;
+import dfism.commons.collections.StringIntMap;
+import dfism.fpo.ClosedItemsetFilter;
 import dfism.fpo.FISMAlgorithm;
 import dfism.fpo.FPSubset;
+import dfism.fpo.FrequentItemsetSink;
+import dfism.fpo.MapItemsetSink;
+import dfism.io.BinaryTransactionFile;
+import dfism.io.ItemDictionary;
+import dfism.io.MappedTransactionScanner;
+import dfism.io.TransactionCache;
+import dfism.io.TransactionReader;
+import dfism.io.TransactionSource;
 
 /**
  * PrePostPlusE (PrePostPlus Enhanced) is an improved version of PrePostPlus.
@@ -36,22 +49,40 @@ import dfism.fpo.FPSubset;
 public class PrePostPlusE extends FISMAlgorithm {
 
 	///////////////////////////////////////////////PROPERTIES SECTION//////////////////////////////////////////////
-	private PPCNode root;
+	public static final String ENGINE = "nlist";
 	
-	private String fileName = null;
+	private PPCTree ppcTree;
+	
+	private TransactionSource source;
+	private int[] itemIdCounts;			// item id in the source's dictionary -> support count
+	private int[] itemId_globalIndex;	// item id in the source's dictionary -> global index, -1 if not frequent
 	private double threshold;
+	private long single_scan_memory_budget = -1;	// < 0: single-scan mode is disabled
+	private TransactionCache[] transaction_caches = null;
+	private boolean is_parallel_build = true;
+	private boolean is_batch_insertion = true;
+	private boolean is_task_cost_log = false;
+	private boolean is_memory_bounded_mining = false;
+	private FrequentItemsetSink sink = null;		// null: frequent k-itemsets are kept in 'hFrequentPatterns'
+	private boolean is_closed_mining = false;
+	private ClosedItemsetFilter closed_itemsets = null;	// result of the closed mode
+	private String snapshot_file = null;
+	private boolean is_snapshot_loading = false;
+	private boolean is_snapshot_storing = false;
+	private PPCTreeSnapshot snapshot = null;		// the loaded snapshot until the PPC tree is constructed
+	private static final long PARALLEL_COUNTING_MIN_SIZE = 1L << 24;	// text datasets from 16 MB are counted in parallel
     private int TRANSACTION_COUNT;
     private final int THREAD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors()/2);
     
-    private Map<String, Nodelist> item_nodelist;
-    private Map<String, NodelistSubset> hk_itemset_nodelist;
+    protected Nodelist[] item_nodelist;							// item code -> node list of the item
+    protected ItemsetObjectMap<NodelistSubset> hk_itemset_nodelist;	// codes of a 2-itemset -> its subspace
     
     //public List<String> globalIndex_item;				// global index -> item		// inherit from FISMAlgorithm
-    //public Map<String, Integer> item_globalIndex;		// item -> global index		// inherit from FISMAlgorithm
+    //public StringIntMap item_globalIndex;				// item -> global index		// inherit from FISMAlgorithm
     
     //public Map<String, FPSubset> hFrequentPatterns;					// inherit from FISMAlgorithm
     //public Map<String, Integer> itemsMaptoFrequencies;				// inherit from FISMAlgorithm
-    //public Map<Integer, Integer> itemCodesMaptoFrequencies;			// inherit from FISMAlgorithm
+    //public IntIntMap itemCodesMaptoFrequencies;						// inherit from FISMAlgorithm
     //protected Matrix matrix;											// inherit from FISMAlgorithm
     //protected int SUPPORT_COUNT_THRESHOLD								// inherit from FISMAlgorithm
     
@@ -59,46 +90,274 @@ public class PrePostPlusE extends FISMAlgorithm {
     	return TRANSACTION_COUNT;
     }
     
-    public PPCNode getRoot() {
-		return root;
+    public PPCTree getPPCTree() {
+		return ppcTree;
 	}
     
-    public PrePostPlusE(String fileName, double threshold) throws FileNotFoundException {
+    /**
+     * Create the mining engine of a job.
+     * @param engine ENGINE: node lists (PrePostPlusE), DiffsetPrePostPlusE.ENGINE: diffsets after level 1
+     * (DiffsetPrePostPlusE, for dense datasets)
+     * @param fileName a text dataset, or a dataset in the binary transaction format
+     * @param threshold
+     * @return
+     * @throws IOException
+     */
+    public static PrePostPlusE newInstance(String engine, String fileName, double threshold) throws IOException {
+    	if(engine.equalsIgnoreCase(ENGINE)) return new PrePostPlusE(fileName, threshold);
+    	if(engine.equalsIgnoreCase(DiffsetPrePostPlusE.ENGINE)) return new DiffsetPrePostPlusE(fileName, threshold);
+    	throw new IllegalArgumentException("Unknown mining engine: " + engine);
+    }
+    
+    /**
+     * @param fileName a text dataset, or a dataset in the binary transaction format
+     * @param threshold
+     * @throws IOException
+     */
+    public PrePostPlusE(String fileName, double threshold) throws IOException {
+        this(BinaryTransactionFile.isBinaryFile(fileName) ?
+        		new BinaryTransactionFile(fileName) : new MappedTransactionScanner(fileName), threshold);
+    }
+    
+    public PrePostPlusE(TransactionSource source, double threshold) {
         this.threshold = threshold;
-        this.fileName = fileName;
+        this.source = source;
+    }
+    
+    /**
+     * Enable the single-scan mode: the first pass keeps an int-encoded copy of the transactions,
+     * so constructPPCTree() does not read the dataset again.
+     * @param memory_budget maximum bytes of the copy held in memory, the remaining transactions are spilled to a temporary file
+     */
+    public void enableSingleScan(long memory_budget){
+    	this.single_scan_memory_budget = memory_budget;
+    }
+    
+    /**
+     * @param is_parallel_build true: the PPC tree is built by threads from parts of the dataset, then the partial trees
+     * are merged (faster, but the partial trees take extra memory); false: transactions are inserted by one thread
+     */
+    public void setParallelBuild(boolean is_parallel_build){
+    	this.is_parallel_build = is_parallel_build;
+    }
+    
+    /**
+     * @param is_batch_insertion true: transactions are sorted in batches and inserted with a cursor on the prefix shared
+     * with the transaction before, equal transactions are inserted once; false: transactions are inserted one by one from the root
+     */
+    public void setBatchInsertion(boolean is_batch_insertion){
+    	this.is_batch_insertion = is_batch_insertion;
+    }
+    
+    /**
+     * @param is_block_skipping true: N-list intersections skip runs of nodes which can not match block by block;
+     * false: the plain merge walk. Both give the same results.
+     * </br>The setting is process-wide, it applies to all instances and must not change while one of them is mining.
+     */
+    public static void setBlockSkippingIntersection(boolean is_block_skipping){
+    	Nodelist.setBlockSkipping(is_block_skipping);
+    }
+    
+    /**
+     * @param galloping_ratio an N-list at least this many times longer than the other one is searched by galloping
+     * in intersections, 0: never.
+     * </br>The setting is process-wide, as setBlockSkippingIntersection.
+     */
+    public static void setGallopingIntersectionRatio(int galloping_ratio){
+    	Nodelist.setGallopingRatio(galloping_ratio);
+    }
+    
+    /**
+     * @param is_compressed true: the node lists of frequent 2-itemsets and k-itemsets which are kept during the mining
+     * are compressed, this takes less memory but their intersections are slower.
+     * </br>The setting is process-wide, as setBlockSkippingIntersection.
+     */
+    public static void setCompressedNodelists(boolean is_compressed){
+    	Nodelist.setCompression(is_compressed);
+    }
+    
+    /**
+     * @param density_cutoff a frequent 2-itemset i1|i2 whose support count is at least this part of the support count
+     * of i1 is represented by a bitmap, and so are the itemsets of its subspace. 0: never. Not used by the diffset engine.
+     * </br>The setting is process-wide, as setBlockSkippingIntersection.
+     */
+    public static void setBitmapDensityCutoff(double density_cutoff){
+    	NodeBitmap.setDensityCutoff(density_cutoff);
+    }
+    
+    /**
+     * @param is_task_cost_log true: the tasks of the frequent 2-itemsets are timed, and their estimated costs and
+     * running times are printed after the frequent k-itemsets are discovered
+     */
+    public void setTaskCostLog(boolean is_task_cost_log){
+    	this.is_task_cost_log = is_task_cost_log;
+    }
+    
+    /**
+     * @param is_memory_bounded_mining true: the node lists of frequent k-itemsets (k>2) are released as soon as their
+     * branch of the mining is done, instead of being kept until free(). The memory of the node lists is bounded by
+     * depth * width of the branches, but the support counts of infrequent itemsets are calculated from the node lists
+     * of 2-itemsets.
+     */
+    public void setMemoryBoundedMining(boolean is_memory_bounded_mining){
+    	this.is_memory_bounded_mining = is_memory_bounded_mining;
+    }
+    
+    /**
+     * @param sink receives all frequent itemsets as they are discovered: the frequent items by mining(), each frequent
+     * 2-itemset and the k-itemsets (k>2) of its subspace by the discovery of the subspace. The frequent k-itemsets
+     * (k>2) are then NOT kept in 'hFrequentPatterns', so writeResult(), the FPO tree and the statistic information
+     * only see the 1-itemsets and 2-itemsets. The caller closes the sink after the mining.
+     * </br>null (default): the frequent k-itemsets are kept in 'hFrequentPatterns' (MapItemsetSink).
+     */
+    public void setFrequentItemsetSink(FrequentItemsetSink sink){
+    	this.sink = sink;
+    }
+    
+    /**
+     * @param is_closed_mining true: mining() discovers only the closed frequent itemsets, the itemsets which have no
+     * superset with the same support count. They are given to the sink if it is set, and written by writeResult().
+     * 'hFrequentPatterns' keeps only the frequent 2-itemsets. For the LOCAL mining only: the closed itemsets of the
+     * parts of a dataset do not give the closed itemsets of the dataset, see FPOTree.mark_closed_itemsets().
+     */
+    public void setClosedMining(boolean is_closed_mining){
+    	this.is_closed_mining = is_closed_mining;
+    }
+    
+    /**
+     * Use a snapshot of the PPC tree, see PPCTreeSnapshot.
+     * @param fileName
+     * @param is_loading true: support counts of items and the PPC tree are loaded from the snapshot if it exists,
+     * the dataset is only read if the PPC tree does not fit the global frequent items
+     * @param is_storing true: a PPC tree built from the dataset is stored as the snapshot
+     */
+    public void useSnapshot(String fileName, boolean is_loading, boolean is_storing){
+    	this.snapshot_file = fileName;
+    	this.is_snapshot_loading = is_loading;
+    	this.is_snapshot_storing = is_storing;
     }
     
 	///////////////////////////////////////////////FUNCTIONS SECTION//////////////////////////////////////////////
     
-    public long countSupportCountForItems() throws IOException {
-    	Map<String, Integer> itemsMaptoFrequencies = this.itemsMaptoFrequencies = new HashMap<String, Integer>();
-		
+    public long countSupportCountForItems() throws IOException, InterruptedException {
     	// Remember start time
     	long start = System.currentTimeMillis();
     	
-    	// Count the frequency for each item
-    	BufferedReader input = new BufferedReader(new FileReader(this.fileName));
+    	if(is_snapshot_loading && new File(snapshot_file).exists()){
+    		this.snapshot = new PPCTreeSnapshot(snapshot_file);
+    		this.countSupportCountFromSnapshot(snapshot);
+    	}else if(source instanceof BinaryTransactionFile){
+    		// Support counts are stored in the header of binary files, no need to read transactions
+    		BinaryTransactionFile binary_file = (BinaryTransactionFile) source;
+    		this.itemIdCounts = binary_file.getItemSupports();
+    		this.TRANSACTION_COUNT = binary_file.transactionCount();
+    	}else if(source instanceof MappedTransactionScanner && THREAD_COUNT > 1 &&
+    			new File(((MappedTransactionScanner) source).getFileName()).length() >= PARALLEL_COUNTING_MIN_SIZE){
+    		this.countSupportCountInParallel((MappedTransactionScanner) source);
+    	}else{
+    		this.countSupportCountSequentially();
+    	}
+    	
+        // Map items to their frequencies, only one String for each distinct item
+        ItemDictionary dictionary = source.getDictionary();
+        int item_count = dictionary.size();
+        Map<String, Integer> itemsMaptoFrequencies = this.itemsMaptoFrequencies = new HashMap<String, Integer>(item_count*4/3+1);
+        int[] itemIdCounts = this.itemIdCounts;
+        for(int id=0; id<item_count; id++) itemsMaptoFrequencies.put(dictionary.getItem(id), itemIdCounts[id]);
+        
+        this.SUPPORT_COUNT_THRESHOLD = (int)(this.TRANSACTION_COUNT*this.threshold);
+        
+        // Return time of building PPC tree
+        return System.currentTimeMillis() - start;
+    }
+    
+    /**
+     * Take the support counts from the snapshot, items of the snapshot are added to the dictionary of the source,
+     * so the dataset can still be read if the PPC tree of the snapshot does not fit.
+     */
+    private void countSupportCountFromSnapshot(PPCTreeSnapshot snapshot){
+    	ItemDictionary dictionary = source.getDictionary();
+    	String[] items = snapshot.getItems();
+    	int[] supports = snapshot.getItemSupports();
+    	int[] ids = new int[items.length];
+    	for(int i=0; i<items.length; i++) ids[i] = dictionary.getOrAdd(items[i]);
     	
-    	int trans_count = 0;
-    	String line;
-    	String[] item_list;
-    	while ((line = input.readLine()) != null) {
+    	int[] itemIdCounts = new int[dictionary.size()];
+    	for(int i=0; i<items.length; i++) itemIdCounts[ids[i]] = supports[i];
+    	this.itemIdCounts = itemIdCounts;
+    	this.TRANSACTION_COUNT = snapshot.transactionCount();
+    }
+    
+    private void countSupportCountSequentially() throws IOException {
+    	// Count the frequency for each item id
+    	TransactionReader input = source.openReader(true);
+    	TransactionCache cache = null;
+    	if(single_scan_memory_budget >= 0) cache = new TransactionCache(source.getDictionary(), single_scan_memory_budget);
+    	int[] itemIdCounts = new int[1024];
+    	int[] items;
+    	int trans_count = 0, length, id;
+    	while ((length = input.next()) >= 0) {
         	trans_count++;
-            item_list = line.split(" ");
-            for(String item : item_list) {
-                if (itemsMaptoFrequencies.containsKey(item)) {
-                    itemsMaptoFrequencies.put(item, itemsMaptoFrequencies.get(item) + 1);
-                } else {
-                    itemsMaptoFrequencies.put(item, 1);
-                }
+        	items = input.items();
+            for(int i=0; i<length; i++) {
+            	id = items[i];
+            	if(id >= itemIdCounts.length) itemIdCounts = Arrays.copyOf(itemIdCounts, Math.max(id+1, itemIdCounts.length << 1));
+            	itemIdCounts[id]++;
             }
+            if(cache != null) cache.add(items, length);
     	}
         input.close();
+        if(cache != null){
+        	cache.finish();
+        	this.transaction_caches = new TransactionCache[]{cache};
+        }
+        this.itemIdCounts = itemIdCounts;
         this.TRANSACTION_COUNT = trans_count;
-        this.SUPPORT_COUNT_THRESHOLD = (int)(trans_count*this.threshold);
-        
-        // Return time of building PPC tree
-        return System.currentTimeMillis() - start;
+    }
+    
+    /**
+     * Split the dataset into line-aligned byte ranges which are counted by threads,
+     * then merge the dictionaries and counts of the threads into the source.
+     */
+    private void countSupportCountInParallel(MappedTransactionScanner scanner) throws IOException, InterruptedException {
+    	String fileName = scanner.getFileName();
+    	long[] boundaries = scanner.split(THREAD_COUNT*4);	// More ranges than threads to balance the work
+    	long cache_memory_budget = (single_scan_memory_budget < 0) ? -1 : single_scan_memory_budget/THREAD_COUNT;
+    	
+    	// Threads
+    	IntHolder rangeIndex = new IntHolder(0);
+    	CountItemSupportThread[] threads = new CountItemSupportThread[THREAD_COUNT];
+    	for(int i=0; i<THREAD_COUNT; i++){
+    		threads[i] = new CountItemSupportThread(fileName, boundaries, rangeIndex, cache_memory_budget, i);
+    		threads[i].start();
+    	}
+    	for(int i=0; i<THREAD_COUNT; i++) threads[i].join();
+    	
+    	// Merge
+    	ItemDictionary dictionary = scanner.getDictionary();
+    	int[] itemIdCounts = new int[1024];
+    	int[] mapping, thread_counts;
+    	int trans_count = 0, id;
+    	if(single_scan_memory_budget >= 0) this.transaction_caches = new TransactionCache[THREAD_COUNT];
+    	for(int i=0; i<THREAD_COUNT; i++){
+    		if(threads[i].getException() != null) throw threads[i].getException();
+    		
+    		mapping = dictionary.getOrAddAll(threads[i].getDictionary());
+    		if(dictionary.size() > itemIdCounts.length) itemIdCounts = Arrays.copyOf(itemIdCounts, Math.max(dictionary.size(), itemIdCounts.length << 1));
+    		thread_counts = threads[i].getItemIdCounts();
+    		for(int thread_id=0; thread_id<mapping.length; thread_id++){
+    			id = mapping[thread_id];
+    			itemIdCounts[id] += thread_counts[thread_id];
+    		}
+    		trans_count += threads[i].getTransactionCount();
+    		
+    		if(this.transaction_caches != null){
+    			threads[i].getCache().translate(dictionary, mapping);
+    			this.transaction_caches[i] = threads[i].getCache();
+    		}
+    	}
+    	this.itemIdCounts = itemIdCounts;
+    	this.TRANSACTION_COUNT = trans_count;
     }
     
     /**
@@ -163,100 +422,124 @@ public class PrePostPlusE extends FISMAlgorithm {
     	
     	int size = globalFrequentItems.size();
     	this.globalIndex_item = globalFrequentItems;
-    	this.item_globalIndex = new HashMap<String, Integer>(size);
-    	this.itemCodesMaptoFrequencies = new HashMap<Integer, Integer>(size);
+    	this.item_globalIndex = new StringIntMap(size);
+    	this.itemCodesMaptoFrequencies = new IntIntMap(size);
+    	
+    	ItemDictionary dictionary = source.getDictionary();
+    	this.itemId_globalIndex = new int[dictionary.size()];
+    	Arrays.fill(this.itemId_globalIndex, -1);
     	
-    	Integer item_freq;
     	String item;
+    	int id;
     	for(int i=0; i < size; i++){
     		item = globalFrequentItems.get(i);
     		// Prepare 'item_globalIndex'
     		item_globalIndex.put(item, i);
     		
-    		// Prepare 'itemCodesMaptoFrequencies'
-    		item_freq = itemsMaptoFrequencies.get(item);
-    		if(item_freq == null) item_freq = 0;
-    		this.itemCodesMaptoFrequencies.put(i, item_freq);
+    		// Prepare 'itemId_globalIndex' and 'itemCodesMaptoFrequencies'
+    		id = dictionary.get(item);
+    		if(id < 0) this.itemCodesMaptoFrequencies.put(i, 0);
+    		else {
+    			this.itemId_globalIndex[id] = i;
+    			this.itemCodesMaptoFrequencies.put(i, this.itemIdCounts[id]);
+    		}
     	}
     	itemsMaptoFrequencies = null;	// No longer need
+    	if(!is_snapshot_storing) itemIdCounts = null;	// Otherwise they are stored in the snapshot
     	
     	return System.currentTimeMillis()-start;
     }
     
-    public long constructPPCTree() throws IOException {
+    public long constructPPCTree() throws IOException, InterruptedException {
     	long start = System.currentTimeMillis();
     	
-    	Map<String, Integer> item_globalIndex = this.item_globalIndex;
-		
-    	// Create root PPCTree node
-        root = new PPCNode();
-
-        // Scan transaction by transaction and insert into the PPC tree
-        BufferedReader input = new BufferedReader(new FileReader(this.fileName));
-        String line;
-        String[] item_list;
-        int[] sortedFrequentItemsTransaction = new int[this.globalIndex_item.size()];
-        int count = 0;
-        Integer index;
-        
-        while ((line = input.readLine()) != null) {
-        	item_list = line.split(" ");
-        	count=0;
-        	
-            for(String item : item_list) {
-            	index = item_globalIndex.get(item);
-            	if(index == null) continue;
-                sortedFrequentItemsTransaction[count] = index;
-                count++;
-            }
-            // Sort increasing, so the inverted order of items for insertTransaction
-            Arrays.sort(sortedFrequentItemsTransaction, 0, count);
-            
-            // Insert the prepared transaction into the PPC tree
-            this.insertTransaction(sortedFrequentItemsTransaction, count, root);
-        }
-        input.close();
+    	int code_offset = (snapshot == null) ? -1 : snapshot.fit(this.globalIndex_item);
+    	if(code_offset >= 0){
+    		ppcTree = snapshot.loadPPCTree(code_offset);
+    		System.out.println("The PPC tree is loaded from the snapshot " + snapshot_file);
+    	}else{
+    		if(snapshot != null) System.out.println("The snapshot does not fit the global frequent items, the PPC tree is built from the dataset");
+    		this.buildPPCTree();
+    	}
+    	snapshot = null;
         
         // Traverse the PPC tree with pre&post-order and assign two unique codes for each node
-        PrePostPlusUtility.assignPrePosOrderCode(root);
+        PrePostPlusUtility.assignPrePosOrderCode(ppcTree, THREAD_COUNT);
+        
+        if(code_offset < 0 && is_snapshot_storing){
+        	System.out.println("Time of storing the PPC tree snapshot (ms): " + PPCTreeSnapshot.store(snapshot_file,
+        			this.TRANSACTION_COUNT, source.getDictionary(), itemIdCounts, this.globalIndex_item, ppcTree));
+        }
+        itemIdCounts = null;
         
         return System.currentTimeMillis() - start;
     }
+    
+    private void buildPPCTree() throws IOException, InterruptedException {
+    	// Create the PPC tree with the root only
+        ppcTree = new PPCTree(this.globalIndex_item.size());
 
-    private void insertTransaction(int[] transaction, int length, PPCNode ppcNode) {
-        PPCNode newNode, mid_child, subNode = ppcNode;
-        boolean wasNotMerged;
-        int itemCode, position, mid, size;
-
-        for(int i=length-1; i>-1; i--){
-        	itemCode = transaction[i];	// Item codes in the transaction are in increasing order
-            wasNotMerged = true;
-            position = 0;
-        	size = subNode.children.size();
-        	
-        	// Binary search on the itemCode-based ordered child node list of subTree
-        	while (position < size) {
-                mid = (position + size) / 2;
-                mid_child = subNode.children.get(mid);
-                
-                if (mid_child.itemCode < itemCode) position = mid + 1;
-                else if (mid_child.itemCode > itemCode) size = mid;
-                else {
-                	mid_child.count++;
-                	subNode = mid_child;
-                    wasNotMerged = false;
-                    break;
-                }
-            }
-            
-            if (wasNotMerged) {
-            	newNode = new PPCNode(itemCode, subNode, 1);
-            	subNode.children.add(position, newNode);
-            	subNode = newNode;
-            }
+        // Scan transaction by transaction and insert into the PPC tree.
+        // In the single-scan mode, the transactions are read from the caches of the first pass.
+        if(is_parallel_build && THREAD_COUNT > 1){
+        	List<TransactionSource> parts = new ArrayList<TransactionSource>();
+        	if(transaction_caches != null){
+        		for(TransactionCache cache : transaction_caches) parts.addAll(Arrays.asList(cache.partition(THREAD_COUNT)));
+        	}else parts.addAll(Arrays.asList(source.partition(THREAD_COUNT*4)));	// More parts than threads to balance the work
+        	this.constructPPCTreeInParallel(parts.toArray(new TransactionSource[parts.size()]));
+        }else if(transaction_caches != null){
+        	for(TransactionCache cache : transaction_caches) this.insertTransactions(ppcTree, cache.openReader(false));
+        }else this.insertTransactions(ppcTree, source.openReader(false));
+        ppcTree.finishBuilding();
+        
+        if(transaction_caches != null){
+        	for(TransactionCache cache : transaction_caches) cache.free();
+        	transaction_caches = null;
         }
     }
     
+    private void insertTransactions(PPCTree ppcTree, TransactionReader input) throws IOException {
+    	if(is_batch_insertion) ppcTree.insertTransactionsInBatches(input, itemId_globalIndex);
+    	else ppcTree.insertTransactions(input, itemId_globalIndex);
+    }
+    
+    /**
+     * Threads build partial PPC trees from the parts of the dataset,
+     * then the partial trees are merged into 'ppcTree' branch by branch in parallel.
+     * The result is the same tree as inserting all transactions one by one.
+     */
+    private void constructPPCTreeInParallel(TransactionSource[] parts) throws IOException, InterruptedException {
+    	int item_count = this.globalIndex_item.size();
+    	
+    	// Build partial trees
+    	IntHolder partIndex = new IntHolder(0);
+    	BuildPartialPPCTreeThread[] build_threads = new BuildPartialPPCTreeThread[THREAD_COUNT];
+    	for(int i=0; i<THREAD_COUNT; i++){
+    		build_threads[i] = new BuildPartialPPCTreeThread(parts, partIndex, itemId_globalIndex, item_count, is_batch_insertion, i);
+    		build_threads[i].start();
+    	}
+    	for(int i=0; i<THREAD_COUNT; i++) build_threads[i].join();
+    	
+    	PPCTree[] partial_trees = new PPCTree[THREAD_COUNT];
+    	long node_count = 0;
+    	for(int i=0; i<THREAD_COUNT; i++){
+    		if(build_threads[i].getException() != null) throw build_threads[i].getException();
+    		partial_trees[i] = build_threads[i].getPPCTree();
+    		node_count += partial_trees[i].size();
+    	}
+    	build_threads = null;
+    	
+    	// Merge partial trees by level-1 branches
+    	ppcTree.reserve(node_count, THREAD_COUNT);
+    	IntHolder itemCodeIndex = new IntHolder(0);
+    	Thread[] merge_threads = new Thread[THREAD_COUNT];
+    	for(int i=0; i<THREAD_COUNT; i++){
+    		merge_threads[i] = new MergePPCTreeBranchThread(ppcTree, partial_trees, itemCodeIndex, item_count, i);
+    		merge_threads[i].start();
+    	}
+    	for(int i=0; i<THREAD_COUNT; i++) merge_threads[i].join();
+    }
+
     /**
      * This function discovers all frequent k-itemsets and their nodelists, which are maintained in hFrequentPatterns
      * @throws InterruptedException 
@@ -276,27 +559,56 @@ public class PrePostPlusE extends FISMAlgorithm {
         // In parallel way, generate and add frequent 2-itemsets to 'hFrequentPatterns'
         System.out.println("Time of generating frequent 2-itemsets (ms): " + this.generate_frequent_2itemsets());
         System.out.println("Number of frequent 2-itemsets: " + this.hFrequentPatterns.size());
+        if(this.is_closed_mining) this.closed_itemsets = new ClosedItemsetFilter(this.sink);
+        if(this.kItemset_sink() != null) this.add_frequent_items_to_sink();
         
         // At this point, the PPC tree is no longer needed. It can be free
-        this.root.children.clear(); this.root.children = null; this.root = null;
+        this.ppcTree = null;
         System.out.println("GC time in (ms): " + GarbageCollector.collectMemory());
         
         // In parallel way, generate nodelist for each frequent 2-itemset.
-        String[] frequent_2itemsets = new String[this.hFrequentPatterns.size()];
-        this.hFrequentPatterns.keySet().toArray(frequent_2itemsets);
         System.out.println("Time of generating node list for frequent 2-itemsets (ms): " +
-        							this.create_nodelist_for_frequent_2itemsets(frequent_2itemsets));
+        							this.create_nodelist_for_frequent_2itemsets(this.hFrequent2Itemsets));
         memoryLogger.checkMemory();
 		System.out.println("=> Memory used in (MB): " + memoryLogger.getMaxUsedMemory());
         
         // Discover all remaining frequent k-itemsets (k>2) from each frequent 2-itemset
         System.out.println("Time of generating the remaining k-itemsets (ms): " + 
-        							this.discover_frequent_kItemsets(frequent_2itemsets));
+        							this.discover_frequent_kItemsets(this.hFrequent2Itemsets));
+        
+        if(this.closed_itemsets != null){
+        	long filter_start = System.currentTimeMillis();
+        	this.closed_itemsets.close();
+        	System.out.println("Time of filtering closed itemsets (ms): " + (System.currentTimeMillis() - filter_start));
+        	System.out.println("Number of closed frequent itemsets: " + this.closed_itemsets.size());
+        }
         
         // Return mining time
         return System.currentTimeMillis() - start;
     }
     
+    /**
+     * @return the sink of the discovered itemsets: the closed itemset filter in closed mode, otherwise the sink which
+     * is set, null: the frequent k-itemsets are kept in 'hFrequentPatterns'
+     */
+    private FrequentItemsetSink kItemset_sink(){
+    	return this.closed_itemsets != null ? this.closed_itemsets : this.sink;
+    }
+    
+    /**
+     * Give the frequent items to the sink
+     */
+    private void add_frequent_items_to_sink(){
+    	FrequentItemsetSink sink = this.kItemset_sink();
+    	int[] codes = new int[1];
+    	for(int itemCode : this.itemCodesMaptoFrequencies.keys()){
+    		int frequency = this.itemCodesMaptoFrequencies.get(itemCode);
+    		if(frequency < this.SUPPORT_COUNT_THRESHOLD) continue;
+    		codes[0] = itemCode;
+    		sink.add(codes, 1, frequency);
+    	}
+    }
+    
     /**
      * This function discovers all frequent 2-itemsets and their nodelists, which are maintained in hFrequentPatterns
      * @throws InterruptedException 
@@ -316,14 +628,12 @@ public class PrePostPlusE extends FISMAlgorithm {
         System.out.println("Number of frequent 2-itemsets: " + this.hFrequentPatterns.size());
         
         // At this point, the PPC tree is no longer needed. It can be free to save a lot memory
-        this.root.children.clear(); this.root.children = null; this.root = null;
+        this.ppcTree = null;
         System.out.println("GC time in (ms): " + GarbageCollector.collectMemory());
         
         // In parallel way, generate nodelist for each frequent 2-itemset.
-        String[] frequent_2itemsets = new String[this.hFrequentPatterns.size()];
-        this.hFrequentPatterns.keySet().toArray(frequent_2itemsets);
         System.out.println("Time of generating node list for frequent 2-itemsets (ms): " +
-        							this.create_nodelist_for_frequent_2itemsets(frequent_2itemsets));
+        							this.create_nodelist_for_frequent_2itemsets(this.hFrequent2Itemsets));
         memoryLogger.checkMemory();
 		System.out.println("=> Memory used in (MB): " + memoryLogger.getMaxUsedMemory());
         
@@ -334,27 +644,27 @@ public class PrePostPlusE extends FISMAlgorithm {
     /**
      * This function discovers subspaces of frequent k-itemsets.
      * </br>Each subspace is all local frequent k-itemsets having a 2-itemset in 'potential_2itemsets' as their prefix.
-     * @param potential_2itemsets
-     * @param hFrequentPatterns_PART
+     * @param potential_2itemsets "code1 code2", as the master sends them
+     * @param hFrequentPatterns_PART receives the local frequent 2-itemsets of the part -> their subspaces
      * @return the running time
      * @throws InterruptedException
      */
     public long mining_frequent_kItemsets_PART(String[] potential_2itemsets,
-    										Map<String, FPSubset> hFrequentPatterns_PART) throws InterruptedException {
+    										ItemsetObjectMap<FPSubset> hFrequentPatterns_PART) throws InterruptedException {
     	long start = System.currentTimeMillis();
     	
     	// Filter potential 2-itemset which are local frequent
     	FPSubset fpsubset;
+    	int[] codes = new int[2];
     	for(String two_items : potential_2itemsets){
-    		fpsubset = this.hFrequentPatterns.get(two_items);
-    		if(fpsubset != null) hFrequentPatterns_PART.put(two_items, fpsubset);
+    		parse2Itemset(two_items, codes);
+    		fpsubset = this.hFrequent2Itemsets.get(codes);
+    		if(fpsubset != null) hFrequentPatterns_PART.put(codes, fpsubset);
     	}
         
     	// Discover all remaining frequent k-itemsets (k>2) from the part of frequent 2-itemset
-        String[] frequent_2itemsets_PART = new String[hFrequentPatterns_PART.size()];
-        hFrequentPatterns_PART.keySet().toArray(frequent_2itemsets_PART);
         System.out.println("Time of generating the remaining k-itemsets (ms): " + 
-        							this.discover_frequent_kItemsets(frequent_2itemsets_PART));
+        							this.discover_frequent_kItemsets(hFrequentPatterns_PART));
         
         return System.currentTimeMillis() - start;
     }
@@ -368,28 +678,24 @@ public class PrePostPlusE extends FISMAlgorithm {
     	
     	// Prepare this.item_nodelist, add empty nodelists for all frequent items
     	int length = this.globalIndex_item.size();
-    	this.item_nodelist = new HashMap<String, Nodelist>(length);
+    	this.item_nodelist = new Nodelist[length];
     	for(int i=0; i<length; i++){
-    		this.item_nodelist.put(String.valueOf(i), new Nodelist(16000));
+    		this.item_nodelist[i] = new Nodelist(16000);
     	}
     	
-    	// Update item_nodelist
-    	for(PPCNode child : root.children){
-    		this.create_nodelist_for_items_recursive(child, this.item_nodelist);
+    	// Update item_nodelist, visit nodes in pre-order so that each nodelist is in increasing order of pre-order codes
+    	PPCTree ppcTree = this.ppcTree;
+    	int root = PPCTree.ROOT;
+    	for(int node=ppcTree.nextPreOrder(root, root); node != PPCTree.NONE; node=ppcTree.nextPreOrder(node, root)){
+    		// Always exist the nodelist for node.itemName
+    		item_nodelist[ppcTree.itemCode(node)].add(ppcTree.pre(node), ppcTree.pos(node), ppcTree.count(node));
     	}
     	
     	// Save memory
-    	for(Nodelist nodelist : item_nodelist.values()) nodelist.shrink();
+    	for(Nodelist nodelist : item_nodelist) nodelist.shrink();
     	
     	return System.currentTimeMillis() - start;
     }
-    private void create_nodelist_for_items_recursive(PPCNode node, Map<String, Nodelist> item_nodelist){
-    	// Always exist the nodelist for node.itemName
-    	item_nodelist.get(String.valueOf(node.itemCode)).add(node.pre, node.pos, node.count);
-    	
-    	// Recursive call for child nodes
-    	for(PPCNode child : node.children) create_nodelist_for_items_recursive(child, item_nodelist);
-    }
     
     /**
      * Generate in parallel way all frequent 2-itemsets and their supports.
@@ -403,10 +709,11 @@ public class PrePostPlusE extends FISMAlgorithm {
     	for(int i=0; i<THREAD_COUNT; i++) matrixes[i] = new Matrix(this.globalIndex_item.size());
     	matrix = matrixes[0];
     	IntHolder globalIndex = new IntHolder(0);
+    	int[] level1_nodes = ppcTree.getLevel1Nodes();
     	
     	Thread[] threads = new Thread[THREAD_COUNT];
     	for(int i=0; i<THREAD_COUNT; i++){
-    		threads[i] = new Generate2ItemsetsThread(root.children, matrixes[i], globalIndex, i);
+    		threads[i] = new Generate2ItemsetsThread(ppcTree, level1_nodes, matrixes[i], globalIndex, i);
     		threads[i].start();
         }
         for(int i=0; i<THREAD_COUNT; i++) threads[i].join();
@@ -416,7 +723,8 @@ public class PrePostPlusE extends FISMAlgorithm {
         
         // Filter frequent 2-itemsets
     	this.hFrequentPatterns = new HashMap<String, FPSubset>();
-    	matrix.filter_hFrequent2Itemsets(this.hFrequentPatterns, this.SUPPORT_COUNT_THRESHOLD);
+    	this.hFrequent2Itemsets = new ItemsetObjectMap<FPSubset>();
+    	matrix.filter_hFrequent2Itemsets(this.hFrequentPatterns, this.hFrequent2Itemsets, this.SUPPORT_COUNT_THRESHOLD);
     	
     	return System.currentTimeMillis() - start;
     }
@@ -427,11 +735,11 @@ public class PrePostPlusE extends FISMAlgorithm {
     public void printStatisticInformation(){
     	System.out.println("-------------------Statistic information--------------------");
     	long node_count = 0;
-    	for(Nodelist nodelist : item_nodelist.values()){
+    	for(Nodelist nodelist : item_nodelist){
     		node_count = node_count + nodelist.size();
     	}
     	System.out.println("Total nodes of item-nodelists: " + node_count);
-    	System.out.println("AVG length of item-nodelists: " + ((float)node_count/item_nodelist.size()));
+    	System.out.println("AVG length of item-nodelists: " + ((float)node_count/item_nodelist.length));
     	
     	int itemset_count = itemCodesMaptoFrequencies.size() + hFrequentPatterns.size();
 		for(FPSubset fpss : hFrequentPatterns.values()){
@@ -449,19 +757,37 @@ public class PrePostPlusE extends FISMAlgorithm {
     	System.out.println("AVG length of nodelists: " + ((float)node_count/itemset_count));
     }
     
+    /**
+     * @return true if the node lists of itemsets from 2-itemsets are diffsets (DiffsetPrePostPlusE)
+     */
+    protected boolean usesDiffsets(){
+    	return false;
+    }
+    
+    /**
+     * @return true if the node lists of frequent k-itemsets (k>2) are released as soon as their branch is done,
+     * see setMemoryBoundedMining()
+     */
+    protected boolean isMemoryBoundedMining(){
+    	return this.is_memory_bounded_mining;
+    }
+    
     /**
      * Create in parallel way node list for all frequent 2-itemsets.
+     * @param frequent_2itemsets codes of the frequent 2-itemsets -> their subspaces
      * @return running time
      * @throws InterruptedException
      */
-    public long create_nodelist_for_frequent_2itemsets(String[] frequent_2itemsets) throws InterruptedException{
+    public long create_nodelist_for_frequent_2itemsets(ItemsetObjectMap<FPSubset> frequent_2itemsets) throws InterruptedException{
     	long start = System.currentTimeMillis();
     	
     	// Prepare hk_itemset_nodelist
-    	this.hk_itemset_nodelist = new HashMap<String, NodelistSubset>(frequent_2itemsets.length);
-    	for(String two_item : frequent_2itemsets){
+    	this.hk_itemset_nodelist = new ItemsetObjectMap<NodelistSubset>(frequent_2itemsets.size());
+    	int[] codes = new int[2];
+    	for(int entry=0; entry<frequent_2itemsets.size(); entry++){
     		// Delay memory allocation for Nodelist
-    		hk_itemset_nodelist.put(two_item, new NodelistSubset(new Nodelist(true)));
+    		frequent_2itemsets.getKey(entry, codes);
+    		hk_itemset_nodelist.put(codes, new NodelistSubset(new Nodelist(true)));
     	}
     	
         // Threads
@@ -471,7 +797,7 @@ public class PrePostPlusE extends FISMAlgorithm {
         	threads[i] = new Generate2ItemsetNodelistThread(frequent_2itemsets,
 										        			this.item_nodelist,
 										        			this.hk_itemset_nodelist,
-										        			globalIndex, i);
+										        			globalIndex, this.usesDiffsets(), i);
         	threads[i].start();
         }
         for(int i=0; i<THREAD_COUNT; i++) threads[i].join();
@@ -482,43 +808,121 @@ public class PrePostPlusE extends FISMAlgorithm {
     /**
      * From each frequent 2-itemsets, the function develops frequent k-itemsets (k>2)
      * </br>Note: The orders of items in frequent 2-itemsets are the GLOBAL ORDER.
-     * @param frequent_2itemsets
+     * @param frequent_2itemsets codes of the frequent 2-itemsets -> their subspaces
      * @return running time
      * @throws InterruptedException
      */
-    public long discover_frequent_kItemsets(String[] frequent_2itemsets) throws InterruptedException{
+    public long discover_frequent_kItemsets(ItemsetObjectMap<FPSubset> frequent_2itemsets) throws InterruptedException{
     	long start = System.currentTimeMillis();
         
-        // Threads
-        IntHolder globalIndex = new IntHolder(0);
-        Thread[] threads = new Thread[THREAD_COUNT];
-        for(int i=0; i<THREAD_COUNT; i++){        	
-        	threads[i] = new DiscoverFreqKItemsetThread(frequent_2itemsets,
-														this.hFrequentPatterns,
-														this.hk_itemset_nodelist,
-														this.globalIndex_item.size(),
-														globalIndex,
-														this.SUPPORT_COUNT_THRESHOLD, i);
-        	threads[i].start();
-        }
-        for(int i=0; i<THREAD_COUNT; i++) threads[i].join();
+        // One task for each 2-itemset, large branches of the subspaces are split into tasks which idle threads steal
+        ForkJoinPool pool = new ForkJoinPool(THREAD_COUNT);
+        DiscoverFreqKItemsetTask[] tasks = this.create_kItemset_tasks(frequent_2itemsets);
+        for(DiscoverFreqKItemsetTask task : tasks) pool.execute(task);
+        for(DiscoverFreqKItemsetTask task : tasks) task.join();
+        pool.shutdown();
+        
+        // Just for testing
+        StringBuilder sb = new StringBuilder();
+        sb.append(DiscoverFreqKItemsetTask.class.getSimpleName()).append(": ").append(pool.getStealCount())
+        .append(" tasks stolen, finished work in ").append(System.currentTimeMillis()-start).append(" ms");
+        System.out.println(sb.toString());
+        this.log_kItemset_task_costs(tasks);
         
         return System.currentTimeMillis()-start;
     }
     
+    /**
+     * Create the tasks of the frequent 2-itemsets, in decreasing order of their estimated costs. The pool starts
+     * them in this order (largest first, LPT), so that a large subspace does not start at the end of the phase.
+     * </br>Cost of i1|i2 = length of its node list * number of its candidate items, which are the items x > i2 of
+     * the frequent 2-itemsets i1|x.
+     * @param frequent_2itemsets codes of the frequent 2-itemsets -> their subspaces
+     * @return the tasks
+     */
+    private DiscoverFreqKItemsetTask[] create_kItemset_tasks(ItemsetObjectMap<FPSubset> frequent_2itemsets){
+    	int length = frequent_2itemsets.size();
+    	int[][] codes = new int[length][];
+    	long[] sorted_2itemsets = new long[length];	// i1 in the high half, i2 in the low half
+    	for(int i=0; i<length; i++){
+    		codes[i] = frequent_2itemsets.getKey(i);
+    		sorted_2itemsets[i] = ((long)codes[i][0] << 32) | codes[i][1];
+    	}
+    	Arrays.sort(sorted_2itemsets);
+    	
+    	FrequentItemsetSink sink = this.kItemset_sink();
+    	if(sink == null) sink = new MapItemsetSink(this.hFrequent2Itemsets);
+    	DiscoverFreqKItemsetTask[] tasks = new DiscoverFreqKItemsetTask[length];
+    	for(int i=0; i<length; i++){
+    		// The candidates of i1|i2 are the 2-itemsets after it and before the first one of i1+1
+    		int index = Arrays.binarySearch(sorted_2itemsets, ((long)codes[i][0] << 32) | codes[i][1]);
+    		int end = -Arrays.binarySearch(sorted_2itemsets, ((long)codes[i][0]+1) << 32) - 1;
+    		long cost = (long)this.hk_itemset_nodelist.get(codes[i]).nodelist.size() * (end-index-1);
+    		tasks[i] = new DiscoverFreqKItemsetTask(codes[i],
+    												frequent_2itemsets.value(i).support,
+    												this.item_nodelist[codes[i][0]].totalSupportCount(),
+    												this.hk_itemset_nodelist, sink,
+    												this.globalIndex_item.size(),
+    												this.SUPPORT_COUNT_THRESHOLD, this.usesDiffsets(),
+    												this.isMemoryBoundedMining(), this.closed_itemsets != null,
+    												this.is_task_cost_log, cost);
+    	}
+    	
+    	Arrays.sort(tasks, new Comparator<DiscoverFreqKItemsetTask>(){
+    		public int compare(DiscoverFreqKItemsetTask task1, DiscoverFreqKItemsetTask task2){
+    			return Long.compare(task2.cost(), task1.cost());
+    		}
+    	});
+    	return tasks;
+    }
+    
+    /**
+     * If the task cost log is on, print how well the estimated costs of the tasks of the 2-itemsets rank their running
+     * times: the rank correlation (Spearman) of the costs and the times, then the estimate and the time of each task.
+     * @param tasks
+     */
+    private void log_kItemset_task_costs(DiscoverFreqKItemsetTask[] tasks){
+    	if(!this.is_task_cost_log) return;
+    	int length = tasks.length;
+    	long[] costs = new long[length], times = new long[length];
+    	for(int i=0; i<length; i++){
+    		costs[i] = tasks[i].cost();
+    		times[i] = tasks[i].time();
+    	}
+    	double[] cost_ranks = PrePostPlusUtility.ranks(costs), time_ranks = PrePostPlusUtility.ranks(times);
+    	double mean = (length+1)/2.0, covariance = 0, cost_variance = 0, time_variance = 0;
+    	for(int i=0; i<length; i++){
+    		covariance += (cost_ranks[i]-mean)*(time_ranks[i]-mean);
+    		cost_variance += (cost_ranks[i]-mean)*(cost_ranks[i]-mean);
+    		time_variance += (time_ranks[i]-mean)*(time_ranks[i]-mean);
+    	}
+    	if(cost_variance > 0 && time_variance > 0){
+    		System.out.println("Rank correlation of estimated costs and times of k-itemset tasks: " +
+    							covariance/Math.sqrt(cost_variance*time_variance));
+    	}
+    	
+    	// Format: <i1> <i2> <estimated cost> <time in microseconds>, in the order of starting
+    	StringBuilder sb = new StringBuilder();
+    	for(DiscoverFreqKItemsetTask task : tasks){
+    		sb.setLength(0);
+    		System.out.println(sb.append(task.i1i2()[0]).append(' ').append(task.i1i2()[1]).append(' ')
+    							.append(task.cost()).append(' ').append(task.time()/1000).toString());
+    	}
+    }
+    
     /**
      * Free subspaces of k-itemsets and their nodelists in hFrequentPattern and hk_itemset_nodelist.
      */
     public void free(){
     	for(FPSubset fpsubset : this.hFrequentPatterns.values()){
     		if(fpsubset.fPatterns.size() > 0){
-    			fpsubset.fPatterns = new HashMap<String, Integer>();
+    			fpsubset.fPatterns = new ItemsetIntMap();
     		}
     	}
     	
     	for(NodelistSubset nlss : this.hk_itemset_nodelist.values()){
     		if(nlss.itemset_nodelist.size() > 0){
-    			nlss.itemset_nodelist = new HashMap<String, Nodelist>();
+    			nlss.itemset_nodelist = new ItemsetObjectMap<Nodelist>();
     		}
     	}
     }
@@ -528,106 +932,127 @@ public class PrePostPlusE extends FISMAlgorithm {
 	////////////////////////////////////////// Used for Distributed Purpose //////////////////////////////////////////// 
 	////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 	@Override
-	public int calculate_supportCount_kItemset(String[] code_array) {    	
+	public int calculate_supportCount_kItemset(String[] code_array) {
+		int[] codes = new int[code_array.length];
+		for(int i=0; i<codes.length; i++) codes[i] = Integer.parseInt(code_array[i]);
+		return this.calculate_supportCount_kItemset(codes, codes.length);
+	}
+	
+	@Override
+	public int calculate_supportCount_kItemset(int[] codes, int length) {
     	Nodelist nodelist = null, nodelist1, nodelist2;
-    	NodelistSubset nlss;
-    	
-    	StringBuilder sb = new StringBuilder(100);
-    	String[] temp_array = code_array.clone();
-    	String sub_itemset1;
-    	String ext_itemset;
+    	NodelistSubset[] subsets = new NodelistSubset[length];	// subsets[i]: the 2-itemset codes[0]|codes[i]
+    	int[] key = new int[length];
     	
     	////////////////////////////// Example ///////////////////////////////
     	//	0		1		2		3		4		i index					//
-    	//	1		2		3		4		5		code_array				//
-    	//	1		2		3		4		5		temp_array at loop = 1	//
-    	//			12		13		14		15		temp_array at loop = 2	//
+    	//	1		2		3		4		5		codes					//
+    	//			12		13		14		15		keys at loop = 1		//
     	//	Now, prefix 12 is omitted!										//
-    	//					12|3	12|4	12|5	temp_array at loop = 3	//
-    	//							12|34	12|45	temp_array at loop = 4	//
+    	//					3		4		5		keys at loop = 2		//
+    	//							34		35		keys at loop = 3		//
+    	//									345		keys at loop = 4		//
     	//////////////////////////////////////////////////////////////////////
     	
     	// First loop, loop = 1
-    	sb.append(code_array[0]).append(' ');	// Set Prefix
-    	int prefixLength = sb.length();
-    	sub_itemset1 = temp_array[0];
-		nodelist1 = item_nodelist.get(sub_itemset1);
-    	for(int i=1; i<temp_array.length; i++){
-    		ext_itemset = sb.append(code_array[i]).toString();		// ext_itemset is now 2-itemset	
-    		if(this.hk_itemset_nodelist.get(ext_itemset) == null) { // If nodelist of ext_itemset is not calculated yet, calculate it
-    			nodelist2 = item_nodelist.get(temp_array[i]);
-    			nodelist = PrePostPlusUtility.create_nodelist_from_2Nodelists(nodelist1, nodelist2);
-    			nodelist.shrink(); // Save memory
-    			this.hk_itemset_nodelist.put(ext_itemset, new NodelistSubset(nodelist));
-    			if(nodelist.size() == 0) return 0;
+    	key[0] = codes[0];
+		nodelist1 = item_nodelist[codes[0]];
+    	for(int i=1; i<length; i++){
+    		key[1] = codes[i];		// key is now 2-itemset
+    		subsets[i] = this.get2ItemsetSubset(key);
+    		if(subsets[i] == null) { // If nodelist of the 2-itemset is not calculated yet, calculate it
+    			nodelist = PrePostPlusUtility.create_nodelist_from_2Nodelists(nodelist1, item_nodelist[codes[i]]);
+    			subsets[i] = this.put2ItemsetSubset(key, nodelist.compact());	// Save memory
     		}
-    		temp_array[i] = ext_itemset;
-    		sb.setLength(prefixLength);
+    		nodelist = subsets[i].nodelist;
+    		if(nodelist.size() == 0) return 0;
     	}
     	
     	// Second loop, loop = 2
-    	// temp_array[1] is now '12'
-    	nlss = this.hk_itemset_nodelist.get(temp_array[1]);
-    	Map<String, Nodelist> ITEMSET_NODELIST = nlss.itemset_nodelist;
-		nodelist1 = nlss.nodelist;
-    	for(int i=2; i<temp_array.length; i++){
-    		// ext_itemset = code_array[i] is now 3-itemset. But in fact, the prefix 12 must be omitted. so it just 1-itemset
-    		nodelist = ITEMSET_NODELIST.get(code_array[i]);
-    		if(nodelist == null) { // If nodelist of ext_itemset is not calculated yet, calculate it
-    			nodelist2 = this.hk_itemset_nodelist.get(temp_array[i]).nodelist;
+    	ItemsetObjectMap<Nodelist> ITEMSET_NODELIST = subsets[1].itemset_nodelist;
+		nodelist1 = subsets[1].nodelist;
+    	for(int i=2; i<length; i++){
+    		// The 3-itemset is codes[0]|codes[1]|codes[i]. But in fact, the prefix 12 must be omitted. so it just 1-itemset
+    		nodelist = ITEMSET_NODELIST.get(codes, i, 1);
+    		if(nodelist == null) { // If nodelist of the itemset is not calculated yet, calculate it
+    			nodelist2 = subsets[i].nodelist;
     			nodelist = PrePostPlusUtility.create_nodelist_from_2Nodelists(nodelist1, nodelist2);
-    			nodelist.shrink(); // Save memory
-    			ITEMSET_NODELIST.put(code_array[i], nodelist);
+    			nodelist = nodelist.compact(); // Save memory
+    			ITEMSET_NODELIST.put(codes, i, 1, nodelist);
     		}
     		if(nodelist.size() == 0) return 0;
-    		temp_array[i] = code_array[i];
     	}
     	
-		//////////////////////////////Example ////////////////////////////////
-		//	0		1		2		3		4		i index					//
-		//	1		2		3		4		5		code_array				//
-		//	1		2		3		4		5		temp_array at loop = 1	//
-		//			12		13		14		15		temp_array at loop = 2	//
-		//	Now, prefix 12 is omitted!										//
-		//					12|3	12|4	12|5	temp_array at loop = 3	//
-		//							12|34	12|45	temp_array at loop = 4	//
-		//////////////////////////////////////////////////////////////////////
-    	
     	// Other loop, loop >= 3
-    	sb.setLength(0);
-    	for(int loop=3; loop<temp_array.length; loop++){
-    		sb.append(code_array[loop-1]).append(' ');	// Update Prefix
-        	prefixLength = sb.length();
-    		sub_itemset1 = temp_array[loop-1];
-    		nodelist1 = ITEMSET_NODELIST.get(sub_itemset1);
-        	for(int i=loop; i<temp_array.length; i++){
-        		ext_itemset = sb.append(code_array[i]).toString();
-        		nodelist = ITEMSET_NODELIST.get(ext_itemset);
-        		if(nodelist == null) {	// If nodelist of ext_itemset is not calculated yet, calculate it
-        			nodelist2 = ITEMSET_NODELIST.get(temp_array[i]);
+    	for(int loop=3; loop<length; loop++){
+    		// X = codes[2 .. loop-1], the itemsets are X|codes[i] from X and Y = codes[2 .. loop-2]|codes[i]
+    		System.arraycopy(codes, 2, key, 0, loop-2);
+    		nodelist1 = ITEMSET_NODELIST.get(key, 0, loop-2);
+        	for(int i=loop; i<length; i++){
+        		key[loop-2] = codes[i];
+        		nodelist = ITEMSET_NODELIST.get(key, 0, loop-1);
+        		if(nodelist == null) {	// If nodelist of the itemset is not calculated yet, calculate it
+        			key[loop-3] = codes[i];
+        			nodelist2 = ITEMSET_NODELIST.get(key, 0, loop-2);
+        			key[loop-3] = codes[loop-1];
         			nodelist = PrePostPlusUtility.create_nodelist_from_2Nodelists(nodelist1, nodelist2);
-        			nodelist.shrink(); // Save memory
-        			ITEMSET_NODELIST.put(ext_itemset, nodelist);
+        			nodelist = nodelist.compact(); // Save memory
+        			ITEMSET_NODELIST.put(key, 0, loop-1, nodelist);
         		}
         		if(nodelist.size() == 0) return 0;
-        		temp_array[i] = ext_itemset;
-        		sb.setLength(prefixLength);
         	}
-        	
-        	sb.append(code_array[loop]).append(' ');	// Update Prefix
-        	prefixLength = sb.length();
     	}
     	
     	// Calculate itemset's support
     	return nodelist.totalSupportCount();
 	}
+	
+	/**
+	 * The 2-itemsets which are not frequent are added by calculate_supportCount_kItemset(), which is called by several
+	 * threads, so hk_itemset_nodelist is accessed under its lock there.
+	 * @param key codes of the 2-itemset are key[0], key[1]
+	 * @return the subspace of the 2-itemset, null if it is not calculated yet
+	 */
+	protected NodelistSubset get2ItemsetSubset(int[] key){
+		synchronized(this.hk_itemset_nodelist){
+			return this.hk_itemset_nodelist.get(key, 0, 2);
+		}
+	}
+	
+	/**
+	 * Add the subspace of a 2-itemset, unless another thread added it meanwhile
+	 * @param key codes of the 2-itemset are key[0], key[1]
+	 * @param nodelist node list (or diffset) of the 2-itemset
+	 * @return the subspace of the 2-itemset
+	 */
+	protected NodelistSubset put2ItemsetSubset(int[] key, Nodelist nodelist){
+		synchronized(this.hk_itemset_nodelist){
+			NodelistSubset nlss = this.hk_itemset_nodelist.get(key, 0, 2);
+			if(nlss == null){
+				nlss = new NodelistSubset(nodelist);
+				this.hk_itemset_nodelist.put(key, 0, 2, nlss);
+			}
+			return nlss;
+		}
+	}
+	
+	/**
+	 * Parse the codes of a 2-itemset "i1 i2" of the master/slave protocol
+	 * @param i1i2
+	 * @param codes receives i1, i2
+	 */
+	private static void parse2Itemset(String i1i2, int[] codes){
+		int space = i1i2.indexOf(' ');
+		codes[0] = Integer.parseInt(i1i2.substring(0, space));
+		codes[1] = Integer.parseInt(i1i2.substring(space+1));
+	}
     
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     //////////////////////////////////////// PROCEDURES FOR STORING RESULTS ////////////////////////////////////////////
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     
 	/**
-     * Write all local frequent patterns
+     * Write all local frequent patterns, or the closed ones in closed mode
      * @param fileName
      * @return running time
      * @throws IOException
@@ -639,27 +1064,45 @@ public class PrePostPlusE extends FISMAlgorithm {
         BufferedWriter output = new BufferedWriter(new FileWriter(fileName));
         StringBuilder sb = new StringBuilder();
         
+        if(this.closed_itemsets != null){
+        	// Closed mode, format: <itemset>:<frequency>
+        	for(int i=0; i<this.closed_itemsets.size(); i++){
+        		int[] codes = this.closed_itemsets.itemset(i);
+        		sb.setLength(0);
+        		sb.append(codes[0]);
+        		for(int j=1; j<codes.length; j++) sb.append(' ').append(codes[j]);
+        		output.write(sb.append(":").append(this.closed_itemsets.support(i)).append("\n").toString());
+        	}
+        	output.close();
+        	return System.currentTimeMillis() - start;
+        }
+        
         // Write frequent 1-itemsets
-        for (Entry<Integer, Integer> entry : this.itemCodesMaptoFrequencies.entrySet()){
-        	if(entry.getValue() < this.SUPPORT_COUNT_THRESHOLD) continue;
+        int frequency;
+        for (int itemCode : this.itemCodesMaptoFrequencies.keys()){
+        	frequency = this.itemCodesMaptoFrequencies.get(itemCode);
+        	if(frequency < this.SUPPORT_COUNT_THRESHOLD) continue;
             //Format: <itemcode>:<frequency>
         	sb.setLength(0);
-    		output.write(sb.append(entry.getKey()).append(":").
-    						append(entry.getValue()).append("\n").toString());
+    		output.write(sb.append(itemCode).append(":").
+    						append(frequency).append("\n").toString());
         }
         
         // Write remaining frequent k-itemsets (k>1)
+        int[] codes = new int[16];
         for (Entry<String, FPSubset> e : this.hFrequentPatterns.entrySet()) {
             //Format: <itemset>:<frequency>
         	sb.setLength(0);
     		output.write(sb.append(e.getKey()).append(":").append(e.getValue().support).append("\n").toString());
     		
     		sb.setLength(0);
-        	int base_length = sb.append(e.getKey()).append(' ').length();
-    		for(Entry<String, Integer> entry : e.getValue().fPatterns.entrySet()){
+        	int base_length = sb.append(e.getKey()).length();
+        	ItemsetIntMap fPatterns = e.getValue().fPatterns;
+    		for(int entry=0; entry<fPatterns.size(); entry++){
     			sb.setLength(base_length);
-        		output.write(sb.append(entry.getKey()).append(":").
-        						append(entry.getValue()).append("\n").toString());
+    			if(fPatterns.keyLength(entry) > codes.length) codes = new int[fPatterns.keyLength(entry)];
+    			for(int i=0, length=fPatterns.getKey(entry, codes); i<length; i++) sb.append(' ').append(codes[i]);
+        		output.write(sb.append(":").append(fPatterns.value(entry)).append("\n").toString());
     		}
         }
         output.flush();
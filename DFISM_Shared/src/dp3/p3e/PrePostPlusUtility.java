@@ -3,54 +3,81 @@ package dp3.p3e;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+
+import dfism.commons.IntHolder;
+import dfism.commons.collections.IntList;
 
 class PrePostPlusUtility {
-	private static int currentPreCode;
-	private static int currentPosCode;
-	
-	public static void assignPrePosOrderCode(PPCNode ppcTree){
-		resetCurrentCode();
-		traverseAssignPrePosOrderCode(ppcTree);
-	}
 	
-	private static void resetCurrentCode(){
-		currentPreCode = 1;
-		currentPosCode = 1;
+	/**
+	 * Traverse the tree with pre&post-order and assign two ordinal numbers for each node.
+	 * </br>With more than one thread, the sizes of level-1 branches are counted first, so each branch knows the codes
+	 * it starts from and the branches are numbered in parallel. Both ways give the same codes.
+	 * @param ppcTree
+	 * @param thread_count
+	 * @throws InterruptedException
+	 */
+	public static void assignPrePosOrderCode(PPCTree ppcTree, int thread_count) throws InterruptedException{
+		int[] level1_nodes = ppcTree.getLevel1Nodes();
+		if(thread_count < 2 || level1_nodes.length < 2){
+			ppcTree.assignPrePosOrderCode(PPCTree.ROOT, 1, 1);
+			return;
+		}
+		
+		// Count the size of each level-1 branch
+		int[] branch_sizes = new int[level1_nodes.length];
+		IntHolder branchIndex = new IntHolder(0);
+		Thread[] threads = new Thread[thread_count];
+		for(int i=0; i<thread_count; i++){
+			threads[i] = new AssignPrePosOrderCodeThread(ppcTree, level1_nodes, branch_sizes, null, branchIndex, i);
+			threads[i].start();
+		}
+		for(int i=0; i<thread_count; i++) threads[i].join();
+		
+		// The root is the first in pre-order and the last in post-order,
+		// a branch starts after all nodes of the branches before it
+		int[] branch_offsets = new int[level1_nodes.length];
+		int offset = 0;
+		for(int i=0; i<level1_nodes.length; i++){
+			branch_offsets[i] = offset;
+			offset += branch_sizes[i];
+		}
+		ppcTree.setPrePos(PPCTree.ROOT, 1, offset+1);
+		
+		// Number the branches
+		branchIndex.value = 0;
+		for(int i=0; i<thread_count; i++){
+			threads[i] = new AssignPrePosOrderCodeThread(ppcTree, level1_nodes, null, branch_offsets, branchIndex, i);
+			threads[i].start();
+		}
+		for(int i=0; i<thread_count; i++) threads[i].join();
 	}
     
-    /**
-     * Traverse the tree with pre&post-order and assign two ordinal numbers for each node
-     */
-    private static void traverseAssignPrePosOrderCode(PPCNode ppcTree){
-    	// Assign a code for the current node
-    	ppcTree.pre = currentPreCode;
-    	currentPreCode++;
-    	
-    	// If is not a leaf node, traverse all its children
-    	for(PPCNode child : ppcTree.children) traverseAssignPrePosOrderCode(child);
-    	
-    	ppcTree.pos = currentPosCode;
-		currentPosCode++;
-    }
-    
     /**
      * Store the root of an PPC tree with pre-order traverse, this function is just called one time.
      * To avoid checking whether a node is root (whether its parent is null or not null)
      */
-    public static long storePPCTree(PPCNode root, String fileName) throws IOException{
+    public static long storePPCTree(PPCTree ppcTree, String fileName) throws IOException{
     	// Remember start time
     	long start = System.currentTimeMillis();
     	
     	BufferedWriter output = new BufferedWriter(new FileWriter(fileName));
     	StringBuilder sb = new StringBuilder();
     	
-    	output.write(sb.append(-1).append(':').append(root.pre).append(':').append(root.pos).append(':').
-    			append(root.itemCode).append(':').append(root.count).append('\n').toString());
+    	int root = PPCTree.ROOT;
+    	output.write(sb.append(-1).append(':').append(ppcTree.pre(root)).append(':').append(ppcTree.pos(root)).append(':').
+    			append(ppcTree.itemCode(root)).append(':').append(ppcTree.count(root)).append('\n').toString());
     	
-    	for(PPCNode child : root.children) storeSubPPCTree(child, output, sb);
+    	// Other nodes in pre-order
+    	for(int node=ppcTree.nextPreOrder(root, root); node != PPCTree.NONE; node=ppcTree.nextPreOrder(node, root)){
+    		sb.setLength(0);
+    		output.write(sb.append(ppcTree.pre(ppcTree.parent(node))).append(':').append(ppcTree.pre(node)).append(':').
+    				append(ppcTree.pos(node)).append(':').append(ppcTree.itemCode(node)).append(':').append(ppcTree.count(node)).
+    				append('\n').toString());
+    	}
     	
     	output.close();
     	
@@ -59,29 +86,37 @@ class PrePostPlusUtility {
     }
     
     /**
-     * Store an PPC tree by pre-order traverse, this function will be called recursively
+     * @param values
+     * @return the rank of each value from 1, equal values have the mean of their ranks
      */
-    private static void storeSubPPCTree(PPCNode node, BufferedWriter output, StringBuilder sb) throws IOException{
-    	sb.setLength(0);
-		output.write(sb.append(node.parent.pre).append(':').append(node.pre).append(':').append(node.pos).append(':').
-    			append(node.itemCode).append(':').append(node.count).append('\n').toString());
+    public static double[] ranks(final long[] values){
+    	Integer[] order = new Integer[values.length];
+    	for(int i=0; i<order.length; i++) order[i] = i;
+    	Arrays.sort(order, new Comparator<Integer>(){
+    		public int compare(Integer index1, Integer index2){
+    			return Long.compare(values[index1], values[index2]);
+    		}
+    	});
     	
-    	for(PPCNode child : node.children) storeSubPPCTree(child, output, sb);
+    	double[] ranks = new double[values.length];
+    	for(int start=0, end; start<order.length; start=end){
+    		end = start+1;
+    		while(end < order.length && values[order[end]] == values[order[start]]) end++;
+    		for(int i=start; i<end; i++) ranks[order[i]] = (start+end+1)/2.0;
+    	}
+    	return ranks;
     }
     
     /**
      * This function generates Descarte production from two sets of sub sets.
      * This power set does not include empty set
      */
-    public static void generateDescartProduction(List<String> list1, List<String> list2, List<String> result){
-    	StringBuilder sb = new StringBuilder(100);
-    	int length;
-    	for(String s1 : list1){
-    		sb.setLength(0);
-    		length = sb.append(s1).append(' ').length();
-    		for(String s2 : list2){
-    			sb.setLength(length);
-    			result.add(sb.append(s2).toString());
+    public static void generateDescartProduction(List<int[]> list1, List<int[]> list2, List<int[]> result){
+    	for(int[] s1 : list1){
+    		for(int[] s2 : list2){
+    			int[] subset = Arrays.copyOf(s1, s1.length + s2.length);
+    			System.arraycopy(s2, 0, subset, s1.length, s2.length);
+    			result.add(subset);
     		}
     	}
     }
@@ -90,23 +125,22 @@ class PrePostPlusUtility {
      * This function generates a set of sub sets building from a list of items.
      * This power set does not include empty set
      */
-    public static void generatePowerSet(List<String> items, List<String> powerSet) throws NullPointerException{
+    public static void generatePowerSet(IntList items, List<int[]> powerSet){
     	if(items == null || items.size()==0) return;
     	
     	// Initialize for the powerSet with the first item in the items
-    	Iterator<String> iterator = items.iterator();
-    	powerSet.add(iterator.next());
+    	powerSet.add(new int[]{items.get(0)});
     	
-    	while(iterator.hasNext()) addNewCombinations(iterator.next(), powerSet);
+    	for(int i=1; i<items.size(); i++) addNewCombinations(items.get(i), powerSet);
     }
     
-    private static void addNewCombinations(String item, List<String> powerSet){
+    private static void addNewCombinations(int item, List<int[]> powerSet){
     	int L = powerSet.size();
-    	powerSet.add(item);
-    	StringBuilder sb = new StringBuilder(100);
+    	powerSet.add(new int[]{item});
     	for(int i=0; i<L; i++){
-    		sb.setLength(0);
-    		powerSet.add(sb.append(powerSet.get(i)).append(' ').append(item).toString());
+    		int[] subset = Arrays.copyOf(powerSet.get(i), powerSet.get(i).length+1);
+    		subset[subset.length-1] = item;
+    		powerSet.add(subset);
     	}
     }
     
@@ -118,58 +152,19 @@ class PrePostPlusUtility {
      * </br>- Calculate complexity is O(m+n)
      * </br>- Note: instead add descendants node as prepost and fin algorithm, here prepostplus add ancestor nodes.
      * This will cause reduce number of nodes in each node list. Consequently, save memory and cpu time
-     * @param is1
-     * @param is2
-     * @param itemset_nodelist
+     * @param i1
+     * @param i2
+     * @param item_nodelist node lists of the items, by item code
      * @param nodelist	The result nodelist
      */
-    public static void create_nodelist_for_itemset(String is1, String is2,
-    										Map<String, Nodelist> itemset_nodelist,
-    										Nodelist nodelist){
-    	Nodelist i1_nodelist = itemset_nodelist.get(is1);
-		Nodelist i2_nodelist = itemset_nodelist.get(is2);
+    public static void create_nodelist_for_itemset(int i1, int i2, Nodelist[] item_nodelist, Nodelist nodelist){
+    	Nodelist i1_nodelist = item_nodelist[i1];
+		Nodelist i2_nodelist = item_nodelist[i2];
 		int size1 = i1_nodelist.size(), size2 = i2_nodelist.size();
 		if(size1 == 0 || size2 == 0) return;
 		
-		int index1=0, index2=0, last_node_index = -1, last_node_pre = -1;
 		nodelist.allocate(size2); // the maximum capacity for 'nodelist' is as large as 'size2'
-		Node i1_node = new Node(), i2_node = new Node();
-		i1_nodelist.get(index1, i1_node);
-		i2_nodelist.get(index2, i2_node);
-		
-    	while(true){
-    		if(i1_node.pre > i2_node.pre){
-    			if(i1_node.pos < i2_node.pos){
-    				// This desired case says that: i1_node is a descendant of i2_node. 
-    				// So i2_node (ancestor) is added to the node list of i1i2 itemset --> increase index1
-    				// NOTE: i2_node can be an ancestor of other nodes in i1_nodelist --> stay index2
-    				if(last_node_pre == i2_node.pre){
-    					nodelist.accSupportCount(last_node_index, i1_node.count);
-    				}else{
-    					nodelist.add(i2_node.pre, i2_node.pos, i1_node.count);
-    					last_node_pre = i2_node.pre;
-    					last_node_index++;
-    				}
-    				index1++;
-    				if(index1 < size1) i1_nodelist.get(index1, i1_node);
-    				else break;
-    			}else{ // i1_node.pre > i2_node.pre && i1_node.pos > i2_node.pos
-    				// This undesired case says that: 
-    				// All nodes from i1_node in i1_nodelist are NOT descendant of i2_node --> increase index2
-    				// but i1_node can be a descendant of other nodes in i2_nodelist --> stay index1
-    				index2++;
-    				if(index2 < size2) i2_nodelist.get(index2, i2_node);
-    				else break;
-    			}
-    		}else{ // i1_node.pre < i2_node.pre --> it must be i1_node.pos < i2_node.pos
-    			// This undesired case says that: 
-				// All nodes from i2_node in i2_nodelist are not ancestors of i1_node --> increase index1
-				// but i2_node can be a ancestor of other nodes in i1_nodelist --> stay index2
-    			index1++;
-    			if(index1 < size1) i1_nodelist.get(index1, i1_node);
-				else break;
-    		}
-    	}
+		nodelist.intersect(i1_nodelist, i2_nodelist);
     }
     
     /**
@@ -180,59 +175,13 @@ class PrePostPlusUtility {
      * </br>- Calculate complexity is O(m+n)
      * </br>- Note: instead add descendants node as prepost and fin algorithm, here prepostplus add ancestor nodes.
      * This will cause reduce number of nodes in each node list. Consequently, save memory and cpu time
-     * @param is1
-     * @param is2
-     * @param itemset_nodelist
-     * @param nodelist	The result nodelist
+     * @param i1
+     * @param i2
+     * @param item_nodelist node lists of the items, by item code
+     * @return the nodelist of itemset i1|i2
      */
-    public static Nodelist create_nodelist_for_itemset(String is1, String is2,
-    										Map<String, Nodelist> itemset_nodelist){
-    	Nodelist i1_nodelist = itemset_nodelist.get(is1);
-		Nodelist i2_nodelist = itemset_nodelist.get(is2);
-		int size1 = i1_nodelist.size(), size2 = i2_nodelist.size();
-		if(size1 == 0 || size2 == 0) return new NodelistFake();
-		
-		int index1=0, index2=0, last_node_index = -1, last_node_pre = -1;
-		Nodelist nodelist = new Nodelist(size2); // the maximum capacity for 'nodelist' is as large as 'size2'
-		Node i1_node = new Node(), i2_node = new Node();
-		i1_nodelist.get(index1, i1_node);
-		i2_nodelist.get(index2, i2_node);
-		
-    	while(true){
-    		if(i1_node.pre > i2_node.pre){
-    			if(i1_node.pos < i2_node.pos){
-    				// This desired case says that: i1_node is a descendant of i2_node. 
-    				// So i2_node (ancestor) is added to the node list of i1i2 itemset --> increase index1
-    				// NOTE: i2_node can be an ancestor of other nodes in i1_nodelist --> stay index2
-    				if(last_node_pre == i2_node.pre){
-    					nodelist.accSupportCount(last_node_index, i1_node.count);
-    				}else{
-    					nodelist.add(i2_node.pre, i2_node.pos, i1_node.count);
-    					last_node_pre = i2_node.pre;
-    					last_node_index++;
-    				}
-    				index1++;
-    				if(index1 < size1) i1_nodelist.get(index1, i1_node);
-    				else break;
-    			}else{ // i1_node.pre > i2_node.pre && i1_node.pos > i2_node.pos
-    				// This undesired case says that: 
-    				// All nodes from i1_node in i1_nodelist are NOT descendant of i2_node --> increase index2
-    				// but i1_node can be a descendant of other nodes in i2_nodelist --> stay index1
-    				index2++;
-    				if(index2 < size2) i2_nodelist.get(index2, i2_node);
-    				else break;
-    			}
-    		}else{ // i1_node.pre < i2_node.pre --> it must be i1_node.pos < i2_node.pos
-    			// This undesired case says that: 
-				// All nodes from i2_node in i2_nodelist are not ancestors of i1_node --> increase index1
-				// but i2_node can be a ancestor of other nodes in i1_nodelist --> stay index2
-    			index1++;
-    			if(index1 < size1) i1_nodelist.get(index1, i1_node);
-				else break;
-    		}
-    	}
-    	
-    	return nodelist;
+    public static Nodelist create_nodelist_for_itemset(int i1, int i2, Nodelist[] item_nodelist){
+    	return create_nodelist_from_2Nodelists(item_nodelist[i1], item_nodelist[i2]);
     }
     
     /**
@@ -244,47 +193,100 @@ class PrePostPlusUtility {
     public static Nodelist create_nodelist_from_2Nodelists(Nodelist nodelist1, Nodelist nodelist2){
     	int size1 = nodelist1.size(), size2 = nodelist2.size();
     	if(size1 == 0 || size2 == 0) return new NodelistFake();
+    	if(nodelist1 instanceof NodeBitmap || nodelist2 instanceof NodeBitmap) return NodeBitmap.intersection(nodelist1, nodelist2);
 		
-    	int index1=0, index2=0, last_node_index = -1, last_node_pre = -1;
 		Nodelist nodelist = new Nodelist(size2); // the maximum capacity for 'nodelist' is as large as 'size2'
-		Node i1_node = new Node(), i2_node = new Node();
-		nodelist1.get(index1, i1_node);
-		nodelist2.get(index2, i2_node);
-		
-    	while(true){
-    		if(i1_node.pre > i2_node.pre){
-    			if(i1_node.pos < i2_node.pos){
-    				// This desired case says that: i1_node is a descendant of i2_node. 
-    				// So i2_node (ancestor) is added to the node list of i1i2 itemset --> increase index1
-    				// NOTE: i2_node can be an ancestor of other nodes in i1_nodelist --> stay index2
-    				if(last_node_pre == i2_node.pre){
-    					nodelist.accSupportCount(last_node_index, i1_node.count);
-    				}else{
-    					nodelist.add(i2_node.pre, i2_node.pos, i1_node.count);
-    					last_node_pre = i2_node.pre;
-    					last_node_index++;
-    				}
-    				index1++;
-    				if(index1 < size1) nodelist1.get(index1, i1_node);
-    				else break;
-    			}else{ // i1_node.pre > i2_node.pre && i1_node.pos > i2_node.pos
-    				// This undesired case says that: 
-    				// All nodes from i1_node in i1_nodelist are NOT descendant of i2_node --> increase index2
-    				// but i1_node can be a descendant of other nodes in i2_nodelist --> stay index1
-    				index2++;
-    				if(index2 < size2) nodelist2.get(index2, i2_node);
-    				else break;
-    			}
-    		}else{ // i1_node.pre < i2_node.pre --> it must be i1_node.pos < i2_node.pos
-    			// This undesired case says that: 
-				// All nodes from i2_node in i2_nodelist are not ancestors of i1_node --> increase index1
-				// but i2_node can be a ancestor of other nodes in i1_nodelist --> stay index2
-    			index1++;
-    			if(index1 < size1) nodelist1.get(index1, i1_node);
-				else break;
-    		}
-    	}
-    	
+		nodelist.intersect(nodelist1, nodelist2);
+    	return nodelist;
+    }
+    
+    /**
+     * The bounded version of create_nodelist_from_2Nodelists(nodelist1, nodelist2): the intersection is abandoned
+     * as soon as the support counts of nodes of 'nodelist1' without an ancestor in 'nodelist2' show that
+     * the itemset common|i1|i2 can not reach 'min_support_count'.
+     * </br>The result is written into 'nodelist', which is reused by the caller for all candidates. Only the node lists
+     * which are kept have to be copied, so candidates which fail do not allocate memory.
+     * @param nodelist1 of itemset common|i1
+     * @param nodelist2 of itemset common|i2
+     * @param support1 support count of common|i1
+     * @param min_support_count
+     * @param nodelist node list reused for the result, its nodes are removed first
+     * @return 'nodelist' holding the nodelist of itemset common|i1|i2, or NodelistFake.INFREQUENT when it is
+     * infrequent for sure. If 'nodelist1' or 'nodelist2' is a bitmap, the result is a new bitmap instead.
+     */
+    public static Nodelist create_nodelist_from_2Nodelists(Nodelist nodelist1, Nodelist nodelist2,
+    										int support1, int min_support_count, Nodelist nodelist){
+    	if(nodelist1 instanceof NodeBitmap || nodelist2 instanceof NodeBitmap) return NodeBitmap.intersection(nodelist1, nodelist2);
+    	nodelist.clear();
+		if(nodelist.intersect(nodelist1, nodelist2, support1 - min_support_count) < 0) return NodelistFake.INFREQUENT;
     	return nodelist;
     }
+    
+    /**
+     * Replace the node list of a 2-itemset i1|i2 by its bitmap if i1|i2 is dense in the transactions of i1,
+     * see NodeBitmap. The itemsets of the subspace of i1|i2 are then bitmaps too.
+     * @param i1_nodelist node list of item i1
+     * @param nodelist node list of itemset i1|i2
+     * @return the bitmap of i1|i2, or 'nodelist' if i1|i2 is not dense
+     */
+    public static Nodelist create_bitmap_if_dense(Nodelist i1_nodelist, Nodelist nodelist){
+    	if(nodelist.size() == 0 || !NodeBitmap.isDense(nodelist.totalSupportCount(), i1_nodelist.totalSupportCount())) return nodelist;
+    	return NodeBitmap.create(i1_nodelist, nodelist);
+    }
+    
+    /**
+     * - Calculate the diffset of 2-itemset i1|i2 from the node lists of items i1 and i2: the nodes of i1 which have
+     * no ancestor of i2. Used by the diffset engine (DiffsetPrePostPlusE).
+     * </br>- NOTE: i1 < i2 in the used order
+     * @param i1
+     * @param i2
+     * @param item_nodelist node lists of the items, by item code
+     * @param nodelist	The result diffset
+     */
+    public static void create_diffset_for_itemset(int i1, int i2, Nodelist[] item_nodelist, Nodelist nodelist){
+    	Nodelist i1_nodelist = item_nodelist[i1];
+    	nodelist.allocate(i1_nodelist.size()); // the maximum capacity for 'nodelist' is as large as the node list of i1
+    	nodelist.exclude(i1_nodelist, item_nodelist[i2]);
+    }
+    
+    /**
+     * Calculate the diffset of 2-itemset i1|i2 from the node lists of items i1 and i2 (i1 < i2)
+     * @param nodelist1 of item i1
+     * @param nodelist2 of item i2
+     * @return the diffset of itemset i1|i2
+     */
+    public static Nodelist create_diffset_from_2Nodelists(Nodelist nodelist1, Nodelist nodelist2){
+    	Nodelist diffset = new Nodelist(nodelist1.size());
+    	diffset.exclude(nodelist1, nodelist2);
+    	return diffset;
+    }
+    
+    /**
+     * Calculate the diffset of itemset P|x|y from the diffsets of itemsets P|x and P|y (x < y)
+     * @param diffset1 of itemset P|x
+     * @param diffset2 of itemset P|y
+     * @return the diffset of itemset P|x|y
+     */
+    public static Nodelist create_diffset_from_2Diffsets(Nodelist diffset1, Nodelist diffset2){
+    	Nodelist diffset = new Nodelist(diffset2.size());
+    	diffset.difference(diffset2, diffset1, Integer.MAX_VALUE);
+    	return diffset;
+    }
+    
+    /**
+     * The bounded version of create_diffset_from_2Diffsets(diffset1, diffset2): the difference is abandoned as soon as
+     * the itemset P|x|y can not reach 'min_support_count'.
+     * @param diffset1 of itemset P|x
+     * @param diffset2 of itemset P|y
+     * @param support1 support count of P|x
+     * @param min_support_count
+     * @param diffset node list reused for the result, its nodes are removed first
+     * @return 'diffset' holding the diffset of itemset P|x|y, or NodelistFake.INFREQUENT when it is infrequent for sure
+     */
+    public static Nodelist create_diffset_from_2Diffsets(Nodelist diffset1, Nodelist diffset2,
+    										int support1, int min_support_count, Nodelist diffset){
+    	diffset.clear();
+    	if(!diffset.difference(diffset2, diffset1, support1 - min_support_count)) return NodelistFake.INFREQUENT;
+    	return diffset;
+    }
 }